@@ -13,7 +13,9 @@ import org.slf4j.LoggerFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -87,14 +89,18 @@ public class CacheBatchIntegrationTest extends TestKitSupport {
         );
 
         Assertions.assertTrue(batchResponse.body().complete());
+        Assertions.assertEquals(99, batchResponse.body().results().size());
 
+        // results come back as they complete, so they're matched up by cacheName and key
+        Map<String, CacheGetResponse> byCacheId = batchResponse.body().results().stream()
+                .collect(Collectors.toMap(result -> result.cacheName().concat(result.key()), result -> result));
         for (int i = 1; i < 100; i++) {
             String cacheName = CACHE_BASE_NAME + i;
             String key = KEY + i;
 
-            CacheGetResponse cacheGetResponse = batchResponse.body().results().get(i-1);
-            Assertions.assertEquals(cacheName, cacheGetResponse.cacheName());
-            Assertions.assertEquals(key, cacheGetResponse.key());
+            CacheGetResponse cacheGetResponse = byCacheId.get(cacheName.concat(key));
+            Assertions.assertNotNull(cacheGetResponse);
+            Assertions.assertTrue(cacheGetResponse.success());
 
             String returnedPayload = new String(cacheGetResponse.value(), StandardCharsets.UTF_8);
             log.info("returned value for cachName:{}, key:{} is {}", cacheName, key, returnedPayload);
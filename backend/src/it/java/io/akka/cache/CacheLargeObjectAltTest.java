@@ -4,8 +4,12 @@ import akka.http.javadsl.model.ContentType;
 import akka.http.javadsl.model.ContentTypes;
 import akka.http.javadsl.model.MediaTypes;
 import akka.http.javadsl.model.StatusCodes;
+import akka.javasdk.JsonSupport;
 import akka.javasdk.testkit.TestKit;
 import akka.javasdk.testkit.TestKitSupport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.akka.cache.application.CacheEntity;
+import io.akka.cache.domain.CacheInternalGetResponse;
 import org.junit.jupiter.api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +20,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class CacheLargeObjectAltTest extends TestKitSupport {
@@ -27,6 +34,7 @@ public class CacheLargeObjectAltTest extends TestKitSupport {
 
     final String key3 = "2025-Corvette-3";
     final String key4 = "2025-Corvette-4";
+    final String key5 = "org-key-5";
 
     public CacheLargeObjectAltTest() throws IOException {
     }
@@ -36,6 +44,13 @@ public class CacheLargeObjectAltTest extends TestKitSupport {
         return super.testKitSettings().withAclDisabled();
     }
 
+    // the testkit doesn't check signatures, an unsigned token carries the claims
+    private String bearerTokenWith(Map<String, String> claims) throws JsonProcessingException {
+        String alg = Base64.getEncoder().encodeToString("{\"alg\":\"none\"}".getBytes());
+        String payload = Base64.getEncoder().encodeToString(JsonSupport.getObjectMapper().writeValueAsBytes(claims));
+        return "Bearer " + alg + "." + payload;
+    }
+
     private byte[] readFileToBytes(String filePath) throws IOException {
         File file = new File(filePath);
         byte[] bytes = new byte[(int) file.length()];
@@ -62,6 +77,7 @@ public class CacheLargeObjectAltTest extends TestKitSupport {
         final String copyToFile = "./images/2025-Chevrolet-Corvette-ZR1-001-1440sw(copy 3).jpg";
         var response = await(
                 httpClient.POST("/cache/"+ CACHE_NAME + "/" + key3)
+                        .addHeader("Authorization", bearerTokenWith(Map.of()))
                         .withRequestBody(BINARY_PAYLOAD, imageData)
                         .invokeAsync()
         );
@@ -93,6 +109,7 @@ public class CacheLargeObjectAltTest extends TestKitSupport {
 
         var response = await(
                 httpClient.POST("/cache/"+ CACHE_NAME + "/" + key4 + "/10")
+                        .addHeader("Authorization", bearerTokenWith(Map.of()))
                         .withRequestBody(BINARY_PAYLOAD, imageData)
                         .invokeAsync()
         );
@@ -118,4 +135,43 @@ public class CacheLargeObjectAltTest extends TestKitSupport {
         writeBytesToFile(copyToFile, getResponse);
     }
 
-}
\ No newline at end of file
+    @Test
+    @Order(5)
+    public void httpSetAndGetWithOrgClaim() throws IOException {
+        byte[] payload = "This is org1's value".getBytes();
+        var response = await(
+                httpClient.POST("/cache/" + CACHE_NAME + "/" + key5)
+                        .addHeader("Authorization", bearerTokenWith(Map.of("org", "org1")))
+                        .withRequestBody(BINARY_PAYLOAD, payload)
+                        .invokeAsync()
+        );
+        Assertions.assertEquals(StatusCodes.CREATED, response.status());
+
+        // the org sits next to the cacheName, which reads back unchanged
+        CacheInternalGetResponse cached = await(
+                componentClient.forEventSourcedEntity(CACHE_NAME.concat(key5))
+                        .method(CacheEntity::get)
+                        .invokeAsync()
+        );
+        Assertions.assertEquals(Optional.of("org1"), cached.org());
+        Assertions.assertEquals(CACHE_NAME, cached.cacheName());
+
+        var cache = await(
+                httpClient.GET("/cache/" + CACHE_NAME + "/" + key5)
+                        .invokeAsync()
+        );
+        Assertions.assertEquals(StatusCodes.OK, cache.status());
+        Assertions.assertArrayEquals(payload, cache.body().toArray());
+    }
+
+    @Test
+    @Order(6)
+    public void httpSetWithoutBearerTokenIsRefused() {
+        var response = await(
+                httpClient.POST("/cache/" + CACHE_NAME + "/" + key5)
+                        .withRequestBody(BINARY_PAYLOAD, "no token".getBytes())
+                        .invokeAsync()
+        );
+        Assertions.assertEquals(StatusCodes.UNAUTHORIZED, response.status());
+    }
+}
@@ -37,7 +37,9 @@ public class CacheNameDeleteWorkflowTest extends TestKitSupport {
     protected TestKit.Settings testKitSettings() {
         var overrideSettings = ConfigFactory.parseMap(
                 Map.of(
-                        "app.cache-name-delete-block-size", 7
+                        "app.cache-name-delete-block-size", 7,
+                        // several pages, each deleted in more than one block
+                        "app.cache-name-delete-page-size", 10
                 )
         );
 //        return TestKit.Settings.DEFAULT.withAdditionalConfig(overrideSettings);
@@ -46,8 +48,8 @@ public class CacheNameDeleteWorkflowTest extends TestKitSupport {
 
     private CompletionStage<CacheView.CachedKeys> getView(String cacheName) {
         return componentClient.forView()
-                .method(CacheView::getCacheKeys)
-                .invokeAsync(cacheName);
+                .method(CacheView::getCacheKeysPage)
+                .invokeAsync(KeyPageQuery.of(cacheName, Optional.empty(), Optional.empty(), 1000));
     }
 
     private void setCache(String cacheName, String key, Cache cache) {
@@ -4,6 +4,7 @@ import akka.javasdk.testkit.EventingTestKit;
 import akka.javasdk.testkit.TestKit;
 import akka.javasdk.testkit.TestKitSupport;
 import io.akka.cache.domain.CacheEvent;
+import io.akka.cache.domain.KeyPageQuery;
 import io.akka.cache.domain.PayloadChunk;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
@@ -84,8 +85,8 @@ public class CacheViewTest extends TestKitSupport {
                             CacheView.CachedKeys keysResponse =
                                     await(
                                             componentClient.forView()
-                                                    .method(CacheView::getCacheKeys)
-                                                    .invokeAsync(CACHENAME1)
+                                                    .method(CacheView::getCacheKeysPage)
+                                                    .invokeAsync(KeyPageQuery.of(CACHENAME1, Optional.empty(), Optional.empty(), 10))
                                     );
 
                             assertThat(keysResponse.keys()).containsOnly(KEY1, KEY2, KEY3);
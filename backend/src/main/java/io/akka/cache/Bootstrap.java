@@ -0,0 +1,101 @@
+package io.akka.cache;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.ServiceSetup;
+import akka.javasdk.annotations.Setup;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.akka.cache.application.AccessStatsEntity;
+import io.akka.cache.application.CacheEviction;
+import io.akka.cache.application.OrganizationEntity;
+import io.akka.cache.domain.AccessStats;
+import io.akka.cache.local.AccessSamples;
+import io.akka.cache.local.CacheNameExistence;
+import io.akka.cache.local.DictionaryCache;
+import io.akka.cache.local.NearCache;
+import io.akka.cache.local.OrgQuotas;
+import io.akka.cache.local.ResizeBatcher;
+import io.akka.cache.local.SlidingTouches;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ Node-local singletons shared between the endpoint and the consumers that keep them coherent.
+ */
+@Setup
+public class Bootstrap implements ServiceSetup {
+    private static final Logger log = LoggerFactory.getLogger(Bootstrap.class);
+
+    private final NearCache nearCache;
+    private final DictionaryCache dictionaryCache;
+    private final OrgQuotas orgQuotas;
+    private final CacheNameExistence cacheNameExistence;
+    private final SlidingTouches slidingTouches;
+    private final ResizeBatcher resizeBatcher;
+    private final AccessSamples accessSamples;
+    private final CacheEviction eviction;
+
+    public Bootstrap(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.nearCache = new NearCache(config);
+        this.dictionaryCache = new DictionaryCache(config);
+        this.orgQuotas = new OrgQuotas(config, org -> componentClient.forKeyValueEntity(org)
+                .method(OrganizationEntity::get)
+                .invokeAsync());
+        this.cacheNameExistence = new CacheNameExistence(config);
+        this.slidingTouches = new SlidingTouches(config);
+        this.resizeBatcher = new ResizeBatcher(config);
+        int maxAccessKeys = config.getInt("app.eviction.access-max-keys-per-shard");
+        this.accessSamples = new AccessSamples(config, (shardId, reads) -> componentClient.forKeyValueEntity(shardId)
+                .method(AccessStatsEntity::record)
+                .invokeAsync(new AccessStats.Reads(reads, maxAccessKeys)));
+        this.eviction = new CacheEviction(config, componentClient, timerScheduler);
+    }
+
+    // starts the eviction checks of the bounded cacheNames, a timer already running under the name is replaced
+    @Override
+    public void onStartup() {
+        for (String cacheName : eviction.boundedCacheNames()) {
+            eviction.scheduleCheck(cacheName)
+                    .exceptionally(ex -> {
+                        log.error("Bootstrap failed to start the eviction checks of cacheName {}: {}", cacheName, ex.getMessage());
+                        return null;
+                    });
+        }
+    }
+
+    @Override
+    public DependencyProvider createDependencyProvider() {
+        return new DependencyProvider() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T getDependency(Class<T> clazz) {
+                if (clazz == NearCache.class) {
+                    return (T) nearCache;
+                }
+                if (clazz == DictionaryCache.class) {
+                    return (T) dictionaryCache;
+                }
+                if (clazz == OrgQuotas.class) {
+                    return (T) orgQuotas;
+                }
+                if (clazz == CacheNameExistence.class) {
+                    return (T) cacheNameExistence;
+                }
+                if (clazz == SlidingTouches.class) {
+                    return (T) slidingTouches;
+                }
+                if (clazz == ResizeBatcher.class) {
+                    return (T) resizeBatcher;
+                }
+                if (clazz == AccessSamples.class) {
+                    return (T) accessSamples;
+                }
+                if (clazz == CacheEviction.class) {
+                    return (T) eviction;
+                }
+                throw new IllegalArgumentException("No dependency available for " + clazz.getName());
+            }
+        };
+    }
+}
@@ -1,8 +1,13 @@
 package io.akka.cache.api;
 
 import akka.Done;
+import akka.NotUsed;
 import akka.http.javadsl.model.*;
+import akka.http.javadsl.model.headers.ContentEncoding;
+import akka.http.javadsl.model.headers.HttpEncodings;
+import akka.http.javadsl.model.headers.RawHeader;
 import akka.japi.Pair;
+import akka.javasdk.JsonSupport;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.http.HttpException;
 import akka.javasdk.http.HttpResponses;
@@ -11,27 +16,59 @@ import akka.stream.Materializer;
 import akka.stream.javadsl.Sink;
 import akka.stream.javadsl.Source;
 import akka.util.ByteString;
-import akka.util.ByteStringBuilder;
 import io.akka.cache.application.*;
+import io.akka.cache.domain.AbandonedChunks;
+import io.akka.cache.domain.ByteRange;
 import io.akka.cache.domain.Cache;
+import io.akka.cache.domain.CacheAppend;
+import io.akka.cache.domain.CacheAppendResponse;
+import io.akka.cache.domain.CacheCommit;
 import io.akka.cache.domain.CacheInternalGetResponse;
 import io.akka.cache.domain.CacheName;
+import io.akka.cache.domain.CachePatch;
+import io.akka.cache.domain.CacheTouch;
+import io.akka.cache.domain.CacheWriteResult;
+import io.akka.cache.domain.ChunkReferrers;
+import io.akka.cache.domain.ChunkRelease;
+import io.akka.cache.domain.ChunkShard;
+import io.akka.cache.domain.DictionaryTraining;
+import io.akka.cache.domain.DictionaryVersion;
+import io.akka.cache.domain.KeyPageQuery;
 import io.akka.cache.domain.PayloadChunk;
+import io.akka.cache.domain.SealedChunks;
+import io.akka.cache.domain.StagedChunk;
+import io.akka.cache.domain.StoreChunk;
+import io.akka.cache.local.AccessSamples;
+import io.akka.cache.local.CacheNameExistence;
+import io.akka.cache.local.SlidingTouches;
+import io.akka.cache.local.DictionaryCache;
+import io.akka.cache.local.NearCache;
+import io.akka.cache.local.OrgQuotas;
+import io.akka.cache.streams.BatchCodec;
+import io.akka.cache.streams.BatchRunner;
+import io.akka.cache.streams.ChecksumVerifier;
 import io.akka.cache.streams.Chunker;
-import io.akka.cache.utils.FutureHelper;
+import io.akka.cache.streams.ContentChecksum;
+import io.akka.cache.streams.DictionaryCompression;
+import io.akka.cache.streams.PayloadCompression;
 import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.UUID;
 
 import io.akka.cache.domain.CacheAPI.*;
@@ -40,6 +77,8 @@ public class CacheAPICoreImpl {
     private static final Logger log = LoggerFactory.getLogger(CacheAPICoreImpl.class);
 
     protected final static ContentType BINARY_PAYLOAD = ContentTypes.create(MediaTypes.APPLICATION_OCTET_STREAM);
+    protected final static ContentType NDJSON = ContentTypes.parse("application/x-ndjson");
+    private final static ByteString NEWLINE = ByteString.fromString("\n");
 
     protected final ComponentClient componentClient;
     protected final boolean cacheNameNeededFirst;
@@ -48,13 +87,43 @@ public class CacheAPICoreImpl {
     protected final Materializer materializer;
     protected final int streamChunkParallelism;
     protected final long maxPayloadSize;
+    protected final int streamGetPrefetch;
+    protected final Duration strictEntityTimeout;
+    protected final NearCache nearCache;
+    protected final PayloadCompression compression;
+    protected final DictionaryCache dictionaryCache;
+    protected final OrgQuotas orgQuotas;
+    protected final CacheNameExistence cacheNameExistence;
+    protected final int dictionarySampleSize;
+    protected final int maxDictionaryBytes;
+    protected final long maxDictionaryValueBytes;
+    protected final SlidingTouches slidingTouches;
+    protected final int batchParallelism;
+    protected final int keyPageSize;
+    protected final int maxKeyPageSize;
+    protected final AccessSamples accessSamples;
 
-    public CacheAPICoreImpl(Config config, ComponentClient componentClient, TimerScheduler timerScheduler, Materializer materializer) {
+    public CacheAPICoreImpl(Config config, ComponentClient componentClient, TimerScheduler timerScheduler, Materializer materializer, NearCache nearCache, DictionaryCache dictionaryCache, OrgQuotas orgQuotas, CacheNameExistence cacheNameExistence, SlidingTouches slidingTouches, AccessSamples accessSamples) {
         this.componentClient = componentClient;
+        this.slidingTouches = slidingTouches;
+        this.orgQuotas = orgQuotas;
+        this.cacheNameExistence = cacheNameExistence;
         this.timerScheduler = timerScheduler;
         this.materializer = materializer;
+        this.nearCache = nearCache;
+        this.compression = new PayloadCompression(config);
+        this.dictionaryCache = dictionaryCache;
+        this.dictionarySampleSize = config.getInt("app.dictionary.sample-size");
+        this.maxDictionaryBytes = (int) config.getBytes("app.dictionary.max-dictionary-bytes").longValue();
+        this.maxDictionaryValueBytes = config.getBytes("app.dictionary.max-value-bytes");
         this.streamChunkParallelism = config.getInt("app.stream-chunk-parallelism");
         this.maxPayloadSize = config.getLong("app.stream-max-payload-size");
+        this.streamGetPrefetch = config.getInt("app.stream-get-prefetch");
+        this.strictEntityTimeout = config.getDuration("app.strict-entity-timeout");
+        this.batchParallelism = config.getInt("app.batch-parallelism");
+        this.keyPageSize = config.getInt("app.key-listing.page-size");
+        this.maxKeyPageSize = config.getInt("app.key-listing.max-page-size");
+        this.accessSamples = accessSamples;
         cacheNameNeededFirst = config.getBoolean("app.cache-name-needed-first");
         if (config.hasPath("app.default-default-ttl")) {
             defaultTTL = Optional.of(config.getDuration("app.default-default-ttl"));
@@ -69,7 +138,10 @@ public class CacheAPICoreImpl {
         return componentClient.forEventSourcedEntity(cn.cacheName())
                 .method(CacheNameEntity::create)
                 .invokeAsync(cn)
-                .thenApply(__ -> HttpResponses.created());
+                .thenApply(__ -> {
+                    cacheNameExistence.invalidate(cn.cacheName());
+                    return HttpResponses.created();
+                });
     }
     
     public CompletionStage<HttpResponse> updateCacheName(CacheNameRequest request) {
@@ -110,39 +182,101 @@ public class CacheAPICoreImpl {
                 .thenApply(transferState -> HttpResponses.accepted());
     }
 
+    // read from the cacheName's running totals, no key is looked at
+    public CompletionStage<CacheNameStatsResponse> getCacheNameStats(String cacheName) {
+        return componentClient.forKeyValueEntity(cacheName)
+                .method(CacheNameStatsEntity::get)
+                .invokeAsync()
+                .thenApply(stats -> new CacheNameStatsResponse(cacheName, stats.keys(), stats.totalBytes(), stats.chunkedKeys(), stats.sizeBuckets()));
+    }
+
+    public NearCacheStatsResponse getNearCacheStats(String cacheName) {
+        NearCache.Stats stats = nearCache.stats(cacheName);
+        return new NearCacheStatsResponse(stats.cacheName(), stats.enabled(), stats.hits(), stats.misses(), stats.entries(), stats.weightedBytes());
+    }
+
+    /*
+     Trains a new dictionary version from a random sample of the cacheName's small values.
+     Values already stored keep the version they were written with, new writes pick up this one.
+     */
+    public CompletionStage<DictionaryTrainedResponse> trainDictionary(String cacheName) {
+        return sampleKeys(cacheName)
+                .thenCompose(keys -> Source.from(keys)
+                        .mapAsyncUnordered(streamGetPrefetch, key -> getCache(cacheName, key))
+                        .filter(sample -> sample.success() && sample.value().length > 0 && sample.value().length <= maxDictionaryValueBytes)
+                        .map(CacheGetResponse::value)
+                        .runWith(Sink.seq(), materializer))
+                .thenCompose(samples -> {
+                    if (samples.size() < 2) {
+                        throw HttpException.badRequest("Not enough small values in " + cacheName + " to train a dictionary");
+                    }
+                    byte[] dictionary = DictionaryCompression.train(samples, maxDictionaryBytes);
+                    return componentClient.forEventSourcedEntity(cacheName)
+                            .method(CompressionDictionaryEntity::add)
+                            .invokeAsync(new DictionaryTraining(dictionary, samples.size()))
+                            .thenApply(dictionaryVersion -> {
+                                dictionaryCache.trained(cacheName);
+                                return new DictionaryTrainedResponse(cacheName, dictionaryVersion.version(), dictionaryVersion.dictionary().length, samples.size());
+                            });
+                });
+    }
+
+    private static final String SAMPLE_START_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    /*
+     dictionarySampleSize keys picked from a window of a few times that many, read in key order from a random
+     point and wrapping around to the first key when the window runs off the end. The view is never asked for
+     more than one bounded page at a time, however many keys the cacheName has.
+     */
+    private CompletionStage<List<String>> sampleKeys(String cacheName) {
+        int window = Math.min(dictionarySampleSize * 4, maxKeyPageSize);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String start = new String(new char[]{
+                SAMPLE_START_CHARS.charAt(random.nextInt(SAMPLE_START_CHARS.length())),
+                SAMPLE_START_CHARS.charAt(random.nextInt(SAMPLE_START_CHARS.length()))});
+        KeyPageQuery fromStart = KeyPageQuery.of(cacheName, Optional.empty(), Optional.empty(), window);
+        return fetchKeyPage(fromStart.next(start))
+                .thenCompose(afterStart -> {
+                    List<String> tail = fromStart.page(afterStart);
+                    if (tail.size() >= window) {
+                        return CompletableFuture.completedFuture(tail);
+                    }
+                    KeyPageQuery wrapped = KeyPageQuery.of(cacheName, Optional.empty(), Optional.empty(), window - tail.size());
+                    return fetchKeyPage(wrapped).thenApply(head -> {
+                        LinkedHashSet<String> windowKeys = new LinkedHashSet<>(tail);
+                        windowKeys.addAll(wrapped.page(head));
+                        return List.copyOf(windowKeys);
+                    });
+                })
+                .thenApply(windowKeys -> {
+                    List<String> keys = new ArrayList<>(windowKeys);
+                    Collections.shuffle(keys);
+                    return keys.subList(0, Math.min(keys.size(), dictionarySampleSize));
+                });
+    }
+
+    private CompletionStage<DictionaryVersion> currentDictionary(String cacheName) {
+        return dictionaryCache.current(cacheName, () -> componentClient.forEventSourcedEntity(cacheName)
+                .method(CompressionDictionaryEntity::current)
+                .invokeAsync());
+    }
+
+    private CompletionStage<DictionaryVersion> dictionaryVersion(String cacheName, int version) {
+        return dictionaryCache.version(cacheName, version, () -> componentClient.forEventSourcedEntity(cacheName)
+                .method(CompressionDictionaryEntity::get)
+                .invokeAsync(version));
+    }
+
     // Cache Names -- END
 
     // Cache API -- BEGIN
 
-    private CompletionStage<Done> scheduleTTLTimerIfNeeded(String cacheName, String key, Optional<Duration> requestTTLSeconds) {
-        Optional<Duration> ttlSeconds = Optional.empty();
-        String cacheId = cacheName.concat(key);
-        if (requestTTLSeconds.isPresent()) {
-            ttlSeconds = requestTTLSeconds;
-        }
-        else if (defaultTTL.isPresent()) {
-            ttlSeconds = defaultTTL;
-        }
-        if (ttlSeconds.isPresent()) {
-            if (log.isDebugEnabled()) {
-                log.debug("starting TTL timer for cacheName {} key {} at {} seconds.", cacheName, key, ttlSeconds.get().getSeconds());
-            }
-            return timerScheduler.startSingleTimer(
-                    "keys".concat(cacheId),
-                    ttlSeconds.get(),
-                    componentClient.forTimedAction()
-                            .method(CacheTimedAction::expireCacheTTL)
-                            .deferred(cacheId)
-            );
-        }
-        else {
-            if (log.isDebugEnabled()) {
-                log.debug("removing TTL timer for cacheName {} key {} if active.", cacheName, key);
-            }
-            timerScheduler.cancel("keys".concat(cacheId)); // cancel thr timer if active
-            return CompletableFuture.completedFuture(Done.done());
-        }
-
+    /*
+     The key's TTL (or the default TTL) as an absolute expiry stamped on the set. The TtlWheelFeeder picks it up
+     from the event, so the set itself no longer waits on a durable timer write per key.
+     */
+    private Optional<Instant> expiresAt(Optional<Duration> requestTTL) {
+        return requestTTL.or(() -> defaultTTL).map(ttl -> Instant.now().plus(ttl));
     }
 
     private CompletionStage<HttpResponse> createCacheEntity(String cacheName, String key, Cache cache) {
@@ -150,85 +284,110 @@ public class CacheAPICoreImpl {
         var setResult = componentClient.forEventSourcedEntity(cacheId)
                 .method(CacheEntity::set)
                 .invokeAsync(cache)
-                .thenApply(result -> HttpResponses.created());
+                .thenApply(result -> {
+                    nearCache.invalidate(cacheName, key);
+                    return HttpResponses.created();
+                });
 
-        return setResult.thenCompose(result -> scheduleTTLTimerIfNeeded(cacheName, key, cache.ttlSeconds())
-                .thenApply(__ -> result));
+        return setResult;
     }
 
-    private Cache createSmallCacheObject(CacheRequest cacheRequest) {
+    private Cache createSmallCacheObject(StoredRequest storedRequest) {
+        CacheRequest cacheRequest = storedRequest.cacheRequest();
         Optional<Duration> requestTTL = cacheRequest.ttlSeconds().map(Duration::ofSeconds);
         List<PayloadChunk> chunks = new ArrayList<>(List.of(new PayloadChunk(0, cacheRequest.value())));
-        return new Cache(cacheRequest.org(), cacheRequest.cacheName(), cacheRequest.key(), requestTTL, false, cacheRequest.value().length, false, chunks);
+        return new Cache(cacheRequest.org(), cacheRequest.cacheName(), cacheRequest.key(), requestTTL, false, cacheRequest.value().length, false, chunks)
+                .withContentEncoding(storedRequest.contentEncoding(), storedRequest.dictionaryId())
+                .withExpiresAt(expiresAt(requestTTL))
+                .withChecksum(Optional.of(ContentChecksum.of(cacheRequest.value())));
     }
 
-    private CompletionStage<HttpResponse> isCacheNameNeededFirst(String cacheName) {
-        if (cacheNameNeededFirst) {
-            CompletionStage<CacheName> cName = getCacheName(cacheName);
-            return cName.thenCompose(c -> {
-                if (c.cacheName().isEmpty()) {
-                    return CompletableFuture.completedFuture(HttpResponses.notFound());
-                }
-                else {
-                    return CompletableFuture.completedFuture(HttpResponses.accepted());
-                }
-            });
-        } else {
-            return CompletableFuture.completedFuture(HttpResponses.accepted());
+    /*
+     The request as it will be stored: compressed when the cacheName has compression on and it actually shrinks the value.
+     Done before the large/small decision, so a compressible value may not need chunking at all.
+     */
+    private record StoredRequest(CacheRequest cacheRequest, Optional<String> contentEncoding, Optional<Integer> dictionaryId) {
+        StoredRequest(CacheRequest cacheRequest, Optional<String> contentEncoding) {
+            this(cacheRequest, contentEncoding, Optional.empty());
         }
     }
 
-    // large object so we need to chunk it up to the entity
-    private CompletionStage<Done> streamLargeObjectAsChunks(CacheRequest cacheRequest) {
-        String cacheId = cacheRequest.cacheName().concat(cacheRequest.key());
-        int objectSize = cacheRequest.value().length;
-        long chunks = objectSize / maxPayloadSize;
-        long remainder = objectSize % maxPayloadSize;
-        if (remainder > 0) chunks++;
-        int chunkSize = (int) (objectSize / chunks + 1); // just assume a fraction and bump
-
-        if (log.isDebugEnabled()) {
-            log.debug("streamLargeObjectAsChunks object size {} chunks {}, chunksize {}", objectSize, chunks, chunkSize);
+    /*
+     Small values of a cacheName with a trained dictionary are deflated against it, everything else
+     falls back to plain gzip (when that's on for the cacheName). If the dictionary can't be fetched
+     the value is still stored, just without it.
+     */
+    private CompletionStage<StoredRequest> compressForStorage(CacheRequest cacheRequest) {
+        int size = cacheRequest.value().length;
+        if (!dictionaryCache.isEnabledFor(cacheRequest.cacheName()) || size == 0 || size > maxDictionaryValueBytes) {
+            return CompletableFuture.completedFuture(compressIfEnabled(cacheRequest));
         }
+        return currentDictionary(cacheRequest.cacheName())
+                .thenApply(dictionaryVersion -> {
+                    if (!dictionaryVersion.trained()) {
+                        return compressIfEnabled(cacheRequest);
+                    }
+                    return DictionaryCompression.compress(cacheRequest.value(), dictionaryVersion.dictionary())
+                            .map(compressed -> new StoredRequest(
+                                    new CacheRequest(cacheRequest.org(), cacheRequest.cacheName(), cacheRequest.key(), cacheRequest.ttlSeconds(), compressed),
+                                    Optional.of(DictionaryCompression.DEFLATE_DICTIONARY),
+                                    Optional.of(dictionaryVersion.version())))
+                            .orElseGet(() -> compressIfEnabled(cacheRequest));
+                })
+                .exceptionally(ex -> {
+                    log.warn("compressForStorage couldn't get the dictionary for {}: {}", cacheRequest.cacheName(), ex.getMessage());
+                    return compressIfEnabled(cacheRequest);
+                });
+    }
 
-        ByteString valueBytes = new ByteStringBuilder().putBytes(cacheRequest.value()).result();
-        return Source.single(valueBytes)
-                .via(new Chunker(chunkSize))
-                .statefulMap(
-                        () -> -1,
-                        (index, chunk) -> {
-                            Integer newIndex = index + 1;
-                            if (log.isDebugEnabled()) {
-                                log.debug("Sequence {}, Chunk size {}", newIndex, chunk.knownSize());
-                            }
-                            return Pair.create(newIndex, Pair.create(newIndex, chunk));
-                        },
-                        indexOnComplete -> Optional.empty()
-                )
-                .mapAsync(streamChunkParallelism, chunkPair -> {
-                    Optional<Duration> requestTTL = cacheRequest.ttlSeconds().map(Duration::ofSeconds);
-                    var imageblder = new ByteStringBuilder();
-                    imageblder.addAll(chunkPair.second());
-                    PayloadChunk payloadChunk = new PayloadChunk(chunkPair.first(), imageblder.result().toArray());
-                    if (chunkPair.first() == 0) {
-                        List<PayloadChunk> initChunks = new ArrayList<>(List.of(payloadChunk));
-                        Cache initCache = new Cache(cacheRequest.cacheName(), cacheRequest.key(), requestTTL, false, objectSize, false, initChunks);
-                        return componentClient.forEventSourcedEntity(cacheId)
-                                .method(CacheEntity::set)
-                                .invokeAsync(initCache)
-                                .thenApply(result -> HttpResponses.created());
-                    } else {
-                        return componentClient.forEventSourcedEntity(cacheId)
-                                .method(CacheEntity::setWithChunk)
-                                .invokeAsync(payloadChunk)
-                                .thenApply(result -> HttpResponses.created());
+    private StoredRequest compressIfEnabled(CacheRequest cacheRequest) {
+        if (!compression.worthCompressing(cacheRequest.cacheName(), cacheRequest.value().length)) {
+            return new StoredRequest(cacheRequest, Optional.empty());
+        }
+        return PayloadCompression.gzip(ByteString.fromArrayUnsafe(cacheRequest.value()))
+                .map(compressed -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("compressed {} {} from {} to {} bytes", cacheRequest.cacheName(), cacheRequest.key(), cacheRequest.value().length, compressed.size());
                     }
+                    return new StoredRequest(
+                            new CacheRequest(cacheRequest.org(), cacheRequest.cacheName(), cacheRequest.key(), cacheRequest.ttlSeconds(), compressed.toArrayUnsafe()),
+                            Optional.of(PayloadCompression.GZIP));
                 })
-                .runWith(Sink.ignore(), materializer);
+                .orElse(new StoredRequest(cacheRequest, Optional.empty()));
     }
 
-    private CompletionStage<Done> streamLargeObjectAsChunks(CacheRequest cacheRequest, int payloadSize, ByteString binaryPayload) {
-        String cacheId = cacheRequest.cacheName().concat(cacheRequest.key());
+    // against the node's copy of the org's usage, so it doesn't add an entity call to the write. See OrgQuotas.
+    private boolean admitted(Optional<String> org, long incomingBytes) {
+        return org.map(orgName -> orgQuotas.admits(orgName, incomingBytes)).orElse(true);
+    }
+
+    private static HttpResponse exceededCachedAllotment() {
+        return HttpResponse.create()
+                .withStatus(StatusCodes.FORBIDDEN)
+                .withEntity(EndpointConstants.EXCEEDED_CACHED_ALLOTMENT);
+    }
+
+    /*
+     Answered from the node-local CacheNameExistence, only a cacheName this node hasn't checked lately
+     costs a call to its entity.
+     */
+    private CompletionStage<HttpResponse> isCacheNameNeededFirst(String cacheName) {
+        if (!cacheNameNeededFirst) {
+            return CompletableFuture.completedFuture(HttpResponses.accepted());
+        }
+        return cacheNameExistence.exists(cacheName, () -> componentClient.forEventSourcedEntity(cacheName)
+                        .method(CacheNameEntity::exists)
+                        .invokeAsync())
+                .thenApply(exists -> exists ? HttpResponses.accepted() : HttpResponses.notFound());
+    }
+
+    // large object so we need to chunk it up to the entity
+    private CompletionStage<Boolean> streamLargeObjectAsChunks(CacheRequest cacheRequest, Optional<String> contentEncoding) {
+        // the request owns the array, so wrap it rather than copy it
+        return streamLargeObjectAsChunks(cacheRequest, contentEncoding, cacheRequest.value().length, ByteString.fromArrayUnsafe(cacheRequest.value()));
+    }
+
+    private CompletionStage<Boolean> streamLargeObjectAsChunks(CacheRequest cacheRequest, Optional<String> contentEncoding, int payloadSize, ByteString binaryPayload) {
         long chunks = payloadSize / maxPayloadSize;
         long remainder = payloadSize % maxPayloadSize;
         if (remainder > 0) chunks++;
@@ -238,162 +397,371 @@ public class CacheAPICoreImpl {
             log.debug("streamLargeObjectAsChunks object size {} chunks {}, chunksize {}", payloadSize, chunks, chunkSize);
         }
 
-        return Source.single(binaryPayload)
+        return streamLargeObjectAsChunks(cacheRequest, contentEncoding, chunkSize, Source.single(binaryPayload));
+    }
+
+    private record StagedUpload(int chunks, long totalBytes) {}
+
+    /*
+     The payload may still be arriving from the client. The Chunker only emits full chunks
+     (until upstream completes) and mapAsyncUnordered bounds the chunks in flight, so the upload is
+     backpressured by the entity writes and chunk 0 is persisted while later bytes arrive.
+
+     Every chunk is staged under a fresh generation id and addressed by its sequence, so they can be
+     written in any order. Nothing is visible to readers until the commit, which swaps the complete
+     generation in at once; a reader gets either the old value or the new one, never a mix.
+
+     Completes with false when another upload of the key committed first and dropped this generation's
+     staged chunks, the client gets a 409 rather than its value silently losing to the other one.
+     */
+    private CompletionStage<Boolean> streamLargeObjectAsChunks(CacheRequest cacheRequest, Optional<String> contentEncoding, int chunkSize, Source<ByteString, ?> payload) {
+        String cacheId = cacheRequest.cacheName().concat(cacheRequest.key());
+        String generation = UUID.randomUUID().toString();
+        Optional<Duration> requestTTL = cacheRequest.ttlSeconds().map(Duration::ofSeconds);
+        // updated in chunk order, ahead of the unordered writes
+        ContentChecksum checksum = new ContentChecksum();
+        AtomicLong received = new AtomicLong();
+        return payload
                 .via(new Chunker(chunkSize))
+                .map(chunk -> {
+                    checksum.update(chunk);
+                    // an upload without a length was admitted on the org's usage alone, so it's checked as it arrives
+                    if (!admitted(cacheRequest.org(), received.addAndGet(chunk.size()))) {
+                        throw HttpException.forbidden(EndpointConstants.EXCEEDED_CACHED_ALLOTMENT);
+                    }
+                    return chunk;
+                })
                 .statefulMap(
                         () -> -1,
                         (index, chunk) -> {
                             Integer newIndex = index + 1;
                             if (log.isDebugEnabled()) {
-                                log.debug("Sequence {}, Chunk size {}", newIndex, chunk.knownSize());
+                                log.debug("Generation {}, Sequence {}, Chunk size {}", generation, newIndex, chunk.knownSize());
                             }
                             return Pair.create(newIndex, Pair.create(newIndex, chunk));
                         },
                         indexOnComplete -> Optional.empty()
                 )
-                .mapAsync(streamChunkParallelism, chunkPair -> {
-                    Optional<Duration> requestTTL = cacheRequest.ttlSeconds().map(Duration::ofSeconds);
-                    var imageblder = new ByteStringBuilder();
-                    imageblder.addAll(chunkPair.second());
-                    PayloadChunk payloadChunk = new PayloadChunk(chunkPair.first(), imageblder.result().toArray());
-                    if (chunkPair.first() == 0) {
-                        List<PayloadChunk> initChunks = new ArrayList<>(List.of(payloadChunk));
-                        Cache initCache = new Cache(cacheRequest.cacheName(), cacheRequest.key(), requestTTL, false, payloadSize, false, initChunks);
-                        return componentClient.forEventSourcedEntity(cacheId)
-                                .method(CacheEntity::set)
-                                .invokeAsync(initCache)
-                                .thenApply(result -> HttpResponses.created());
-                    } else {
-                        return componentClient.forEventSourcedEntity(cacheId)
-                                .method(CacheEntity::setWithChunk)
-                                .invokeAsync(payloadChunk)
-                                .thenApply(result -> HttpResponses.created());
+                .mapAsyncUnordered(streamChunkParallelism, chunkPair ->
+                        storeChunk(cacheId, generation, chunkPair.first(), chunkPair.second())
+                                .thenCompose(manifestChunk -> componentClient.forEventSourcedEntity(cacheId)
+                                        .method(CacheEntity::stageChunk)
+                                        .invokeAsync(new StagedChunk(generation, manifestChunk)))
+                                .thenApply(result -> chunkPair.second().size()))
+                .runFold(new StagedUpload(0, 0L), (upload, chunkBytes) -> new StagedUpload(upload.chunks() + 1, upload.totalBytes() + chunkBytes), materializer)
+                .thenCompose(upload -> {
+                    CacheCommit commit = new CacheCommit(cacheRequest.org(), cacheRequest.cacheName(), cacheRequest.key(), requestTTL, upload.totalBytes(), generation, upload.chunks(), contentEncoding, expiresAt(requestTTL), Optional.of(checksum.value()));
+                    return componentClient.forEventSourcedEntity(cacheId)
+                            .method(CacheEntity::commit)
+                            .invokeAsync(commit);
+                })
+                .thenApply(committed -> {
+                    if (!committed) {
+                        log.warn("streamLargeObjectAsChunks generation {} of {} lost to a concurrent upload", generation, cacheId);
+                        abortStaged(cacheId, generation);
                     }
+                    return committed;
                 })
-                .runWith(Sink.ignore(), materializer);
+                .exceptionallyCompose(ex -> {
+                    log.error("streamLargeObjectAsChunks failed for {} generation {}: {}", cacheId, generation, ex.getMessage());
+                    abortStaged(cacheId, generation);
+                    return CompletableFuture.failedFuture(ex);
+                });
     }
 
+    // best effort, the next commit on the key drops anything left staged anyway
+    private void abortStaged(String cacheId, String generation) {
+        componentClient.forEventSourcedEntity(cacheId)
+                .method(CacheEntity::abortStaged)
+                .invokeAsync(generation);
+    }
+
+    /*
+     Chunks of large values are content addressed. When the bytes are already in the chunk store (for any
+     key or cacheName) only a reference is persisted, otherwise they are stored once under their hash.
+     Either way the CacheEntity only stages the manifest entry.
+     */
+    private CompletionStage<PayloadChunk> storeChunk(String cacheId, String generation, Integer sequence, ByteString chunk) {
+        return storeChunk(cacheId, generation, sequence, chunk, PayloadChunk.contentHash(chunk));
+    }
+
+    private CompletionStage<PayloadChunk> storeChunk(String cacheId, String generation, Integer sequence, ByteString chunk, String contentHash) {
+        String referrer = ChunkRelease.referrer(cacheId, generation, sequence);
+        int shard = ChunkReferrers.shardOf(referrer);
+        // the referrer goes into its shard first, the ChunkStoreEntity only learns which shards hold any
+        return componentClient.forKeyValueEntity(ChunkReferrers.shardId(contentHash, shard))
+                .method(ChunkReferrersEntity::add)
+                .invokeAsync(referrer)
+                .thenCompose(epoch -> {
+                    ChunkShard chunkShard = new ChunkShard(shard, epoch);
+                    return componentClient.forEventSourcedEntity(contentHash)
+                            .method(ChunkStoreEntity::reference)
+                            .invokeAsync(chunkShard)
+                            .thenCompose(referenced -> {
+                                if (referenced) {
+                                    if (log.isDebugEnabled()) {
+                                        log.debug("storeChunk {} sequence {} already stored as {}", cacheId, sequence, contentHash);
+                                    }
+                                    return CompletableFuture.completedFuture(Done.done());
+                                }
+                                return componentClient.forEventSourcedEntity(contentHash)
+                                        .method(ChunkStoreEntity::store)
+                                        .invokeAsync(new StoreChunk(chunkShard, chunk.toArrayUnsafe()));
+                            });
+                })
+                .thenApply(stored -> PayloadChunk.stored(sequence, contentHash));
+    }
+
+    // manifest entries are swapped for their bytes, chunks written before the chunk store are returned as is
+    private CompletionStage<PayloadChunk> resolveChunk(PayloadChunk chunk) {
+        if (!chunk.inChunkStore()) {
+            return CompletableFuture.completedFuture(chunk);
+        }
+        return componentClient.forEventSourcedEntity(chunk.contentHash().get())
+                .method(ChunkStoreEntity::get)
+                .invokeAsync()
+                .thenApply(chunk::withPayload);
+    }
 
     /* this is the JSON version of set */
-    public CompletionStage<HttpResponse> cache(CacheRequest cacheRequest) {
-        return isCacheNameNeededFirst(cacheRequest.cacheName())
+    public CompletionStage<HttpResponse> cache(CacheRequest requestedCacheRequest) {
+        if (!admitted(requestedCacheRequest.org(), requestedCacheRequest.value().length)) {
+            return CompletableFuture.completedFuture(exceededCachedAllotment());
+        }
+        return isCacheNameNeededFirst(requestedCacheRequest.cacheName())
                 .thenCompose(httpResponse -> {
                     if (httpResponse.status().isSuccess()) {
-                        // based upon: "Entity command too large, request payload and metadata must not be more than 524201 bytes but was 1930695"
-                        boolean largeObject = cacheRequest.value().length > maxPayloadSize;
-                        if (log.isDebugEnabled() && largeObject) {
-                            log.debug("max payload size is {}. large cache object detected. Size is {} bytes", maxPayloadSize, cacheRequest.value().length);
-                        }
-                        if (largeObject) {
-                            CompletionStage<Done> streamResult = streamLargeObjectAsChunks(cacheRequest);
-                            return streamResult
-                                    .thenCompose(result -> {
-                                        Optional<Duration> ttlSecs = cacheRequest.ttlSeconds().isPresent() ? Optional.of(Duration.ofSeconds(cacheRequest.ttlSeconds().get())) : Optional.empty();
-                                        return scheduleTTLTimerIfNeeded(cacheRequest.cacheName(), cacheRequest.key(), ttlSecs)
-                                                .thenApply(rs -> HttpResponses.created());
-                                    });
-                        } else {
-                            return createCacheEntity(cacheRequest.cacheName(), cacheRequest.key(), createSmallCacheObject(cacheRequest));
-                        }
+                        return compressForStorage(requestedCacheRequest).thenCompose(this::cacheStored);
                     }
                     return CompletableFuture.completedFuture(httpResponse);
                 });
     }
 
+    // the JSON and binary sets meet here once the value is in its stored (maybe compressed) form
+    private CompletionStage<HttpResponse> cacheStored(StoredRequest storedRequest) {
+        CacheRequest cacheRequest = storedRequest.cacheRequest();
+        // based upon: "Entity command too large, request payload and metadata must not be more than 524201 bytes but was 1930695"
+        boolean largeObject = cacheRequest.value().length > maxPayloadSize;
+        if (log.isDebugEnabled() && largeObject) {
+            log.debug("max payload size is {}. large cache object detected. Size is {} bytes", maxPayloadSize, cacheRequest.value().length);
+        }
+        if (largeObject) {
+            CompletionStage<Boolean> streamResult = streamLargeObjectAsChunks(cacheRequest, storedRequest.contentEncoding());
+            return completeLargeObjectSet(cacheRequest, cacheRequest.ttlSeconds(), streamResult);
+        } else {
+            return createCacheEntity(cacheRequest.cacheName(), cacheRequest.key(), createSmallCacheObject(storedRequest));
+        }
+    }
+
     /*
      This is an alternate binary REST call that is now a default.
 
      This solves the problem of having to convert into
      and out of ByteString for chunking.
     */
-    public CompletionStage<HttpResponse> cacheSet(Optional<String> org, String cacheName, String key, Integer ttlSeconds, HttpEntity.Strict strictRequestBody) {
+    public CompletionStage<HttpResponse> cacheSet(Optional<String> org, String cacheName, String key, Integer ttlSeconds, HttpEntity requestBody) {
+        // a streamed upload without a length is checked against what the org already has cached here, and again as its chunks arrive
+        if (!admitted(org, requestBody.getContentLengthOption().orElse(0L))) {
+            return CompletableFuture.completedFuture(exceededCachedAllotment());
+        }
         return isCacheNameNeededFirst(cacheName)
                 .thenCompose(httpResponse -> {
                     if (httpResponse.status().isSuccess()) {
-                        if (!strictRequestBody.getContentType().equals(BINARY_PAYLOAD))
+                        if (!requestBody.getContentType().equals(BINARY_PAYLOAD))
                             throw HttpException.badRequest("This service only accepts " + BINARY_PAYLOAD);
                         else {
-                            // based upon: "Entity command too large, request payload and metadata must not be more than 524201 bytes but was 1930695"
-                            int payloadSize = strictRequestBody.getData().size();
-                            boolean largeObject = payloadSize > maxPayloadSize;
-                            if (log.isDebugEnabled() && largeObject) {
-                                log.debug("max payload size is {}. large cache object detected. Size is {} bytes", maxPayloadSize, payloadSize);
-                            }
                             Optional<Integer> ttlSecs = ttlSeconds > 0 ? Optional.of(ttlSeconds) : Optional.empty();
-                            if (largeObject) {
+                            OptionalLong contentLength = requestBody.getContentLengthOption();
+                            // based upon: "Entity command too large, request payload and metadata must not be more than 524201 bytes but was 1930695"
+                            // unknown length streams too, totalBytes is counted as the chunks are staged
+                            boolean largeStreamedObject = !(requestBody instanceof HttpEntity.Strict)
+                                    && (contentLength.isEmpty() || contentLength.getAsLong() > maxPayloadSize);
+                            if (largeStreamedObject) {
+                                if (log.isDebugEnabled()) {
+                                    log.debug("max payload size is {}. streamed cache object detected. Size is {} bytes", maxPayloadSize, contentLength);
+                                }
                                 CacheRequest cacheRequest = new CacheRequest(org, cacheName, key, ttlSecs);
-                                CompletionStage<Done> streamResult = streamLargeObjectAsChunks(cacheRequest, payloadSize, strictRequestBody.getData());
-                                return streamResult
-                                        .thenCompose(result -> {
-                                            Optional<Duration> ttl = ttlSecs.map(Duration::ofSeconds);
-                                            return scheduleTTLTimerIfNeeded(cacheRequest.cacheName(), cacheRequest.key(), ttl)
-                                                    .thenApply(rs -> HttpResponses.created());
-                                        });
-                            } else {
-                                CacheRequest cacheRequest = new CacheRequest(org, cacheName, key, ttlSecs, strictRequestBody.getData().toArray());
-                                return createCacheEntity(cacheRequest.cacheName(), cacheRequest.key(), createSmallCacheObject(cacheRequest));
+                                // the size isn't known up front, so a streamed value is always compressed when the cacheName asks for it
+                                CompletionStage<Boolean> streamResult = compression.isEnabledFor(cacheName)
+                                        ? streamLargeObjectAsChunks(cacheRequest, Optional.of(PayloadCompression.GZIP), (int) maxPayloadSize, requestBody.getDataBytes().via(PayloadCompression.gzipFlow()))
+                                        : streamLargeObjectAsChunks(cacheRequest, Optional.empty(), (int) maxPayloadSize, requestBody.getDataBytes());
+                                return completeLargeObjectSet(cacheRequest, ttlSecs, streamResult);
                             }
+                            // small or already strict, so we already have the bytes in hand
+                            return requestBody.toStrict(strictEntityTimeout.toMillis(), materializer)
+                                    .thenCompose(strictRequestBody -> cacheSetStrict(org, cacheName, key, ttlSecs, strictRequestBody));
                         }
                     }
                     return CompletableFuture.completedFuture(httpResponse);
                 });
     }
-    
-    public CompletionStage<HttpResponse> cacheSet(Optional<String> org, String cacheName, String key, HttpEntity.Strict strictRequestBody) {
-        return cacheSet(org, cacheName, key, 0, strictRequestBody);
+
+    public CompletionStage<HttpResponse> cacheSet(Optional<String> org, String cacheName, String key, HttpEntity requestBody) {
+        return cacheSet(org, cacheName, key, 0, requestBody);
+    }
+
+    private CompletionStage<HttpResponse> cacheSetStrict(Optional<String> org, String cacheName, String key, Optional<Integer> ttlSecs, HttpEntity.Strict strictRequestBody) {
+        return compressForStorage(new CacheRequest(org, cacheName, key, ttlSecs, strictRequestBody.getData().toArrayUnsafe()))
+                .thenCompose(this::cacheStored);
+    }
+
+    private CompletionStage<HttpResponse> completeLargeObjectSet(CacheRequest cacheRequest, Optional<Integer> ttlSecs, CompletionStage<Boolean> streamResult) {
+        return streamResult
+                .thenApply(committed -> {
+                    if (!committed) {
+                        return HttpResponse.create()
+                                .withStatus(StatusCodes.CONFLICT)
+                                .withEntity("another write of the key committed while this value was uploading");
+                    }
+                    nearCache.invalidate(cacheRequest.cacheName(), cacheRequest.key());
+                    return HttpResponses.created();
+                });
+    }
+
+    /*
+     Streams the chunks of a value in order. The first chunk comes back with the get, the rest are
+     fetched with at most streamGetPrefetch requests in flight, so memory per request is bounded by
+     the window rather than by the size of the object.
+     */
+    private Source<ByteString, NotUsed> chunkSource(String compoundKey, CacheInternalGetResponse internalGetResponse) {
+        Source<ByteString, NotUsed> stored = Source.single(internalGetResponse.firstChunk())
+                .concat(fetchChunks(compoundKey, 1, internalGetResponse.chunks() - 1))
+                .map(PayloadChunk::asByteString);
+        // values written before checksums were stored can't be verified
+        return internalGetResponse.checksum()
+                .map(checksum -> stored.via(new ChecksumVerifier(checksum)))
+                .orElse(stored);
+    }
+
+    private Source<PayloadChunk, NotUsed> fetchChunks(String compoundKey, int fromSequence, int toSequence) {
+        return Source.range(fromSequence, toSequence)
+                .mapAsync(streamGetPrefetch, index -> componentClient.forEventSourcedEntity(compoundKey)
+                        .method(CacheEntity::getChunk)
+                        .invokeAsync(index)
+                        .thenCompose(this::resolveChunk)
+                        .whenComplete((chunk, ex) -> {
+                            if (ex != null) { // TODO: maybe do a retry w/ backoff, or do it with the client
+                                log.error("an exception occurred while retrieving chunk {} for {}: {}", index, compoundKey, ex.getMessage());
+                            }
+                        }));
+    }
+
+    /*
+     Only the chunks that overlap the range are read, each sliced to its part of the range. The whole value
+     checksum can't be verified from part of it, so ranged reads go out unverified.
+     */
+    private Source<ByteString, NotUsed> rangeSource(String compoundKey, CacheInternalGetResponse internalGetResponse, ByteRange range) {
+        long chunkSize = internalGetResponse.firstChunk().payload().length;
+        return coveringChunks(compoundKey, internalGetResponse, range)
+                .map(chunk -> {
+                    ByteString bytes = chunk.asByteString();
+                    long chunkStart = chunk.sequence() * chunkSize;
+                    int from = (int) Math.max(0, range.first() - chunkStart);
+                    int until = (int) Math.min(bytes.size(), range.last() - chunkStart + 1);
+                    return bytes.slice(from, until);
+                });
     }
 
-    private byte[] combineChunks(long totalBytes, List<PayloadChunk> chunks) {
-        byte[] allByteArray = new byte[Long.valueOf(totalBytes).intValue()];
-        ByteBuffer buff = ByteBuffer.wrap(allByteArray);
-        for (PayloadChunk future : chunks) {
-            buff.put(future.payload());
+    // every chunk but the last is as long as the first one, so the chunks a range overlaps follow from its offsets
+    private Source<PayloadChunk, NotUsed> coveringChunks(String compoundKey, CacheInternalGetResponse internalGetResponse, ByteRange range) {
+        long chunkSize = internalGetResponse.firstChunk().payload().length;
+        int firstSequence = range.firstChunk(chunkSize);
+        int lastSequence = range.lastChunk(chunkSize);
+        return firstSequence == 0
+                ? Source.single(internalGetResponse.firstChunk()).concat(fetchChunks(compoundKey, 1, lastSequence))
+                : fetchChunks(compoundKey, firstSequence, lastSequence);
+    }
+
+    private static HttpResponse partialContent(ByteRange range, long totalBytes, Source<ByteString, NotUsed> body) {
+        return HttpResponse.create()
+                .withStatus(StatusCodes.PARTIAL_CONTENT)
+                .addHeader(RawHeader.create("Content-Range", range.contentRange(totalBytes)))
+                .withEntity(HttpEntities.create(BINARY_PAYLOAD, range.length(), body));
+    }
+
+    private static HttpResponse rangeNotSatisfiable(long totalBytes) {
+        return HttpResponse.create()
+                .withStatus(StatusCodes.RANGE_NOT_SATISFIABLE)
+                .addHeader(RawHeader.create("Content-Range", ByteRange.unsatisfiedContentRange(totalBytes)));
+    }
+
+    // a single chunk value is already in memory (and decoded), so the range is a slice of it
+    private static HttpResponse ranged(ByteRange range, byte[] value, Optional<Long> checksum) {
+        if (!range.satisfiable(value.length)) {
+            return rangeNotSatisfiable(value.length);
         }
-        return buff.array();
+        return withETag(partialContent(range, value.length, Source.single(ByteString.fromArrayUnsafe(value, (int) range.first(), (int) range.length()))), checksum);
     }
 
     private CompletionStage<CacheInternalGetResponse> getCache(String compoundKey) {
         return componentClient.forEventSourcedEntity(compoundKey)
                 .method(CacheEntity::get)
-                .invokeAsync();
+                .invokeAsync()
+                .thenCompose(this::withResolvedFirstChunk);
+    }
+
+    // a single chunk value is verified here, before it can be served or put in the near-cache
+    private CompletionStage<CacheInternalGetResponse> withResolvedFirstChunk(CacheInternalGetResponse internalGetResponse) {
+        return resolveChunk(internalGetResponse.firstChunk())
+                .thenApply(resolvedChunk -> {
+                    if (internalGetResponse.chunks() == 1 && internalGetResponse.checksum().isPresent()
+                            && ContentChecksum.of(resolvedChunk.payload()) != internalGetResponse.checksum().get()) {
+                        log.error("checksum mismatch for cacheName {} key {}", internalGetResponse.cacheName(), internalGetResponse.key());
+                        throw new ContentChecksum.MismatchException("checksum mismatch for " + internalGetResponse.cacheName() + " " + internalGetResponse.key());
+                    }
+                    return internalGetResponse.withFirstChunk(resolvedChunk);
+                });
     }
 
     // this is a JSON verison of GET
     public CompletionStage<CacheGetResponse> getCache(String cacheName, String key) {
+        return findCache(cacheName, key)
+                .exceptionally(ex -> { // TODO: maybe do a retry w/ backoff, or do it with the client
+                    log.error("getCache failed for cacheName {} key {}", cacheName, key, ex);
+                    return new CacheGetResponse(cacheName, key, false, new byte[0]);
+                });
+    }
+
+    // a miss answers with success false, any other failure fails the stage, so a batch can tell the two apart
+    private CompletionStage<CacheGetResponse> findCache(String cacheName, String key) {
         if (log.isDebugEnabled()) {
             log.debug("JSON getCache cachename: {} key: {}", cacheName, key);
         }
+        slideIfEnabled(cacheName, key);
+        accessSamples.record(cacheName, key);
+        NearCache.Lookup lookup = nearCache.lookup(cacheName, key);
+        if (lookup.hit()) {
+            return CompletableFuture.completedFuture(new CacheGetResponse(cacheName, key, true, lookup.value().get()));
+        }
         String compoundKey = cacheName.concat(key);
-        return getCache(compoundKey)
-                .thenCompose(internalGetResponse -> {
-                    if (log.isDebugEnabled()) {
-                        log.debug("JSON getCache cachename: {} key: {} chunks: {}", cacheName, key, internalGetResponse.chunks());
-                    }
-                    if (internalGetResponse.chunks() == 1) {
-                        return CompletableFuture.completedFuture(new CacheGetResponse(internalGetResponse.cacheName(), internalGetResponse.key(), true, internalGetResponse.firstChunk().payload()));
-                    }
-                    else {
-                        List<CompletableFuture<PayloadChunk>> getChunkFutures = new ArrayList<>();
-                        // capture the initial chuck returned by the get
-                        getChunkFutures.add(CompletableFuture.completedFuture(internalGetResponse.firstChunk()));
-                        for (int i = 1; i < internalGetResponse.chunks(); i++) {
-                            getChunkFutures.add(componentClient.forEventSourcedEntity(compoundKey)
-                                    .method(CacheEntity::getChunk)
-                                    .invokeAsync(i).toCompletableFuture()
-                            );
-                        }
-                        return FutureHelper.allOf(getChunkFutures)
-                                .thenApply(futures -> new CacheGetResponse(cacheName, key, true, combineChunks(internalGetResponse.totalBytes(), futures)))
-                                .exceptionally(ex -> { // TODO: maybe do a retry w/ backoff, or do it with the client
-                                    String msg = String.format("an exception occurred while retrieving chunks for cache %s key %s:", cacheName, key);
-                                    log.error(msg, ex.getMessage());
-                                    return new CacheGetResponse(cacheName, key, false, new byte[0]);
-                                });
+        return componentClient.forEventSourcedEntity(compoundKey)
+                .method(CacheEntity::find)
+                .invokeAsync()
+                .thenCompose(found -> {
+                    if (found.found().isEmpty()) {
+                        nearCache.release(lookup);
+                        return CompletableFuture.completedFuture(new CacheGetResponse(cacheName, key, false, new byte[0]));
                     }
+                    return withResolvedFirstChunk(found.found().get())
+                            .thenCompose(internalGetResponse -> {
+                                if (log.isDebugEnabled()) {
+                                    log.debug("JSON getCache cachename: {} key: {} chunks: {}", cacheName, key, internalGetResponse.chunks());
+                                }
+                                if (internalGetResponse.chunks() == 1) {
+                                    return decodeAndFill(cacheName, lookup, internalGetResponse)
+                                            .thenApply(value -> new CacheGetResponse(internalGetResponse.cacheName(), internalGetResponse.key(), true, value));
+                                }
+                                nearCache.release(lookup);
+                                // JSON needs the whole value anyway, but the chunk fetches still go through the bounded window
+                                return decoded(internalGetResponse, chunkSource(compoundKey, internalGetResponse))
+                                        .runFold(ByteString.emptyByteString(), ByteString::concat, materializer)
+                                        .thenApply(value -> new CacheGetResponse(cacheName, key, true, value.toArray()));
+                            });
                 })
-                .exceptionally(ex -> {
-                    log.error("getCache failed with exception", ex);
-                    return new CacheGetResponse(cacheName, key, false, new byte[0]);
+                .whenComplete((response, ex) -> {
+                    if (ex != null) {
+                        nearCache.release(lookup);
+                    }
                 });
     }
 
@@ -402,163 +770,612 @@ public class CacheAPICoreImpl {
   
      This solves the problem of having to convert into
      and out of ByteString for chunking.
+
+     A gzipped value goes out as stored, with Content-Encoding, to a client that accepts gzip.
+     Everyone else gets it decompressed on the way out.
     */
-  public CompletionStage<HttpResponse> getCacheGet(String cacheName, String key) {
-    String compoundKey = cacheName.concat(key);
-    return getCache(compoundKey)
-            .thenCompose(internalGetResponse -> {
-              if (internalGetResponse.chunks() == 1) {
-                return CompletableFuture.completedFuture(HttpResponse.create().withEntity(internalGetResponse.firstChunk().payload()));
-              }
-              else {
-                List<CompletableFuture<PayloadChunk>> getChunkFutures = new ArrayList<>();
-                // capture the initial chuck returned by the get
-                getChunkFutures.add(CompletableFuture.completedFuture(internalGetResponse.firstChunk()));
-                for (int i = 1; i < internalGetResponse.chunks(); i++) {
-                  getChunkFutures.add(componentClient.forEventSourcedEntity(compoundKey)
-                          .method(CacheEntity::getChunk)
-                          .invokeAsync(i).toCompletableFuture()
-                  );
-                }
-                return FutureHelper.allOf(getChunkFutures)
-                        .thenApply(futures -> HttpResponse.create().withEntity(combineChunks(internalGetResponse.totalBytes(), futures)))
-                        .exceptionally(ex -> { // TODO: maybe do a retry w/ backoff, or do it with the client
-                          String msg = String.format("an exception occurred while retrieving chunks for cache %s key %s:", cacheName, key);
-                          log.error(msg, ex.getMessage());
-                          return HttpResponses.internalServerError(msg);
-                        });
-              }
-            })
-            .exceptionally(ex -> HttpResponses.notFound());
-  }
+    public CompletionStage<HttpResponse> getCacheGet(String cacheName, String key, Optional<String> acceptEncoding, Optional<String> ifNoneMatch, Optional<String> rangeHeader) {
+        slideIfEnabled(cacheName, key);
+        accessSamples.record(cacheName, key);
+        NearCache.Lookup lookup = nearCache.lookup(cacheName, key);
+        if (lookup.hit()) {
+            if (lookup.checksum().filter(checksum -> ContentChecksum.matches(ifNoneMatch, checksum)).isPresent()) {
+                return CompletableFuture.completedFuture(notModified(lookup.checksum().get()));
+            }
+            byte[] value = lookup.value().get();
+            Optional<ByteRange> range = ByteRange.parse(rangeHeader, value.length);
+            if (range.isPresent()) {
+                return CompletableFuture.completedFuture(varied(cacheName, ranged(range.get(), value, lookup.checksum())));
+            }
+            return CompletableFuture.completedFuture(varied(cacheName, withETag(HttpResponse.create().withEntity(BINARY_PAYLOAD, ByteString.fromArrayUnsafe(value)), lookup.checksum())));
+        }
+        String compoundKey = cacheName.concat(key);
+        // an unchanged value is answered from the entity's metadata, before any chunk is fetched
+        return componentClient.forEventSourcedEntity(compoundKey)
+                .method(CacheEntity::get)
+                .invokeAsync()
+                .thenCompose(metadata -> {
+                    if (metadata.checksum().filter(checksum -> ContentChecksum.matches(ifNoneMatch, checksum)).isPresent()) {
+                        nearCache.release(lookup);
+                        boolean gzipETag = gzipped(metadata) && PayloadCompression.acceptsGzip(acceptEncoding) && rangeHeader.isEmpty();
+                        return CompletableFuture.completedFuture(notModified(metadata.checksum().get(), gzipETag));
+                    }
+                    return withResolvedFirstChunk(metadata)
+                            .thenCompose(internalGetResponse -> {
+                                // ranges are over the identity bytes, so a ranged read of a compressed value is never passed through
+                                boolean passThrough = gzipped(internalGetResponse) && PayloadCompression.acceptsGzip(acceptEncoding) && rangeHeader.isEmpty();
+                                if (internalGetResponse.chunks() == 1) {
+                                    if (passThrough) {
+                                        nearCache.release(lookup);
+                                        return CompletableFuture.completedFuture(withEncodingHeaders(HttpResponse.create().withEntity(BINARY_PAYLOAD, internalGetResponse.firstChunk().asByteString()), internalGetResponse, true));
+                                    }
+                                    return decodeAndFill(cacheName, lookup, internalGetResponse)
+                                            .thenApply(value -> ByteRange.parse(rangeHeader, value.length)
+                                                    .map(range -> ranged(range, value, internalGetResponse.checksum()))
+                                                    .orElseGet(() -> withEncodingHeaders(HttpResponse.create().withEntity(BINARY_PAYLOAD, ByteString.fromArrayUnsafe(value)), internalGetResponse, false)));
+                                }
+                                else {
+                                    nearCache.release(lookup);
+                                    // a compressed chunked value has no byte offsets to map a range to, it's served whole
+                                    Optional<ByteRange> range = internalGetResponse.contentEncoding().isEmpty()
+                                            ? ByteRange.parse(rangeHeader, internalGetResponse.totalBytes())
+                                            : Optional.empty();
+                                    if (range.isPresent()) {
+                                        if (!range.get().satisfiable(internalGetResponse.totalBytes())) {
+                                            return CompletableFuture.completedFuture(rangeNotSatisfiable(internalGetResponse.totalBytes()));
+                                        }
+                                        return CompletableFuture.completedFuture(withETag(partialContent(range.get(), internalGetResponse.totalBytes(), rangeSource(compoundKey, internalGetResponse, range.get())), internalGetResponse.checksum()));
+                                    }
+                                    // the status line is already on the wire by the time a later chunk could fail, so a failure aborts the response
+                                    Source<ByteString, NotUsed> stored = chunkSource(compoundKey, internalGetResponse);
+                                    Source<ByteString, NotUsed> body = passThrough ? stored : decoded(internalGetResponse, stored);
+                                    return CompletableFuture.completedFuture(withEncodingHeaders(HttpResponse.create().withEntity(HttpEntities.createChunked(BINARY_PAYLOAD, body)), internalGetResponse, passThrough));
+                                }
+                            });
+                })
+                .exceptionally(ex -> {
+                    nearCache.release(lookup);
+                    // the value is there but its bytes are wrong, that's a server fault and not a miss
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof ContentChecksum.MismatchException) {
+                        return HttpResponses.internalServerError(cause.getMessage());
+                    }
+                    return HttpResponses.notFound();
+                });
+    }
+
+    public CompletionStage<HttpResponse> getCacheGet(String cacheName, String key, Optional<String> acceptEncoding, Optional<String> ifNoneMatch) {
+        return getCacheGet(cacheName, key, acceptEncoding, ifNoneMatch, Optional.empty());
+    }
+
+    public CompletionStage<HttpResponse> getCacheGet(String cacheName, String key, Optional<String> acceptEncoding) {
+        return getCacheGet(cacheName, key, acceptEncoding, Optional.empty());
+    }
+
+    public CompletionStage<HttpResponse> getCacheGet(String cacheName, String key) {
+        return getCacheGet(cacheName, key, Optional.empty());
+    }
+
+    private static boolean gzipped(CacheInternalGetResponse internalGetResponse) {
+        return internalGetResponse.contentEncoding().filter(PayloadCompression.GZIP::equals).isPresent();
+    }
+
+    /*
+     The value of a single chunk object, decompressed. The near-cache holds gzipped values decompressed,
+     but dictionary compressed ones as stored, since those are the small hot values it's meant to hold more of.
+     */
+    private CompletionStage<byte[]> decodeAndFill(String cacheName, NearCache.Lookup lookup, CacheInternalGetResponse internalGetResponse) {
+        byte[] stored = internalGetResponse.firstChunk().payload();
+        Optional<String> contentEncoding = internalGetResponse.contentEncoding();
+        if (contentEncoding.filter(DictionaryCompression.DEFLATE_DICTIONARY::equals).isPresent() && internalGetResponse.dictionaryId().isPresent()) {
+            return dictionaryVersion(cacheName, internalGetResponse.dictionaryId().get())
+                    .thenApply(dictionaryVersion -> {
+                        nearCache.fill(lookup, stored, dictionaryVersion.dictionary(), internalGetResponse.expiresAt(), internalGetResponse.checksum());
+                        return DictionaryCompression.decompress(stored, dictionaryVersion.dictionary());
+                    });
+        }
+        byte[] value = gzipped(internalGetResponse) ? PayloadCompression.gunzip(ByteString.fromArrayUnsafe(stored)).toArrayUnsafe() : stored;
+        nearCache.fill(lookup, value, internalGetResponse.expiresAt(), internalGetResponse.checksum());
+        return CompletableFuture.completedFuture(value);
+    }
+
+    // only gzip is used for chunked values, dictionaries are for small ones
+    private static Source<ByteString, NotUsed> decoded(CacheInternalGetResponse internalGetResponse, Source<ByteString, NotUsed> stored) {
+        return gzipped(internalGetResponse) ? stored.via(PayloadCompression.gunzipFlow()) : stored;
+    }
+
+    private static HttpResponse notModified(long checksum) {
+        return notModified(checksum, false);
+    }
+
+    // the ETag of the representation a 200 would have sent
+    private static HttpResponse notModified(long checksum, boolean gzip) {
+        return HttpResponse.create()
+                .withStatus(StatusCodes.NOT_MODIFIED)
+                .addHeader(RawHeader.create("ETag", ContentChecksum.etag(checksum, gzip)));
+    }
+
+    private static HttpResponse withETag(HttpResponse response, Optional<Long> checksum) {
+        return withETag(response, checksum, false);
+    }
+
+    private static HttpResponse withETag(HttpResponse response, Optional<Long> checksum, boolean gzip) {
+        return checksum.map(value -> response.addHeader(RawHeader.create("ETag", ContentChecksum.etag(value, gzip)))).orElse(response);
+    }
+
+    /*
+     The near-cache holds values decoded, so a hit doesn't know whether the value is stored gzipped. In a
+     compressed cacheName it may be, and the same read through the entity would have depended on Accept-Encoding.
+     */
+    private HttpResponse varied(String cacheName, HttpResponse response) {
+        return compression.isEnabledFor(cacheName) ? response.addHeader(RawHeader.create("Vary", "Accept-Encoding")) : response;
+    }
+
+    // responses for a gzipped value depend on Accept-Encoding, so intermediaries have to know that, and the gzipped bytes get their own ETag
+    private static HttpResponse withEncodingHeaders(HttpResponse response, CacheInternalGetResponse internalGetResponse, boolean passThrough) {
+        response = withETag(response, internalGetResponse.checksum(), passThrough);
+        if (!gzipped(internalGetResponse)) {
+            return response;
+        }
+        HttpResponse varied = response.addHeader(RawHeader.create("Vary", "Accept-Encoding"));
+        return passThrough ? varied.addHeader(ContentEncoding.create(HttpEncodings.GZIP)) : varied;
+    }
     
-    public CompletionStage<CacheGetKeysResponse> getCacheKeys(String cacheName) {
-        return componentClient.forView()
-                .method(CacheView::getCacheKeys)
-                .invokeAsync(cacheName)
-                .thenApply(results -> {
+    // a page of keys in key order, the nextCursor of one page is the cursor of the next
+    public CompletionStage<CacheGetKeysResponse> getCacheKeys(String cacheName, Optional<String> cursor, Optional<String> prefix, Optional<Integer> limit) {
+        KeyPageQuery query;
+        try {
+            query = KeyPageQuery.of(cacheName, cursor, prefix, keyPageSize(limit));
+        } catch (IllegalArgumentException ex) {
+            throw HttpException.badRequest("Invalid cursor for ".concat(cacheName));
+        }
+        return fetchKeyPage(query)
+                .thenApply(fetched -> {
                     if (log.isDebugEnabled()) {
-                        log.debug("JSON getCacheKeys cachename: {}, keys: {}, size: {}", cacheName, results, results.keys().size());
+                        log.debug("JSON getCacheKeys cachename: {}, prefix: {}, page size: {}", cacheName, prefix, query.page(fetched).size());
                     }
-                    return new CacheGetKeysResponse(cacheName, results.keys());
+                    return new CacheGetKeysResponse(cacheName, query.page(fetched), query.nextCursor(fetched));
                 });
     }
+
+    // every matching key as an NDJSON line, read from the view a page at a time
+    public HttpResponse streamCacheKeys(String cacheName, Optional<String> prefix) {
+        Source<String, NotUsed> keys = Source.<Optional<KeyPageQuery>, List<String>>unfoldAsync(Optional.of(KeyPageQuery.of(cacheName, Optional.empty(), prefix, keyPageSize)), next -> {
+                    if (next.isEmpty()) {
+                        return CompletableFuture.completedFuture(Optional.empty());
+                    }
+                    KeyPageQuery query = next.get();
+                    return fetchKeyPage(query).thenApply(fetched -> {
+                        List<String> page = query.page(fetched);
+                        Optional<KeyPageQuery> following = query.nextCursor(fetched).map(__ -> query.next(page.get(page.size() - 1)));
+                        return Optional.of(Pair.create(following, page));
+                    });
+                })
+                .mapConcat(page -> page);
+        return ndjson(keys);
+    }
+
+    private int keyPageSize(Optional<Integer> limit) {
+        return limit.filter(requested -> requested > 0)
+                .map(requested -> Math.min(requested, maxKeyPageSize))
+                .orElse(keyPageSize);
+    }
+
+    private CompletionStage<List<String>> fetchKeyPage(KeyPageQuery query) {
+        CompletionStage<CacheView.CachedKeys> fetched = query.bounded()
+                ? componentClient.forView().method(CacheView::getCacheKeysPageWithPrefix).invokeAsync(query)
+                : componentClient.forView().method(CacheView::getCacheKeysPage).invokeAsync(query);
+        return fetched.thenApply(CacheView.CachedKeys::keys);
+    }
     
+    // a new TTL (or the key's own TTL again) from now, without the payload being read or written
+    public CompletionStage<HttpResponse> touch(String cacheName, String key, Optional<Integer> ttlSeconds) {
+        CacheTouch touch = ttlSeconds.filter(ttl -> ttl > 0)
+                .map(ttl -> CacheTouch.withTtl(Duration.ofSeconds(ttl)))
+                .orElseGet(() -> CacheTouch.sliding(defaultTTL, Duration.ZERO));
+        return componentClient.forEventSourcedEntity(cacheName.concat(key))
+                .method(CacheEntity::touch)
+                .invokeAsync(touch)
+                .thenApply(result -> result == CacheWriteResult.NOT_FOUND ? HttpResponses.notFound() : HttpResponses.ok())
+                .exceptionally(ex -> {
+                    log.error("touch failed for cacheName {} key {}: {}", cacheName, key, ex.getMessage());
+                    return HttpResponse.create().withStatus(StatusCodes.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    /*
+     Reads of a sliding TTL cacheName push the expiry out again, near-cache hits included, since those never
+     reach the entity otherwise. It's fire and forget so the read doesn't wait on it. SlidingTouches lets
+     one read per app.sliding-ttl.min-extension per key through from this node, and the entity only persists
+     a touch that moves the expiry by at least that much.
+     */
+    private void slideIfEnabled(String cacheName, String key) {
+        String compoundKey = cacheName.concat(key);
+        if (!slidingTouches.enabled(cacheName) || !slidingTouches.due(compoundKey)) {
+            return;
+        }
+        componentClient.forEventSourcedEntity(compoundKey)
+                .method(CacheEntity::touch)
+                .invokeAsync(CacheTouch.sliding(defaultTTL, slidingTouches.minExtension()))
+                .exceptionally(ex -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("sliding TTL touch failed for cacheName {} key {}: {}", cacheName, key, ex.getMessage());
+                    }
+                    slidingTouches.forget(compoundKey);
+                    return CacheWriteResult.APPLIED;
+                });
+    }
+
+    private static final int APPEND_ATTEMPTS = 3;
+
+    /*
+     Adds the body to the end of the value, or starts one (with the default TTL) when there's none.
+     The entity does the append, so concurrent appends to a key never lose each other's bytes. The org,
+     cacheName and quota checks are the ones a set gets, the org being the caller's like for a set.
+     */
+    public CompletionStage<HttpResponse> append(Optional<String> org, String cacheName, String key, HttpEntity requestBody) {
+        if (!admitted(org, requestBody.getContentLengthOption().orElse(0L))) {
+            return CompletableFuture.completedFuture(exceededCachedAllotment());
+        }
+        String compoundKey = cacheName.concat(key);
+        return isCacheNameNeededFirst(cacheName)
+                .thenCompose(httpResponse -> {
+                    if (!httpResponse.status().isSuccess()) {
+                        return CompletableFuture.completedFuture(httpResponse);
+                    }
+                    return requestBody.toStrict(strictEntityTimeout.toMillis(), materializer)
+                            .thenCompose(strictRequestBody -> appendStrict(org, cacheName, key, strictRequestBody));
+                })
+                .exceptionally(ex -> {
+                    log.error("append failed for cacheName {} key {}: {}", cacheName, key, ex.getMessage());
+                    return HttpResponse.create().withStatus(StatusCodes.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    private CompletionStage<HttpResponse> appendStrict(Optional<String> org, String cacheName, String key, HttpEntity.Strict strictRequestBody) {
+        int appendedBytes = strictRequestBody.getData().size();
+        // every append is one event, so it's held to the size of one chunk
+        if (appendedBytes > maxPayloadSize) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("an append can be at most " + maxPayloadSize + " bytes"));
+        }
+        // a streamed body only got checked against what the org already has cached, now its size is known
+        if (!admitted(org, appendedBytes)) {
+            return CompletableFuture.completedFuture(exceededCachedAllotment());
+        }
+        String compoundKey = cacheName.concat(key);
+        CacheAppend append = new CacheAppend(org, cacheName, key, strictRequestBody.getData().toArrayUnsafe(), (int) maxPayloadSize, expiresAt(Optional.empty()), Optional.empty());
+        return appendWithRetry(compoundKey, append, APPEND_ATTEMPTS)
+                .thenApply(appended -> switch (appended.result()) {
+                    case APPLIED -> {
+                        nearCache.invalidate(compoundKey);
+                        sealChunks(compoundKey, appended.sealable());
+                        yield HttpResponses.noContent();
+                    }
+                    case NOT_FOUND -> HttpResponses.notFound();
+                    case CONFLICT -> HttpResponse.create().withStatus(StatusCodes.CONFLICT);
+                    case NOT_SUPPORTED -> HttpResponses.badRequest("compressed values can't be appended to");
+                });
+    }
+
+    // a CONFLICT reply means the last chunk is in the chunk store, so it's resolved and sent along with the retry
+    private CompletionStage<CacheAppendResponse> appendWithRetry(String compoundKey, CacheAppend append, int attemptsLeft) {
+        return componentClient.forEventSourcedEntity(compoundKey)
+                .method(CacheEntity::append)
+                .invokeAsync(append)
+                .thenCompose(appended -> {
+                    if (appended.result() != CacheWriteResult.CONFLICT || attemptsLeft <= 1) {
+                        return CompletableFuture.completedFuture(appended);
+                    }
+                    return componentClient.forEventSourcedEntity(compoundKey)
+                            .method(CacheEntity::get)
+                            .invokeAsync()
+                            .thenCompose(metadata -> componentClient.forEventSourcedEntity(compoundKey)
+                                    .method(CacheEntity::getChunk)
+                                    .invokeAsync(metadata.chunks() - 1))
+                            .thenCompose(this::resolveChunk)
+                            .thenCompose(lastChunk -> appendWithRetry(compoundKey, append.withLastChunk(lastChunk), attemptsLeft - 1));
+                });
+    }
+
+    /*
+     Moves the full chunks an append left inline into the chunk store, under a generation of their own,
+     so the entity keeps only the partial last chunk. Best effort, a chunk that isn't sealed now is offered
+     again after the next append, and the stored chunks of a seal that fails are given up again.
+     */
+    private void sealChunks(String compoundKey, List<Integer> sequences) {
+        if (sequences.isEmpty()) {
+            return;
+        }
+        String sealGeneration = UUID.randomUUID().toString();
+        List<PayloadChunk> stored = Collections.synchronizedList(new ArrayList<>());
+        Source.from(sequences)
+                .mapAsync(streamChunkParallelism, sequence -> componentClient.forEventSourcedEntity(compoundKey)
+                        .method(CacheEntity::getChunk)
+                        .invokeAsync(sequence))
+                // a concurrent seal got there first
+                .filter(chunk -> !chunk.inChunkStore())
+                .mapAsync(streamChunkParallelism, chunk -> {
+                    ByteString bytes = chunk.asByteString();
+                    PayloadChunk manifestChunk = PayloadChunk.stored(chunk.sequence(), PayloadChunk.contentHash(bytes), sealGeneration);
+                    stored.add(manifestChunk);
+                    return storeChunk(compoundKey, sealGeneration, chunk.sequence(), bytes, manifestChunk.contentHash().get())
+                            .thenApply(__ -> manifestChunk);
+                })
+                .runWith(Sink.seq(), materializer)
+                .thenCompose(sealed -> componentClient.forEventSourcedEntity(compoundKey)
+                        .method(CacheEntity::seal)
+                        .invokeAsync(new SealedChunks(sealed)))
+                .exceptionally(ex -> {
+                    log.warn("sealing {} chunks of {} failed: {}", sequences.size(), compoundKey, ex.getMessage());
+                    abandonChunks(compoundKey, stored);
+                    return Done.done();
+                });
+    }
+
+    private record PatchedChunk(PayloadChunk chunk, byte[] replacedBytes) {}
+
+    /*
+     A range write, Content-Range says where the body goes. Only the chunks the range overlaps are read,
+     spliced and written again (stored chunks through the chunk store), so what's persisted scales with the
+     patch rather than with the value, and the checksum is moved along without reading the other chunks.
+     Compressed values have no byte offsets to patch, and a patch can't grow the value.
+
+     A patch that loses the race with another write gets a 409. The chunks it stores are referenced under a
+     generation of its own, so when it's refused or fails they're given up again without touching a
+     reference the value or a concurrent write holds. Only a missing key is a 404.
+     */
+    public CompletionStage<HttpResponse> patch(String cacheName, String key, Optional<String> contentRange, HttpEntity requestBody) {
+        Optional<ByteRange> range = ByteRange.parseContentRange(contentRange);
+        if (range.isEmpty()) {
+            return CompletableFuture.completedFuture(HttpResponses.badRequest("a range write needs Content-Range: bytes first-last/total"));
+        }
+        String compoundKey = cacheName.concat(key);
+        return requestBody.toStrict(strictEntityTimeout.toMillis(), materializer)
+                .thenCompose(strictRequestBody -> {
+                    byte[] patchBytes = strictRequestBody.getData().toArrayUnsafe();
+                    if (patchBytes.length != range.get().length()) {
+                        return CompletableFuture.completedFuture(HttpResponses.badRequest("the body has to be exactly the bytes of the Content-Range"));
+                    }
+                    // the entity answers a missing key with an error, GET treats that as a 404 as well
+                    return componentClient.forEventSourcedEntity(compoundKey)
+                            .method(CacheEntity::get)
+                            .invokeAsync()
+                            .thenApply(Optional::of)
+                            .exceptionally(ex -> Optional.empty())
+                            .thenCompose(found -> {
+                                if (found.isEmpty()) {
+                                    return CompletableFuture.completedFuture(HttpResponses.notFound());
+                                }
+                                CacheInternalGetResponse metadata = found.get();
+                                if (metadata.contentEncoding().isPresent() || metadata.checksum().isEmpty()) {
+                                    return CompletableFuture.completedFuture(HttpResponses.badRequest("only uncompressed values can be patched"));
+                                }
+                                if (range.get().last() >= metadata.totalBytes()) {
+                                    return CompletableFuture.completedFuture(rangeNotSatisfiable(metadata.totalBytes()));
+                                }
+                                return withResolvedFirstChunk(metadata)
+                                        .thenCompose(internalGetResponse -> applyPatch(compoundKey, internalGetResponse, range.get(), patchBytes));
+                            });
+                })
+                .exceptionally(ex -> {
+                    log.error("patch failed for cacheName {} key {}: {}", cacheName, key, ex.getMessage());
+                    return HttpResponse.create().withStatus(StatusCodes.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    private CompletionStage<HttpResponse> applyPatch(String compoundKey, CacheInternalGetResponse internalGetResponse, ByteRange range, byte[] patchBytes) {
+        long chunkSize = internalGetResponse.firstChunk().payload().length;
+        String patchGeneration = UUID.randomUUID().toString();
+        // noted before each store, so a patch that fails part way still knows everything it may have stored
+        List<PayloadChunk> stored = Collections.synchronizedList(new ArrayList<>());
+        return coveringChunks(compoundKey, internalGetResponse, range)
+                .mapAsync(streamChunkParallelism, chunk -> {
+                    long chunkStart = chunk.sequence() * chunkSize;
+                    int from = (int) Math.max(0, range.first() - chunkStart);
+                    int until = (int) Math.min(chunk.payload().length, range.last() - chunkStart + 1);
+                    byte[] patched = chunk.payload().clone();
+                    System.arraycopy(patchBytes, (int) (chunkStart + from - range.first()), patched, from, until - from);
+                    byte[] replacedBytes = Arrays.copyOfRange(chunk.payload(), from, until);
+                    if (chunk.inChunkStore()) {
+                        ByteString patchedBytes = ByteString.fromArrayUnsafe(patched);
+                        PayloadChunk manifestChunk = PayloadChunk.stored(chunk.sequence(), PayloadChunk.contentHash(patchedBytes), patchGeneration);
+                        stored.add(manifestChunk);
+                        return storeChunk(compoundKey, patchGeneration, chunk.sequence(), patchedBytes, manifestChunk.contentHash().get())
+                                .thenApply(__ -> new PatchedChunk(manifestChunk, replacedBytes));
+                    }
+                    return CompletableFuture.completedFuture(new PatchedChunk(new PayloadChunk(chunk.sequence(), patched), replacedBytes));
+                })
+                .runWith(Sink.seq(), materializer)
+                .thenCompose(patchedChunks -> {
+                    ByteString replaced = patchedChunks.stream()
+                            .map(patchedChunk -> ByteString.fromArrayUnsafe(patchedChunk.replacedBytes()))
+                            .reduce(ByteString.emptyByteString(), ByteString::concat);
+                    long expectedChecksum = internalGetResponse.checksum().get();
+                    long checksum = ContentChecksum.patched(expectedChecksum, replaced.toArrayUnsafe(), patchBytes, internalGetResponse.totalBytes() - 1 - range.last());
+                    List<PayloadChunk> chunks = patchedChunks.stream().map(PatchedChunk::chunk).toList();
+                    return componentClient.forEventSourcedEntity(compoundKey)
+                            .method(CacheEntity::patch)
+                            .invokeAsync(new CachePatch(expectedChecksum, checksum, chunks));
+                })
+                .thenApply(result -> {
+                    if (result != CacheWriteResult.APPLIED) {
+                        abandonChunks(compoundKey, stored);
+                    }
+                    return switch (result) {
+                        case APPLIED -> {
+                            nearCache.invalidate(compoundKey);
+                            yield HttpResponses.noContent();
+                        }
+                        case NOT_FOUND -> HttpResponses.notFound();
+                        case CONFLICT -> HttpResponse.create().withStatus(StatusCodes.CONFLICT);
+                        // the value was replaced with a compressed one since it was read
+                        case NOT_SUPPORTED -> HttpResponses.badRequest("only uncompressed values can be patched");
+                    };
+                })
+                .exceptionallyCompose(ex -> {
+                    abandonChunks(compoundKey, stored);
+                    return CompletableFuture.failedFuture(ex);
+                });
+    }
+
+    // best effort like abortStaged, the entity keeps whatever turns out to have applied
+    private void abandonChunks(String compoundKey, List<PayloadChunk> stored) {
+        if (stored.isEmpty()) {
+            return;
+        }
+        componentClient.forEventSourcedEntity(compoundKey)
+                .method(CacheEntity::abandonChunks)
+                .invokeAsync(new AbandonedChunks(List.copyOf(stored)));
+    }
+
     public CompletionStage<HttpResponse> delete(String cacheName, String key) {
         String compoundKey = cacheName.concat(key);
         return componentClient.forEventSourcedEntity(compoundKey)
                 .method(CacheEntity::delete)
                 .invokeAsync()
                 .thenApply(__ -> {
-                    // cancel a timer if active
-                    timerScheduler.cancel(compoundKey);
+                    nearCache.invalidate(compoundKey);
+                    // TTL wheel entries are left to fire, expire is a no-op once the key is deleted.
+                    // this only cleans up a per-key timer left over from before the wheel.
+                    timerScheduler.cancel("keys".concat(compoundKey));
                     return HttpResponses.accepted();
                 });
     }
 
+    /*
+     Batch items run through BatchRunner, at most batch-parallelism of them against the entities at a time and
+     in the order they were sent, each result carrying its cacheName and key. A key that shows up more than once
+     is only run once: the last set of it wins, gets and deletes are collapsed.
+     */
+    public Source<BatchCacheResult, NotUsed> cacheBatchResults(List<CacheRequest> cacheRequests) {
+        return cacheBatchOutcomes(cacheRequests).map(BatchRunner.Outcome::result);
+    }
+
+    private Source<BatchRunner.Outcome<BatchCacheResult>, NotUsed> cacheBatchOutcomes(List<CacheRequest> cacheRequests) {
+        return BatchRunner.run(cacheRequests, CacheRequest::cacheName, CacheRequest::key, batchParallelism,
+                cacheRequest -> cache(cacheRequest)
+                        .thenApply(result -> new BatchCacheResult(cacheRequest.cacheName(), cacheRequest.key(), result.status().isSuccess())),
+                (cacheRequest, ex) -> {
+                    log.error("cacheBatch failed for cacheName {} key {}: {}", cacheRequest.cacheName(), cacheRequest.key(), ex.getMessage());
+                    return new BatchCacheResult(cacheRequest.cacheName(), cacheRequest.key(), false);
+                });
+    }
+
+    public Source<CacheGetResponse, NotUsed> getCacheBatchResults(List<BatchGetCacheRequest> getRequests) {
+        return getCacheBatchOutcomes(getRequests).map(BatchRunner.Outcome::result);
+    }
+
+    // a miss is a result like a hit, only a get that failed makes the batch incomplete
+    private Source<BatchRunner.Outcome<CacheGetResponse>, NotUsed> getCacheBatchOutcomes(List<BatchGetCacheRequest> getRequests) {
+        return BatchRunner.run(getRequests, BatchGetCacheRequest::cacheName, BatchGetCacheRequest::key, batchParallelism,
+                request -> findCache(request.cacheName(), request.key()),
+                (request, ex) -> new CacheGetResponse(request.cacheName(), request.key(), false, new byte[0]));
+    }
+
+    public Source<CacheDeleteResponse, NotUsed> deleteCacheBatchResults(List<BatchGetCacheRequest> deleteRequests) {
+        return deleteCacheBatchOutcomes(deleteRequests).map(BatchRunner.Outcome::result);
+    }
+
+    private Source<BatchRunner.Outcome<CacheDeleteResponse>, NotUsed> deleteCacheBatchOutcomes(List<BatchGetCacheRequest> deleteRequests) {
+        return BatchRunner.run(deleteRequests, BatchGetCacheRequest::cacheName, BatchGetCacheRequest::key, batchParallelism,
+                request -> delete(request.cacheName(), request.key())
+                        .thenApply(deleteResult -> new CacheDeleteResponse(request.cacheName(), request.key(), deleteResult.status().isSuccess())),
+                (request, ex) -> new CacheDeleteResponse(request.cacheName(), request.key(), false));
+    }
+
     public CompletionStage<BatchCacheResponse> cacheBatch(BatchCacheRequest batchCacheRequest) {
         if (log.isDebugEnabled()) {
-            log.debug("Batch cache request: {}", batchCacheRequest);
+            log.debug("Batch cache request: {} items", batchCacheRequest.cacheRequests().size());
         }
         if (batchCacheRequest.cacheRequests().isEmpty()) {
             List<BatchCacheResult> results = new ArrayList<>();
             return CompletableFuture.completedFuture(new BatchCacheResponse(false, results));
         }
-        List<CompletableFuture<BatchCacheRequestResults>> batchCacheRequestFutures = new ArrayList<>();
-        batchCacheRequest.cacheRequests().forEach(cacheRequest -> batchCacheRequestFutures.add(
-                cache(cacheRequest).thenApply(result -> new BatchCacheRequestResults(result, cacheRequest))
-                        .toCompletableFuture()
-        ));
-        return FutureHelper.allOf(batchCacheRequestFutures)
-                .thenApply(results -> {
+        return cacheBatchOutcomes(batchCacheRequest.cacheRequests())
+                .runWith(Sink.seq(), materializer)
+                .thenApply(outcomes -> {
+                    List<BatchCacheResult> results = BatchRunner.results(outcomes);
                     if (log.isDebugEnabled()) {
                         log.debug("cacheBatch batch results: {}", results);
                     }
-                    // no need to return any results since everything is successful
-                    return new BatchCacheResponse(true, Collections.emptyList());
-                })
-                .exceptionally(ex -> {
-                    // collect results from actual future list
-                    List<BatchCacheResult> results = new ArrayList<>();
-                    for (CompletableFuture<BatchCacheRequestResults> future : batchCacheRequestFutures) {
-                        try {
-                            CacheRequest cacheRequest = future.get().cacheRequest();
-                            if (future.isCompletedExceptionally()) {
-                                results.add(new BatchCacheResult(cacheRequest.cacheName(), cacheRequest.key(), false));
-                            }
-                            else {
-                                results.add(new BatchCacheResult(cacheRequest.cacheName(), cacheRequest.key(), true));
-                            }
-                        }
-                        catch (InterruptedException | ExecutionException e) {
-                            log.error("cacheBatch: This shouldn't happen, but just in case: {}", ex.getMessage(), ex);
-                        }
+                    // no need to return any results when everything is successful
+                    if (results.stream().allMatch(BatchCacheResult::success)) {
+                        return new BatchCacheResponse(true, Collections.emptyList());
                     }
-                    return new BatchCacheResponse(false, results);
+                    return new BatchCacheResponse(BatchRunner.complete(outcomes), results);
                 });
     }
 
     public CompletionStage<BatchGetCacheResponse> getCacheBatch(BatchGetCacheRequests getBatchRequests) {
-        List<CompletableFuture<CacheGetResponse>> getBatchFutures = new ArrayList<>();
         if (log.isDebugEnabled()) {
-            log.debug("getCacheBatch: Batch get cache requests: {}", getBatchRequests);
+            log.debug("getCacheBatch: Batch get cache requests: {} items", getBatchRequests.getCachedBatch().size());
         }
-        for (BatchGetCacheRequest request : getBatchRequests.getCachedBatch()) {
-            getBatchFutures.add(
-                    getCache(request.cacheName(), request.key())
-                            .toCompletableFuture()
-            );
-        }
-        return FutureHelper.allOf(getBatchFutures)
-                .thenApply(results -> {
-                    if (log.isDebugEnabled()) {
-                        log.debug("getCacheBatch batch results: {}", results);
+        return getCacheBatchOutcomes(getBatchRequests.getCachedBatch())
+                .runWith(Sink.seq(), materializer)
+                .thenApply(outcomes -> new BatchGetCacheResponse(BatchRunner.complete(outcomes), BatchRunner.results(outcomes)));
+    }
+
+    public CompletionStage<BatchDeleteCacheResponse> deleteCacheBatch(BatchGetCacheRequests getBatchRequests) {
+        return deleteCacheBatchOutcomes(getBatchRequests.getCachedBatch())
+                .runWith(Sink.seq(), materializer)
+                .thenApply(outcomes -> new BatchDeleteCacheResponse(BatchRunner.complete(outcomes), BatchRunner.results(outcomes)));
+    }
+
+    // the NDJSON batches answer with a line per item as soon as it and the ones before it complete, instead of after the slowest one
+    public HttpResponse cacheBatchStream(BatchCacheRequest batchCacheRequest) {
+        return ndjson(cacheBatchResults(batchCacheRequest.cacheRequests()));
+    }
+
+    public HttpResponse getCacheBatchStream(BatchGetCacheRequests getBatchRequests) {
+        return ndjson(getCacheBatchResults(getBatchRequests.getCachedBatch()));
+    }
+
+    public HttpResponse deleteCacheBatchStream(BatchGetCacheRequests getBatchRequests) {
+        return ndjson(deleteCacheBatchResults(getBatchRequests.getCachedBatch()));
+    }
+
+    private static HttpResponse ndjson(Source<?, NotUsed> results) {
+        Source<ByteString, NotUsed> lines = results.map(result -> JsonSupport.encodeToAkkaByteString(result).concat(NEWLINE));
+        return HttpResponse.create().withEntity(HttpEntities.createChunked(NDJSON, lines));
+    }
+
+    /*
+     The binary batches take BatchCodec frames instead of JSON, so values aren't base64 encoded.
+     A set still answers with the JSON BatchCacheResponse, it carries no values.
+     */
+    public CompletionStage<HttpResponse> cacheBatchBinary(Optional<String> org, HttpEntity requestBody) {
+        return requestBody.toStrict(strictEntityTimeout.toMillis(), materializer)
+                .thenCompose(strictRequestBody -> {
+                    List<CacheRequest> cacheRequests;
+                    try {
+                        cacheRequests = BatchCodec.decodeSets(strictRequestBody.getData());
+                    } catch (IllegalArgumentException ex) {
+                        return CompletableFuture.completedFuture(HttpResponses.badRequest("malformed batch: " + ex.getMessage()));
                     }
-                    return new BatchGetCacheResponse(true, results);
-                })
-                .exceptionally(ex -> {
-                    // collect results from actual future list
-                    List<CacheGetResponse> getCacheResults = new ArrayList<>();
-                    getBatchFutures.forEach(goodOrBadResult -> {
-                        try {
-                            CacheGetResponse cacheGetResponse = goodOrBadResult.get();
-                            getCacheResults.add(cacheGetResponse);
-                        }
-                        catch (InterruptedException | ExecutionException e) {
-                            log.error("getCacheBatch: This shouldn't happen, but just in case: {}", ex.getMessage(), ex);
-                        }
-                    });
-                    return new BatchGetCacheResponse(false, getCacheResults);
+                    // frames carry no org, every value is the caller's like a binary set
+                    List<CacheRequest> orgRequests = cacheRequests.stream()
+                            .map(request -> new CacheRequest(org, request.cacheName(), request.key(), request.ttlSeconds(), request.value()))
+                            .toList();
+                    return cacheBatch(new BatchCacheRequest(orgRequests)).thenApply(HttpResponses::ok);
                 });
     }
 
-    public CompletionStage<BatchDeleteCacheResponse> deleteCacheBatch(BatchGetCacheRequests getBatchRequests) {
-        List<CompletableFuture<CacheDeleteResponse>> getBatchFutures = new ArrayList<>();
-        for (BatchGetCacheRequest request : getBatchRequests.getCachedBatch()) {
-            getBatchFutures.add(
-                    delete(request.cacheName(), request.key())
-                            .thenApply(deleteResult -> {
-                                Boolean success = deleteResult.status().isSuccess();
-                                return new CacheDeleteResponse(request.cacheName(), request.key(), success);
-                            })
-                            .toCompletableFuture()
-            );
-        }
-        return FutureHelper.allOf(getBatchFutures)
-                .thenApply(results -> new BatchDeleteCacheResponse(true, results))
-                .exceptionally(ex -> {
-                    // collect results from actual future list
-                    List<CacheDeleteResponse> getCacheResults = new ArrayList<>();
-                    getBatchFutures.forEach(goodOrBadResult -> {
-                        try {
-                            CacheDeleteResponse cacheGetResponse = goodOrBadResult.get();
-                            getCacheResults.add(cacheGetResponse);
-                        }
-                        catch (InterruptedException | ExecutionException e) {
-                            log.error("deleteCacheBatch: This shouldn't happen, but just in case: {}", ex.getMessage(), ex);
-                        }
-                    });
-                    return new BatchDeleteCacheResponse(false, getCacheResults);
+    // a frame per distinct key, streamed as each get completes. A key that can't be read goes back without FLAG_FOUND
+    public CompletionStage<HttpResponse> getCacheBatchBinary(HttpEntity requestBody) {
+        return requestBody.toStrict(strictEntityTimeout.toMillis(), materializer)
+                .thenApply(strictRequestBody -> {
+                    List<BatchGetCacheRequest> getRequests;
+                    try {
+                        getRequests = BatchCodec.decodeGets(strictRequestBody.getData());
+                    } catch (IllegalArgumentException ex) {
+                        return HttpResponses.badRequest("malformed batch: " + ex.getMessage());
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("getCacheBatchBinary: {} keys", getRequests.size());
+                    }
+                    Source<ByteString, NotUsed> frames = getCacheBatchResults(getRequests)
+                            .map(result -> BatchCodec.encodeGetResults(List.of(result)));
+                    return HttpResponse.create().withEntity(HttpEntities.createChunked(BINARY_PAYLOAD, frames));
                 });
     }
 
@@ -2,8 +2,10 @@ package io.akka.cache.api;
 
 import akka.http.javadsl.model.*;
 import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.JWT;
 import akka.javasdk.annotations.http.*;
 import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.RequestContext;
 import akka.http.javadsl.model.HttpResponse;
 import akka.javasdk.timer.TimerScheduler;
 import akka.stream.Materializer;
@@ -11,6 +13,12 @@ import io.akka.cache.application.CacheView;
 import io.akka.cache.domain.*;
 import com.typesafe.config.Config;
 import io.akka.cache.domain.CacheName;
+import io.akka.cache.local.AccessSamples;
+import io.akka.cache.local.CacheNameExistence;
+import io.akka.cache.local.DictionaryCache;
+import io.akka.cache.local.NearCache;
+import io.akka.cache.local.OrgQuotas;
+import io.akka.cache.local.SlidingTouches;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,17 +40,26 @@ public class CacheEndpoint {
     private static final Logger log = LoggerFactory.getLogger(CacheEndpoint.class);
 
     private final CacheAPICoreImpl core;
+    private final RequestContext requestContext;
 
     /**
      * @param config the configuration for the component
      * @param componentClient the client which is the entry point for the component
      * @param timerScheduler the timer scheduler for the component
      * @param materializer the materializer for the component
+     * @param nearCache the node-local near-cache, provided by {@link io.akka.cache.Bootstrap}
+     * @param dictionaryCache the node-local compression dictionaries, provided by {@link io.akka.cache.Bootstrap}
+     * @param orgQuotas the node-local copy of each org's cached bytes, provided by {@link io.akka.cache.Bootstrap}
+     * @param cacheNameExistence the node-local cache of which cacheNames exist, provided by {@link io.akka.cache.Bootstrap}
+     * @param slidingTouches the node-local throttle of the sliding TTL touches, provided by {@link io.akka.cache.Bootstrap}
+     * @param accessSamples the node-local gathering of sampled reads for eviction, provided by {@link io.akka.cache.Bootstrap}
+     * @param requestContext the context of the request being served, for its headers
      *
      * This is the constructor for the CacheEndpoint. It is used by the Akka framework to create an instance of this class.
      */
-    public CacheEndpoint(Config config, ComponentClient componentClient, TimerScheduler timerScheduler, Materializer materializer) {
-        core = new CacheAPICoreImpl(config, componentClient, timerScheduler, materializer);
+    public CacheEndpoint(Config config, ComponentClient componentClient, TimerScheduler timerScheduler, Materializer materializer, NearCache nearCache, DictionaryCache dictionaryCache, OrgQuotas orgQuotas, CacheNameExistence cacheNameExistence, SlidingTouches slidingTouches, AccessSamples accessSamples, RequestContext requestContext) {
+        core = new CacheAPICoreImpl(config, componentClient, timerScheduler, materializer, nearCache, dictionaryCache, orgQuotas, cacheNameExistence, slidingTouches, accessSamples);
+        this.requestContext = requestContext;
     }
 
     // Cache Names -- BEGIN
@@ -68,9 +85,41 @@ public class CacheEndpoint {
         return core.getCacheName(cacheName);
     }
 
+    /*
+     A page of the cacheName's keys. Query parameters: limit (page size), cursor (the nextCursor of the
+     previous page) and prefix. A request without them gets the first app.key-listing.page-size keys, and
+     there are more whenever the response has a nextCursor; only a response without one is the last page.
+     */
     @Get("/cacheName/{cacheName}/keys")
     public CompletionStage<CacheGetKeysResponse> getCacheKeys(String cacheName) {
-        return core.getCacheKeys(cacheName);
+        return core.getCacheKeys(cacheName,
+                requestContext.queryParams().getString("cursor"),
+                requestContext.queryParams().getString("prefix"),
+                requestContext.queryParams().getInteger("limit"));
+    }
+
+    // all of the cacheName's keys (or those with the prefix query parameter) as NDJSON, read a page at a time
+    @Get("/cacheName/{cacheName}/keys/stream")
+    public HttpResponse streamCacheKeys(String cacheName) {
+        return core.streamCacheKeys(cacheName, requestContext.queryParams().getString("prefix"));
+    }
+
+    // live keys, total bytes, chunked keys and a log2 size histogram of the cacheName, kept as values are written
+    @Get("/cacheName/{cacheName}/stats")
+    public CompletionStage<CacheNameStatsResponse> getCacheNameStats(String cacheName) {
+        return core.getCacheNameStats(cacheName);
+    }
+
+    // hit/miss counters of this node's near-cache for the cacheName
+    @Get("/cacheName/{cacheName}/near-cache")
+    public NearCacheStatsResponse getNearCacheStats(String cacheName) {
+        return core.getNearCacheStats(cacheName);
+    }
+
+    // trains a new compression dictionary version from a sample of the cacheName's small values
+    @Post("/cacheName/{cacheName}/dictionary")
+    public CompletionStage<DictionaryTrainedResponse> trainDictionary(String cacheName) {
+        return core.trainDictionary(cacheName);
     }
 
     // This deletes the cacheName as well as all the keys
@@ -99,16 +148,28 @@ public class CacheEndpoint {
      This is an alternate binary REST call that is now a default.
 
      This solves the problem of having to convert into
-     and out of ByteString for chunking.
+     and out of ByteString for chunking. The request entity is
+     taken as it arrives, so large uploads are chunked and persisted
+     while the rest of the body is still on the wire.
     */
     @Post("/{cacheName}/{key}/{ttlSeconds}")
-    public CompletionStage<HttpResponse> cacheSet(String cacheName, String key, Integer ttlSeconds, HttpEntity.Strict strictRequestBody) {
-        return core.cacheSet(Optional.empty(), cacheName, key, ttlSeconds, strictRequestBody);
+    @JWT(validate = JWT.JwtMethodMode.BEARER_TOKEN)
+    public CompletionStage<HttpResponse> cacheSet(String cacheName, String key, Integer ttlSeconds, HttpRequest request) {
+        return core.cacheSet(org(), cacheName, key, ttlSeconds, request.entity());
     }
 
     @Post("/{cacheName}/{key}")
-    public CompletionStage<HttpResponse> cacheSet(String cacheName, String key, HttpEntity.Strict strictRequestBody) {
-        return core.cacheSet(Optional.empty(), cacheName, key, DEFAULT_TTL, strictRequestBody);
+    @JWT(validate = JWT.JwtMethodMode.BEARER_TOKEN)
+    public CompletionStage<HttpResponse> cacheSet(String cacheName, String key, HttpRequest request) {
+        return core.cacheSet(org(), cacheName, key, DEFAULT_TTL, request.entity());
+    }
+
+    /*
+     The org claim of the caller's JWT, a value written without one isn't accounted to any org. Only
+     the methods that validate the bearer token (@JWT) call this, the claims are untrusted otherwise.
+     */
+    private Optional<String> org() {
+        return requestContext.getJwtClaims().getString(ORG);
     }
 
     // this is a JSON verison of GET
@@ -121,11 +182,45 @@ public class CacheEndpoint {
      This is an alternate binary REST call that is now a default.
 
      This solves the problem of having to convert into
-     and out of ByteString for chunking.
+     and out of ByteString for chunking. Compressed values are sent as
+     stored when the client accepts gzip. If-None-Match with the value's
+     ETag gets a 304 without any of the chunks being read. A single
+     Range: bytes=a-b gets a 206 with only the chunks covering it read.
     */
     @Get("/{cacheName}/{key}")
     public CompletionStage<HttpResponse> getCacheGet(String cacheName, String key) {
-        return core.getCacheGet(cacheName, key);
+        Optional<String> acceptEncoding = requestContext.requestHeader("Accept-Encoding").map(HttpHeader::value);
+        Optional<String> ifNoneMatch = requestContext.requestHeader("If-None-Match").map(HttpHeader::value);
+        Optional<String> range = requestContext.requestHeader("Range").map(HttpHeader::value);
+        return core.getCacheGet(cacheName, key, acceptEncoding, ifNoneMatch, range);
+    }
+
+    // adds the body to the end of the value (starting one if there's none), only the new bytes are persisted
+    @Post("/append/{cacheName}/{key}")
+    @JWT(validate = JWT.JwtMethodMode.BEARER_TOKEN)
+    public CompletionStage<HttpResponse> append(String cacheName, String key, HttpRequest request) {
+        return core.append(org(), cacheName, key, request.entity());
+    }
+
+    /*
+     Overwrites part of an existing value in place, Content-Range: bytes first-last/total says which part.
+     Only the chunks covering the range are rewritten.
+    */
+    @Patch("/{cacheName}/{key}")
+    public CompletionStage<HttpResponse> patch(String cacheName, String key, HttpRequest request) {
+        Optional<String> contentRange = requestContext.requestHeader("Content-Range").map(HttpHeader::value);
+        return core.patch(cacheName, key, contentRange, request.entity());
+    }
+
+    // moves only the expiry: the key's own TTL again from now, or the new TTL given
+    @Put("/touch/{cacheName}/{key}")
+    public CompletionStage<HttpResponse> touch(String cacheName, String key) {
+        return core.touch(cacheName, key, Optional.empty());
+    }
+
+    @Put("/touch/{cacheName}/{key}/{ttlSeconds}")
+    public CompletionStage<HttpResponse> touch(String cacheName, String key, Integer ttlSeconds) {
+        return core.touch(cacheName, key, Optional.of(ttlSeconds));
     }
 
     @Delete("/{cacheName}/{key}")
@@ -143,6 +238,34 @@ public class CacheEndpoint {
         return core.getCacheBatch(getBatchRequests);
     }
 
+    // NDJSON versions of the batches, a result line goes out as each item completes
+    @Post("/batch/stream")
+    public HttpResponse cacheBatchStream(BatchCacheRequest batchCacheRequest) {
+        return core.cacheBatchStream(batchCacheRequest);
+    }
+
+    @Post("/batch/get/stream")
+    public HttpResponse getCacheBatchStream(BatchGetCacheRequests getBatchRequests) {
+        return core.getCacheBatchStream(getBatchRequests);
+    }
+
+    @Delete("/batch/stream")
+    public HttpResponse deleteCacheBatchStream(BatchGetCacheRequests getBatchRequests) {
+        return core.deleteCacheBatchStream(getBatchRequests);
+    }
+
+    // the application/octet-stream versions of the batches, see BatchCodec for the framing
+    @Post("/batch/binary")
+    @JWT(validate = JWT.JwtMethodMode.BEARER_TOKEN)
+    public CompletionStage<HttpResponse> cacheBatchBinary(HttpRequest request) {
+        return core.cacheBatchBinary(org(), request.entity());
+    }
+
+    @Post("/batch/get/binary")
+    public CompletionStage<HttpResponse> getCacheBatchBinary(HttpRequest request) {
+        return core.getCacheBatchBinary(request.entity());
+    }
+
     @Delete("/batch")
     public CompletionStage<BatchDeleteCacheResponse> deleteCacheBatch(BatchGetCacheRequests getBatchRequests) {
         return core.deleteCacheBatch(getBatchRequests);
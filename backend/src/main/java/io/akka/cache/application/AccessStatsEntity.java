@@ -0,0 +1,51 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import io.akka.cache.domain.AccessStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static akka.Done.done;
+
+/*
+ The sampled reads of one shard of a bounded cacheName, the id comes from AccessStats.shardId. Each node
+ writes the reads it gathered for the shard once per app.eviction.access-flush-interval, and CacheEviction
+ reads the shards of a cacheName to rank its keys. A key value entity, so reads keep no journal anywhere.
+ */
+@ComponentId("access-stats")
+public class AccessStatsEntity extends KeyValueEntity<AccessStats> {
+    private static final Logger log = LoggerFactory.getLogger(AccessStatsEntity.class);
+
+    @Override
+    public AccessStats emptyState() {
+        return AccessStats.empty();
+    }
+
+    public Effect<Done> record(AccessStats.Reads reads) {
+        if (log.isDebugEnabled()) {
+            log.debug("AccessStatsEntity {} recording the reads of {} keys", commandContext().entityId(), reads.reads().size());
+        }
+        return effects()
+                .updateState(currentState().plus(reads))
+                .thenReply(done());
+    }
+
+    // the keys eviction deleted, so a key set again under the name starts over
+    public Effect<Done> forget(List<String> keys) {
+        AccessStats remaining = currentState().without(keys);
+        if (remaining.equals(currentState())) {
+            return effects().reply(done());
+        }
+        return effects()
+                .updateState(remaining)
+                .thenReply(done());
+    }
+
+    public ReadOnlyEffect<AccessStats> get() {
+        return effects().reply(currentState());
+    }
+}
@@ -5,15 +5,31 @@ import akka.Done;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.eventsourcedentity.EventSourcedEntity;
 import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import io.akka.cache.domain.AbandonedChunks;
 import io.akka.cache.domain.Cache;
+import io.akka.cache.domain.CacheAppend;
+import io.akka.cache.domain.CacheAppendResponse;
+import io.akka.cache.domain.CacheCommit;
 import io.akka.cache.domain.CacheEvent;
 import io.akka.cache.domain.CacheInternalGetResponse;
+import io.akka.cache.domain.CachePatch;
+import io.akka.cache.domain.CacheTouch;
+import io.akka.cache.domain.CacheWriteResult;
+import io.akka.cache.domain.ChunkRelease;
 import io.akka.cache.domain.PayloadChunk;
+import io.akka.cache.domain.SealedChunks;
+import io.akka.cache.domain.StagedChunk;
+import io.akka.cache.domain.ValueSize;
+import io.akka.cache.streams.ContentChecksum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static akka.Done.done;
@@ -23,27 +39,41 @@ public class CacheEntity extends EventSourcedEntity<Cache, CacheEvent> {
     private static final Logger log = LoggerFactory.getLogger(CacheEntity.class);
 
     public ReadOnlyEffect<CacheInternalGetResponse> get() {
-        if (currentState() == null || currentState().deleted()) {
+        if (missing()) {
             return errorNotFound();
         }
-        else {
-            // Note: if we're returning data we should drop the org from the cacheName
-            String respCacheName = currentState().org().isPresent() ? currentState().cacheName().substring(currentState().org().get().length()) : currentState().cacheName();
-            return effects().reply(new CacheInternalGetResponse(
-                    currentState().org(),
-                    respCacheName,
-                    currentState().key(),
-                    currentState().ttlSeconds(),
-                    currentState().deleted(),
-                    currentState().totalBytes(),
-                    currentState().chunks().size(),
-                    currentState().chunks().getFirst())
-            );
-        }
+        return effects().reply(response());
+    }
+
+    // get, with a miss in the reply instead of an error
+    public ReadOnlyEffect<CacheInternalGetResponse.Lookup> find() {
+        return effects().reply(new CacheInternalGetResponse.Lookup(missing() ? Optional.empty() : Optional.of(response())));
+    }
+
+    private boolean missing() {
+        return currentState() == null || currentState().deleted() || currentState().expired(Instant.now());
+    }
+
+    // the org is kept next to the cacheName, never as a prefix of it, so the cacheName goes out as stored
+    private CacheInternalGetResponse response() {
+        return new CacheInternalGetResponse(
+                currentState().org(),
+                currentState().cacheName(),
+                currentState().key(),
+                currentState().ttlSeconds(),
+                currentState().deleted(),
+                currentState().totalBytes(),
+                currentState().chunks().size(),
+                currentState().chunks().getFirst(),
+                currentState().contentEncoding(),
+                currentState().dictionaryId(),
+                currentState().expiresAt(),
+                currentState().checksum(),
+                currentState().generation());
     }
 
     public ReadOnlyEffect<PayloadChunk> getChunk(int index) {
-        if (currentState() == null || currentState().deleted()) {
+        if (currentState() == null || currentState().deleted() || currentState().expired(Instant.now())) {
             return errorNotFound();
         }
         else {
@@ -60,19 +90,27 @@ public class CacheEntity extends EventSourcedEntity<Cache, CacheEvent> {
         if (log.isDebugEnabled()) {
             log.debug("CacheEntity Creating new cache for org {} key {}", cache.org(), commandContext().entityId());
         }
-        if (currentState() == null || currentState().org().isEmpty() || currentState().deleted()) {
-            return effects()
-                    .persist(new CacheEvent.CacheSet(cache.org(), cache.cacheName(), cache.key(), cache.ttlSeconds(), cache.totalBytes(), cache.chunks().getFirst()))
-                    .thenReply(__ -> done());
+        var cacheSet = new CacheEvent.CacheSet(cache.org(), cache.cacheName(), cache.key(), cache.ttlSeconds(), cache.totalBytes(), cache.chunks().getFirst(), cache.contentEncoding(), cache.dictionaryId(), cache.expiresAt(), cache.checksum());
+        List<CacheEvent> events = new ArrayList<>(replacedBy(cacheSet));
+        resized(cache.org(), cache.cacheName(), Optional.of(new ValueSize(cache.totalBytes(), false))).ifPresent(events::add);
+        return effects()
+                .persistAll(events)
+                .thenReply(__ -> done());
+    }
+
+    private List<CacheEvent> replacedBy(CacheEvent.CacheSet cacheSet) {
+        if (currentState() == null) {
+            return List.of(cacheSet);
+        }
+        // the set replaces whatever was committed or staged, so their stored chunks are released
+        List<ChunkRelease> releases = new ArrayList<>(currentState().committedReleases(commandContext().entityId()));
+        releases.addAll(currentState().stagedReleases(commandContext().entityId(), generation -> true));
+        if (currentState().org().isEmpty() || currentState().deleted()) {
+            return withReleases(releases, cacheSet);
         }
         else {
             // we need to make sure to delete the exsiting payload first so that we back out an existing cache for the org
-            return effects()
-                    .persist(
-                            new CacheEvent.CacheDeleted(currentState().org(), currentState().totalBytes()),
-                            new CacheEvent.CacheSet(cache.org(), cache.cacheName(), cache.key(), cache.ttlSeconds(), cache.totalBytes(), cache.chunks().getFirst())
-                    )
-                    .thenReply(__ -> done());
+            return withReleases(releases, CacheEvent.CacheDeleted.replaced(currentState().org(), currentState().totalBytes()), cacheSet);
         }
     }
 
@@ -86,7 +124,66 @@ public class CacheEntity extends EventSourcedEntity<Cache, CacheEvent> {
     }
 
     /*
-    TODO: we're not actually deleting for now, just flagging it
+     Large values are staged chunk by chunk under a generation id, in any order and with retries,
+     without touching the value readers see.
+     */
+    public Effect<Done> stageChunk(StagedChunk stagedChunk) {
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity staging chunk id {} generation {} sequence {}", commandContext().entityId(), stagedChunk.generation(), stagedChunk.chunk().sequence());
+        }
+        if (currentState() != null && currentState().isStaged(stagedChunk.generation(), stagedChunk.chunk().sequence())) {
+            return effects().reply(done());
+        }
+        return effects()
+                .persist(new CacheEvent.ChunkStaged(stagedChunk.generation(), stagedChunk.chunk()))
+                .thenReply(__ -> done());
+    }
+
+    /*
+     Replies false when the generation is incomplete. Every chunk is staged before the commit is sent, so
+     that means a concurrent upload of the key committed first and dropped this generation's chunks.
+     */
+    public Effect<Boolean> commit(CacheCommit commit) {
+        int staged = currentState() == null ? 0 : currentState().stagedChunks(commit.generation()).size();
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity commit id {} generation {} staged {} of {} chunks", commandContext().entityId(), commit.generation(), staged, commit.chunkCount());
+        }
+        if (staged == 0 || staged != commit.chunkCount()) {
+            log.warn("CacheEntity generation {} for id {} is incomplete, {} of {} chunks staged", commit.generation(), commandContext().entityId(), staged, commit.chunkCount());
+            return effects().reply(false);
+        }
+        var committed = new CacheEvent.CacheCommitted(commit.org(), commit.cacheName(), commit.key(), commit.ttlSeconds(), commit.totalBytes(), commit.generation(), commit.chunkCount(), commit.contentEncoding(), commit.expiresAt(), commit.checksum());
+        // the previous value and any generation that lost the race give up their stored chunks
+        List<ChunkRelease> releases = new ArrayList<>(currentState().committedReleases(commandContext().entityId()));
+        releases.addAll(currentState().stagedReleases(commandContext().entityId(), generation -> !generation.equals(commit.generation())));
+        List<CacheEvent> events;
+        if (currentState().org().isEmpty() || currentState().deleted()) {
+            events = new ArrayList<>(withReleases(releases, committed));
+        }
+        else {
+            // we need to make sure to delete the exsiting payload first so that we back out an existing cache for the org
+            events = new ArrayList<>(withReleases(releases, CacheEvent.CacheDeleted.replaced(currentState().org(), currentState().totalBytes()), committed));
+        }
+        resized(commit.org(), commit.cacheName(), Optional.of(new ValueSize(commit.totalBytes(), commit.chunkCount() > 1))).ifPresent(events::add);
+        return effects()
+                .persistAll(events)
+                .thenReply(__ -> true);
+    }
+
+    // the upload failed part way, don't leave its chunks behind
+    public Effect<Done> abortStaged(String generation) {
+        if (currentState() == null || !currentState().hasStaged(generation)) {
+            return effects().reply(done());
+        }
+        List<ChunkRelease> releases = currentState().stagedReleases(commandContext().entityId(), generation::equals);
+        return effects()
+                .persistAll(withReleases(releases, new CacheEvent.StagedAborted(generation)))
+                .thenReply(__ -> done());
+    }
+
+    /*
+     Drops the payload and leaves a tombstone. The TombstonePurger deletes the entity once the
+     tombstone has outlived app.tombstone-grace-period.
      */
     public Effect<Done> delete() {
         if (currentState() == null || currentState().deleted()) {
@@ -96,21 +193,215 @@ public class CacheEntity extends EventSourcedEntity<Cache, CacheEvent> {
             if (log.isDebugEnabled()) {
                 log.debug("CacheEntity delete for org {} {}", currentState().org(), commandContext().entityId());
             }
-            return effects()
-                    .persist(new CacheEvent.CacheDeleted(currentState().org(), currentState().totalBytes()))
-                    .thenReply(__ -> done());
+            return tombstone();
         }
     }
 
+    /*
+     Appends are applied here, one command at a time, so they're atomic per key. Only the appended bytes are
+     persisted. When the last chunk is in the chunk store its bytes are needed to fill it, so the entity
+     replies CONFLICT and the caller retries with it resolved; the chunk moves into the entity once and later
+     appends don't need that. The reply lists the full chunks left inline, the caller seals them into the
+     chunk store so only the partial last chunk stays here.
+     */
+    public Effect<CacheAppendResponse> append(CacheAppend append) {
+        List<CacheEvent> events = new ArrayList<>();
+        Cache value = currentState();
+        if (value == null || value.deleted() || value.expired(Instant.now())) {
+            // appending to nothing starts an empty value
+            var cacheSet = new CacheEvent.CacheSet(append.org(), append.cacheName(), append.key(), Optional.empty(), 0L, new PayloadChunk(0, new byte[0]), Optional.empty(), Optional.empty(), append.expiresAt(), Optional.of(ContentChecksum.of(new byte[0])));
+            events.addAll(replacedBy(cacheSet));
+            value = new Cache(cacheSet.org(), cacheSet.cacheName(), cacheSet.key(), Optional.empty(), 0L, List.of(cacheSet.chunk())).withChecksum(cacheSet.checksum());
+        }
+        else if (value.contentEncoding().isPresent()) {
+            return effects().reply(CacheAppendResponse.of(CacheWriteResult.NOT_SUPPORTED));
+        }
+        PayloadChunk last = value.chunks().getLast();
+        int lastChunkBytes = last.payload().length;
+        if (last.inChunkStore()) {
+            Optional<PayloadChunk> resolved = append.lastChunk()
+                    .filter(chunk -> chunk.sequence().equals(last.sequence()) && chunk.contentHash().equals(last.contentHash()));
+            if (resolved.isEmpty()) {
+                return effects().reply(CacheAppendResponse.of(CacheWriteResult.CONFLICT));
+            }
+            events.addAll(withReleases(value.lastChunkReleases(commandContext().entityId()), new CacheEvent.LastChunkInlined(resolved.get())));
+            lastChunkBytes = resolved.get().payload().length;
+        }
+        int chunkSize = value.appendChunkSize(append.maxChunkBytes(), lastChunkBytes);
+        Optional<Long> checksum = value.checksum().map(current -> ContentChecksum.extended(current, append.bytes()));
+        events.add(new CacheEvent.CacheAppended(append.bytes(), chunkSize, checksum));
+        // new chunks are only opened once the bytes don't fit in what's left of the last one
+        boolean chunked = value.chunks().size() > 1 || append.bytes().length > Math.max(0, chunkSize - lastChunkBytes);
+        resized(value.org(), value.cacheName(), Optional.of(new ValueSize(value.totalBytes() + append.bytes().length, chunked))).ifPresent(events::add);
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity appending {} bytes to {}", append.bytes().length, commandContext().entityId());
+        }
+        return effects()
+                .persistAll(events)
+                .thenReply(appended -> new CacheAppendResponse(CacheWriteResult.APPLIED, appended.sealable()));
+    }
+
+    /*
+     Full chunks an append left inline, now in the chunk store. Each replaces its inline chunk if that still
+     holds the same bytes, otherwise the value moved on meanwhile and its reference is given up again.
+     */
+    public Effect<Done> seal(SealedChunks sealed) {
+        Cache value = currentState() == null ? Cache.empty() : currentState();
+        List<PayloadChunk> sealing = sealed.chunks().stream().filter(value::seals).toList();
+        List<ChunkRelease> releases = value.abandonedReleases(commandContext().entityId(), sealed.chunks().stream().filter(chunk -> !value.seals(chunk)).toList());
+        if (sealing.isEmpty() && releases.isEmpty()) {
+            return effects().reply(done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity sealing {} chunks of {}, {} no longer held", sealing.size(), commandContext().entityId(), releases.size());
+        }
+        List<CacheEvent> events = sealing.isEmpty() ? withReleases(releases) : withReleases(releases, new CacheEvent.ChunksSealed(sealing));
+        return effects()
+                .persistAll(events)
+                .thenReply(__ -> done());
+    }
+
+    // replies CONFLICT when the value changed since the patch was computed against it, the caller has to start over
+    public Effect<CacheWriteResult> patch(CachePatch patch) {
+        if (currentState() == null || currentState().deleted() || currentState().expired(Instant.now())) {
+            return effects().reply(CacheWriteResult.NOT_FOUND);
+        }
+        if (currentState().contentEncoding().isPresent()) {
+            return effects().reply(CacheWriteResult.NOT_SUPPORTED);
+        }
+        if (currentState().checksum().filter(checksum -> checksum == patch.expectedChecksum()).isEmpty()) {
+            return effects().reply(CacheWriteResult.CONFLICT);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity patching {} chunks of {}", patch.chunks().size(), commandContext().entityId());
+        }
+        List<ChunkRelease> releases = currentState().patchedReleases(commandContext().entityId(), patch.chunks());
+        return effects()
+                .persistAll(withReleases(releases, new CacheEvent.CachePatched(patch.chunks(), patch.checksum())))
+                .thenReply(__ -> CacheWriteResult.APPLIED);
+    }
+
+    // a patch or seal that was refused or failed gives up what it stored, unless it turns out to have applied after all
+    public Effect<Done> abandonChunks(AbandonedChunks abandoned) {
+        Cache value = currentState() == null ? Cache.empty() : currentState();
+        List<ChunkRelease> releases = value.abandonedReleases(commandContext().entityId(), abandoned.chunks());
+        if (releases.isEmpty()) {
+            return effects().reply(done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity releasing {} abandoned chunks of {}", releases.size(), commandContext().entityId());
+        }
+        return effects()
+                .persistAll(withReleases(releases))
+                .thenReply(__ -> done());
+    }
+
+    // moves the expiry only, no chunk is read or written. The TTL wheel gets the new expiry from the event.
+    public Effect<CacheWriteResult> touch(CacheTouch touch) {
+        Instant now = Instant.now();
+        if (currentState() == null || currentState().deleted() || currentState().expired(now)) {
+            return effects().reply(CacheWriteResult.NOT_FOUND);
+        }
+        Optional<Duration> ttl = touch.ttlSeconds().or(() -> currentState().ttlSeconds()).or(touch::defaultTTL);
+        if (ttl.isEmpty()) {
+            // nothing to slide, the value doesn't expire
+            return effects().reply(CacheWriteResult.APPLIED);
+        }
+        Instant newExpiresAt = now.plus(ttl.get());
+        boolean worthPersisting = currentState().expiresAt()
+                .map(expiresAt -> Duration.between(expiresAt, newExpiresAt).compareTo(touch.minExtension()) >= 0)
+                .orElse(true);
+        if (!worthPersisting && touch.ttlSeconds().isEmpty()) {
+            return effects().reply(CacheWriteResult.APPLIED);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity touching {} to expire at {}", commandContext().entityId(), newExpiresAt);
+        }
+        Optional<Duration> newTtlSeconds = touch.ttlSeconds().isPresent() ? touch.ttlSeconds() : currentState().ttlSeconds();
+        return effects()
+                .persist(new CacheEvent.CacheTouched(newTtlSeconds, newExpiresAt))
+                .thenReply(__ -> CacheWriteResult.APPLIED);
+    }
+
+    // from the TTL wheel, a no-op unless the value is still the one that was scheduled to expire then
+    public Effect<Done> expire(Instant expiresAt) {
+        if (currentState() == null || !currentState().scheduledToExpireAt(expiresAt)) {
+            return effects().reply(done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity expiring {} at {}", commandContext().entityId(), expiresAt);
+        }
+        return tombstone();
+    }
+
+    private Effect<Done> tombstone() {
+        List<ChunkRelease> releases = currentState().committedReleases(commandContext().entityId());
+        List<CacheEvent> events = new ArrayList<>(withReleases(releases, CacheEvent.CacheDeleted.tombstone(currentState().org(), currentState().totalBytes())));
+        resized(currentState().org(), currentState().cacheName(), Optional.empty()).ifPresent(events::add);
+        return effects()
+                .persistAll(events)
+                .thenReply(__ -> done());
+    }
+
+    // only when the live value's size changes, rewriting a key with as many bytes isn't news to the stats
+    private Optional<CacheEvent> resized(Optional<String> org, String cacheName, Optional<ValueSize> after) {
+        Optional<ValueSize> before = currentState() == null ? Optional.empty() : currentState().liveSize();
+        if (before.equals(after)) {
+            return Optional.empty();
+        }
+        // past every event the key has persisted, so it grows with every resize of the key
+        return Optional.of(new CacheEvent.CacheResized(org, cacheName, before, after, commandContext().sequenceNumber() + 1));
+    }
+
+    /*
+     A key set again since its delete isn't a tombstone anymore, so this only purges what's still deleted.
+     The entity stays alive: purging drops the tombstone's chunks and resets the state to Cache.empty(),
+     so the same key can be set again right away (a deleted entity would refuse every command for a while).
+     */
+    public Effect<Done> purge() {
+        if (currentState() == null || !currentState().deleted() || currentState().equals(Cache.empty())) {
+            return effects().reply(done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheEntity purging tombstone {}", commandContext().entityId());
+        }
+        List<ChunkRelease> releases = currentState().stagedReleases(commandContext().entityId(), generation -> true);
+        List<CacheEvent> events = new ArrayList<>(withReleases(releases));
+        events.add(new CacheEvent.CachePurged());
+        return effects()
+                .persistAll(events)
+                .thenReply(__ -> done());
+    }
+
     @Override
     public Cache applyEvent(CacheEvent cacheEvent) {
         return switch (cacheEvent) {
-            case CacheEvent.CacheSet cache -> new Cache(cache.org(), cache.cacheName(), cache.key(), cache.ttlSeconds(), cache.totalBytes(), Arrays.asList(cache.chunk()));
+            case CacheEvent.CacheSet cache -> new Cache(cache.org(), cache.cacheName(), cache.key(), cache.ttlSeconds(), cache.totalBytes(), Arrays.asList(cache.chunk())).withContentEncoding(cache.contentEncoding(), cache.dictionaryId()).withExpiresAt(cache.expiresAt()).withChecksum(cache.checksum());
             case CacheEvent.ChunkAdded chunk -> currentState().withChunk(chunk.chunk());
+            case CacheEvent.ChunkStaged staged -> (currentState() == null ? Cache.empty() : currentState()).withStaged(new StagedChunk(staged.generation(), staged.chunk()));
+            case CacheEvent.StagedAborted aborted -> currentState().withoutStaged(aborted.generation());
+            case CacheEvent.CacheCommitted committed -> currentState().withCommitted(committed.org(), committed.cacheName(), committed.key(), committed.ttlSeconds(), committed.totalBytes(), committed.generation(), committed.contentEncoding(), committed.expiresAt(), committed.checksum());
+            case CacheEvent.CacheAppended appended -> currentState().withAppended(appended.bytes(), appended.chunkSize(), appended.checksum());
+            case CacheEvent.LastChunkInlined inlined -> currentState().withLastChunkInlined(inlined.chunk());
+            case CacheEvent.ChunksSealed sealed -> currentState().withSealed(sealed.chunks());
+            case CacheEvent.CachePatched patched -> currentState().withPatched(patched.chunks(), patched.checksum());
+            case CacheEvent.CacheTouched touched -> currentState().withTouched(touched.ttlSeconds(), touched.expiresAt());
+            case CacheEvent.ChunksReleased released -> currentState();
             case CacheEvent.CacheDeleted deleted -> currentState().asDeleted();
+            case CacheEvent.CacheResized resized -> currentState();
+            case CacheEvent.CacheAccessed accessed -> currentState();
+            case CacheEvent.CachePurged purged -> Cache.empty();
         };
     }
 
+    private static List<CacheEvent> withReleases(List<ChunkRelease> releases, CacheEvent... events) {
+        List<CacheEvent> allEvents = new ArrayList<>(Arrays.asList(events));
+        if (!releases.isEmpty()) {
+            allEvents.add(new CacheEvent.ChunksReleased(releases));
+        }
+        return allEvents;
+    }
+
     private <T> ReadOnlyEffect<T> errorNotFound() {
         return effects().error(
                 "No cache exists for id " + commandContext().entityId()
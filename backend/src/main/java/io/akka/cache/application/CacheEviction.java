@@ -0,0 +1,163 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.AccessStats;
+import io.akka.cache.domain.CacheAccess;
+import io.akka.cache.domain.CacheNameStats;
+import io.akka.cache.domain.EvictionBudget;
+import io.akka.cache.domain.EvictionPolicy;
+import io.akka.cache.domain.KeyAccess;
+import io.akka.cache.utils.FutureHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
+/*
+ Keeps the bounded cacheNames (app.eviction.cache-names) within their budget. The size comes from the
+ CacheNameStatsEntity, the ranking from the keys the CacheView has written longest ago (app.eviction.candidates
+ of them) with the sampled reads of the AccessStatsEntity shards added on. All of it lags the writes a little,
+ so a cacheName can be over its budget until the next check. Keys written more recently than the candidates
+ aren't ranked at all, whatever their reads, the ranking is an estimate either way. Each check deletes at
+ most one batch of the coldest keys through CacheEntity::delete, the same path as a client's delete, so the stats, org usage and near-caches follow.
+ Shared by the CacheTimedAction and the Bootstrap that starts its timers.
+ */
+public class CacheEviction {
+    private static final Logger log = LoggerFactory.getLogger(CacheEviction.class);
+
+    private final ComponentClient componentClient;
+    private final TimerScheduler timerScheduler;
+    private final Map<String, EvictionBudget> budgets;
+    private final int batchSize;
+    private final int candidates;
+    private final int accessShards;
+    private final Duration checkInterval;
+
+    public CacheEviction(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.componentClient = componentClient;
+        this.timerScheduler = timerScheduler;
+        this.budgets = budgets(config);
+        this.batchSize = config.getInt("app.eviction.batch-size");
+        this.candidates = config.getInt("app.eviction.candidates");
+        this.accessShards = config.getInt("app.eviction.access-shards");
+        this.checkInterval = config.getDuration("app.eviction.check-interval");
+    }
+
+    public Set<String> boundedCacheNames() {
+        return budgets.keySet();
+    }
+
+    // one timer per bounded cacheName, restarted by every check so a failed check doesn't end the checks
+    public CompletionStage<Done> scheduleCheck(String cacheName) {
+        return timerScheduler.startSingleTimer(
+                "evict-".concat(cacheName),
+                checkInterval,
+                componentClient.forTimedAction()
+                        .method(CacheTimedAction::evictCacheName)
+                        .deferred(cacheName));
+    }
+
+    public static Map<String, EvictionBudget> budgets(Config config) {
+        Map<String, EvictionBudget> budgets = new HashMap<>();
+        for (Config bounded : config.getConfigList("app.eviction.cache-names")) {
+            String cacheName = bounded.getString("name");
+            long maxBytes = bounded.hasPath("max-bytes") ? bounded.getBytes("max-bytes") : 0L;
+            long maxEntries = bounded.hasPath("max-entries") ? bounded.getLong("max-entries") : 0L;
+            EvictionPolicy policy = bounded.hasPath("policy") ? EvictionPolicy.valueOf(bounded.getString("policy").toUpperCase(Locale.ROOT)) : EvictionPolicy.LRU;
+            budgets.put(cacheName, new EvictionBudget(cacheName, maxBytes, maxEntries, policy));
+        }
+        return budgets;
+    }
+
+    public CompletionStage<Done> evict(String cacheName) {
+        EvictionBudget budget = budgets.get(cacheName);
+        if (budget == null) {
+            return CompletableFuture.completedFuture(Done.done());
+        }
+        return componentClient.forKeyValueEntity(cacheName)
+                .method(CacheNameStatsEntity::get)
+                .invokeAsync()
+                .thenCompose(stats -> budget.exceededBy(stats) ? evictColdest(budget, stats) : CompletableFuture.completedFuture(Done.done()));
+    }
+
+    private CompletionStage<Done> evictColdest(EvictionBudget budget, CacheNameStats stats) {
+        CacheView.EvictionQuery query = new CacheView.EvictionQuery(budget.cacheName(), Math.max(candidates, batchSize));
+        return componentClient.forView()
+                .method(CacheView::getEvictionCandidates)
+                .invokeAsync(query)
+                .thenCompose(found -> withReads(budget.cacheName(), found.keys()))
+                .thenCompose(ranked -> {
+                    List<KeyAccess> coldest = ranked.stream()
+                            .sorted(budget.policy().coldestFirst())
+                            .limit(batchSize)
+                            .toList();
+                    List<KeyAccess> selected = budget.select(coldest, stats);
+                    if (log.isDebugEnabled()) {
+                        log.debug("CacheEviction {} over budget with {} keys {} bytes, evicting {}", budget.cacheName(), stats.keys(), stats.totalBytes(), selected.size());
+                    }
+                    List<CompletableFuture<Done>> deletes = selected.stream()
+                            .map(keyAccess -> delete(keyAccess).toCompletableFuture())
+                            .toList();
+                    return FutureHelper.allOf(deletes).thenCompose(__ -> forget(budget.cacheName(), selected));
+                });
+    }
+
+    // the candidates with the reads their shards recorded, a shard that can't be read adds none
+    private CompletionStage<List<KeyAccess>> withReads(String cacheName, List<KeyAccess> candidates) {
+        Set<String> shardIds = candidates.stream()
+                .map(candidate -> AccessStats.shardId(cacheName, candidate.key(), accessShards))
+                .collect(Collectors.toCollection(TreeSet::new));
+        List<CompletableFuture<AccessStats>> shards = shardIds.stream()
+                .map(shardId -> componentClient.forKeyValueEntity(shardId)
+                        .method(AccessStatsEntity::get)
+                        .invokeAsync()
+                        .exceptionally(ex -> AccessStats.empty())
+                        .toCompletableFuture())
+                .toList();
+        return FutureHelper.allOf(shards).thenApply(read -> {
+            Map<String, CacheAccess> reads = new HashMap<>();
+            read.forEach(shard -> reads.putAll(shard.reads()));
+            return new AccessStats(reads).applyTo(candidates);
+        });
+    }
+
+    // evicted keys set again start over instead of inheriting the reads of the value they replace
+    private CompletionStage<Done> forget(String cacheName, List<KeyAccess> evicted) {
+        Map<String, List<String>> byShard = evicted.stream()
+                .collect(Collectors.groupingBy(keyAccess -> AccessStats.shardId(cacheName, keyAccess.key(), accessShards),
+                        Collectors.mapping(KeyAccess::key, Collectors.toList())));
+        List<CompletableFuture<Done>> forgets = byShard.entrySet().stream()
+                .map(shard -> componentClient.forKeyValueEntity(shard.getKey())
+                        .method(AccessStatsEntity::forget)
+                        .invokeAsync(shard.getValue())
+                        .exceptionally(ex -> Done.done())
+                        .toCompletableFuture())
+                .toList();
+        return FutureHelper.allOf(forgets).thenApply(__ -> Done.done());
+    }
+
+    private CompletionStage<Done> delete(KeyAccess keyAccess) {
+        return componentClient.forEventSourcedEntity(keyAccess.cacheName().concat(keyAccess.key()))
+                .method(CacheEntity::delete)
+                .invokeAsync()
+                .exceptionally(ex -> {
+                    // already deleted or expired since the view saw it, either way it's gone
+                    if (log.isDebugEnabled()) {
+                        log.debug("CacheEviction delete of {} {} failed: {}", keyAccess.cacheName(), keyAccess.key(), ex.getMessage());
+                    }
+                    return Done.done();
+                });
+    }
+}
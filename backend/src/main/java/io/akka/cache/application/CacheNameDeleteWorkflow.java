@@ -6,6 +6,7 @@ import akka.javasdk.client.ComponentClient;
 import akka.javasdk.timer.TimerScheduler;
 import akka.javasdk.workflow.Workflow;
 import io.akka.cache.domain.DeleteCacheNameState;
+import io.akka.cache.domain.KeyPageQuery;
 import io.akka.cache.utils.FutureHelper;
 import com.typesafe.config.Config;
 import org.slf4j.Logger;
@@ -13,6 +14,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 @ComponentId("cache_name_delete_workflow")
@@ -28,6 +30,7 @@ public class CacheNameDeleteWorkflow extends Workflow<DeleteCacheNameState> {
     private final ComponentClient componentClient;
     private final TimerScheduler timerScheduler;
     private final int deleteBlockSize;
+    private final int deletePageSize;
     private final int maxIntRetries;
 
     public CacheNameDeleteWorkflow(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
@@ -35,6 +38,7 @@ public class CacheNameDeleteWorkflow extends Workflow<DeleteCacheNameState> {
         this.componentClient = componentClient;
         this.timerScheduler = timerScheduler;
         this.deleteBlockSize = config.getInt("app.cache-name-delete-block-size");
+        this.deletePageSize = config.getInt("app.cache-name-delete-page-size");
         this.maxIntRetries = config.getInt("app.cache-name-delete-max-internal-retries");
         if (log.isDebugEnabled()) {
             log.debug("CacheNameDeleteWorkflow constructor deleteBlockSize is {}", deleteBlockSize);
@@ -101,17 +105,32 @@ public class CacheNameDeleteWorkflow extends Workflow<DeleteCacheNameState> {
                 });
     }
 
+    /*
+     Collects the next page of keys after the ones already deleted. Deleted keys drop out of the view, but the
+     page starts after the cursor anyway, so it doesn't matter how far behind the view is.
+     */
     protected Step getStepCollectCacheIds(String stepName, String transitionTo) {
         return step(stepName)
-                .asyncCall(() ->
-                        componentClient.forView()
-                                .method(CacheView::getCacheKeys)
-                                .invokeAsync(currentState().cacheName()))
-                .andThen(CacheView.CachedKeys.class, cachedKeys -> effects()
-                        .updateState(currentState().withCached(cachedKeys))
-                        .transitionTo(transitionTo));
+                .asyncCall(() -> {
+                    KeyPageQuery query = KeyPageQuery.of(currentState().cacheName(), Optional.empty(), Optional.empty(), deletePageSize)
+                            .next(currentState().after());
+                    return componentClient.forView()
+                            .method(CacheView::getCacheKeysPage)
+                            .invokeAsync(query)
+                            .thenApply(fetched -> new CollectedPage(new CacheView.CachedKeys(query.page(fetched.keys())), query.nextCursor(fetched.keys()).isEmpty()));
+                })
+                .andThen(CollectedPage.class, collected -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} collected {} keys of cacheName {} after '{}', last page {}", stepName, collected.page().keys().size(), currentState().cacheName(), currentState().after(), collected.lastPage());
+                    }
+                    return effects()
+                            .updateState(currentState().withPage(collected.page(), collected.lastPage()))
+                            .transitionTo(transitionTo);
+                });
     }
 
+    private record CollectedPage(CacheView.CachedKeys page, boolean lastPage) {}
+
     protected Step getStepDeleteCached(String stepName, String transitionTo, String transitionOnFlushOnly) {
         return step(stepName)
                 .asyncCall(this::deleteNextBatch)
@@ -122,7 +141,15 @@ public class CacheNameDeleteWorkflow extends Workflow<DeleteCacheNameState> {
                         log.debug("{} result offset {}", stepName, deleteBatchResult.currOffset);
                     }
                     if (deleteBatchResult.success) {
-                        if (deleteBatchResult.currOffset == currentState().keys().keys().size()) {
+                        if (deleteBatchResult.currOffset == currentState().keys().keys().size() && !currentState().lastPage()) {
+                            if (log.isDebugEnabled()) {
+                                log.debug("{} page done, collecting the next one", stepName);
+                            }
+                            return effects()
+                                    .updateState(currentState().withPageDeleted())
+                                    .transitionTo(STEP1_COLLECT_CACHE_IDS);
+                        }
+                        else if (deleteBatchResult.currOffset == currentState().keys().keys().size()) {
                             if (log.isDebugEnabled()) {
                                 log.debug("{} were done. transitionTo {}", stepName, transitionTo);
                             }
@@ -147,9 +174,9 @@ public class CacheNameDeleteWorkflow extends Workflow<DeleteCacheNameState> {
                         }
                     }
                     else {
-                        // there was an exception, so we're going to start over
+                        // there was an exception, so we're going to collect the current page again
                         if (log.isDebugEnabled()) {
-                            log.debug("{} experienced an error, restarting at the beginning of the flow.", stepName);
+                            log.debug("{} experienced an error, restarting at the current page.", stepName);
                         }
                         if ((currentState().intRetries()) == this.maxIntRetries) {
                             // we're out of here
@@ -59,6 +59,11 @@ public class CacheNameEntity extends EventSourcedEntity<CacheName, CacheNameEven
         }
     }
 
+    // unlike get, a missing cacheName is an answer here rather than an error, so only a failure is one
+    public ReadOnlyEffect<Boolean> exists() {
+        return effects().reply(currentState() != null && !currentState().deleted());
+    }
+
     @Override
     public CacheName applyEvent(CacheNameEvent cacheNameEvent) {
         return switch (cacheNameEvent) {
@@ -0,0 +1,40 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import io.akka.cache.domain.CacheNameEvent;
+import io.akka.cache.local.CacheNameExistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ A cacheName created or deleted drops this node's cached answer for it. The event subject is the
+ CacheNameEntity id, which is the cacheName. Each event is processed on one node only, the other
+ nodes keep their answer for up to its TTL (see CacheNameExistence).
+ */
+@ComponentId("cache-name-existence-invalidator")
+@Consume.FromEventSourcedEntity(CacheNameEntity.class)
+public class CacheNameExistenceInvalidator extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(CacheNameExistenceInvalidator.class);
+
+    private final CacheNameExistence cacheNameExistence;
+
+    public CacheNameExistenceInvalidator(CacheNameExistence cacheNameExistence) {
+        this.cacheNameExistence = cacheNameExistence;
+    }
+
+    public Effect onEvent(CacheNameEvent cacheNameEvent) {
+        // a new description doesn't change whether the cacheName exists
+        if (cacheNameEvent instanceof CacheNameEvent.CacheNameChanged) {
+            return effects().ignore();
+        }
+        messageContext().eventSubject().ifPresent(cacheName -> {
+            if (log.isDebugEnabled()) {
+                log.debug("CacheNameExistenceInvalidator {} received for {}", cacheNameEvent.getClass().getSimpleName(), cacheName);
+            }
+            cacheNameExistence.invalidate(cacheName);
+        });
+        return effects().done();
+    }
+}
@@ -0,0 +1,43 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import io.akka.cache.domain.CacheNameStats;
+import io.akka.cache.domain.ResizeBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static akka.Done.done;
+
+/*
+ The totals of one cacheName (the entity id), fed batches of resizes by the CacheNameStatsFeeder.
+ Only the totals are kept, every write of a busy cacheName would otherwise be an event in its journal.
+ */
+@ComponentId("cache-name-totals")
+public class CacheNameStatsEntity extends KeyValueEntity<CacheNameStats> {
+    private static final Logger log = LoggerFactory.getLogger(CacheNameStatsEntity.class);
+
+    @Override
+    public CacheNameStats emptyState() {
+        return CacheNameStats.empty();
+    }
+
+    public Effect<Done> resized(ResizeBatch batch) {
+        CacheNameStats stats = currentState().withResizes(batch);
+        if (log.isDebugEnabled()) {
+            log.debug("CacheNameStatsEntity {} resized by {} of {} resizes", commandContext().entityId(), batch.unapplied(currentState().highWaterMarks()).size(), batch.resizes().size());
+        }
+        // all of them redelivered
+        if (stats.equals(currentState())) {
+            return effects().reply(done());
+        }
+        return effects()
+                .updateState(stats)
+                .thenReply(done());
+    }
+
+    public ReadOnlyEffect<CacheNameStats> get() {
+        return effects().reply(currentState());
+    }
+}
@@ -0,0 +1,43 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import io.akka.cache.domain.CacheEvent;
+import io.akka.cache.domain.ResizeBatch;
+import io.akka.cache.local.ResizeBatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ Moves every change in a key's live size over to its cacheName's CacheNameStatsEntity, batched with
+ the other resizes of the cacheName that come in while a write to it is in flight.
+ Everything but CacheResized is ignored, the entity already worked out what the write did.
+ */
+@ComponentId("cache-name-stats-feeder")
+@Consume.FromEventSourcedEntity(CacheEntity.class)
+public class CacheNameStatsFeeder extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(CacheNameStatsFeeder.class);
+
+    private final ComponentClient componentClient;
+    private final ResizeBatcher resizeBatcher;
+
+    public CacheNameStatsFeeder(ComponentClient componentClient, ResizeBatcher resizeBatcher) {
+        this.componentClient = componentClient;
+        this.resizeBatcher = resizeBatcher;
+    }
+
+    public Effect onEvent(CacheEvent cacheEvent) {
+        if (!(cacheEvent instanceof CacheEvent.CacheResized resized) || resized.cacheName().isEmpty()) {
+            return effects().ignore();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("CacheNameStatsFeeder {} from {} to {}", resized.cacheName(), resized.before(), resized.after());
+        }
+        return effects().asyncDone(resizeBatcher.add("cache-name-totals/".concat(resized.cacheName()), ResizeBatch.Resize.of(messageContext().eventSubject().orElse(""), resized),
+                batch -> componentClient.forKeyValueEntity(resized.cacheName())
+                        .method(CacheNameStatsEntity::resized)
+                        .invokeAsync(batch)));
+    }
+}
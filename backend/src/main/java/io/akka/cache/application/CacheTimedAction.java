@@ -4,6 +4,8 @@ import akka.Done;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.timedaction.TimedAction;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,11 +14,17 @@ public class CacheTimedAction extends TimedAction {
     private static final Logger log = LoggerFactory.getLogger(CacheTimedAction.class);
 
     private final ComponentClient componentClient;
+    private final TtlWheel wheel;
+    private final CacheEviction eviction;
 
-    public CacheTimedAction(ComponentClient componentClient) {
+    // eviction is the Bootstrap's, so the budgets are read from the config once and not per timer
+    public CacheTimedAction(Config config, ComponentClient componentClient, TimerScheduler timerScheduler, CacheEviction eviction) {
         this.componentClient = componentClient;
+        this.wheel = new TtlWheel(config, componentClient, timerScheduler);
+        this.eviction = eviction;
     }
 
+    // per-key timers from before the TTL wheel, kept so the ones already scheduled still fire
     public Effect expireCacheTTL(String cacheId) {
         if (log.isDebugEnabled()) {
             log.debug("CacheTimedAction expiring cache for cacheId {}", cacheId);
@@ -28,4 +36,34 @@ public class CacheTimedAction extends TimedAction {
                         .thenApply(__ -> Done.done()));
     }
 
+    // purges are scheduled through the TtlWheel now, this still serves the per key timers started before that
+    public Effect purgeTombstone(String cacheId) {
+        if (log.isDebugEnabled()) {
+            log.debug("CacheTimedAction purging tombstone for cacheId {}", cacheId);
+        }
+        return effects().asyncDone(
+                componentClient.forEventSourcedEntity(cacheId)
+                        .method(CacheEntity::purge)
+                        .invokeAsync());
+    }
+
+    public Effect expireTtlBucket(String bucketId) {
+        if (log.isDebugEnabled()) {
+            log.debug("CacheTimedAction expiring TTL bucket {}", bucketId);
+        }
+        return effects().asyncDone(wheel.expireBucket(bucketId));
+    }
+
+    public Effect evictCacheName(String cacheName) {
+        if (log.isDebugEnabled()) {
+            log.debug("CacheTimedAction checking eviction budget of cacheName {}", cacheName);
+        }
+        return effects().asyncDone(
+                eviction.evict(cacheName)
+                        .exceptionally(ex -> {
+                            log.error("CacheTimedAction eviction of cacheName {} failed: {}", cacheName, ex.getMessage());
+                            return Done.done();
+                        })
+                        .thenCompose(__ -> eviction.scheduleCheck(cacheName)));
+    }
 }
@@ -6,12 +6,21 @@ import akka.javasdk.annotations.Query;
 import akka.javasdk.view.TableUpdater;
 import akka.javasdk.view.View;
 import io.akka.cache.domain.CacheEvent;
+import io.akka.cache.domain.KeyAccess;
+import io.akka.cache.domain.KeyPageQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
 import java.util.List;
 
-@ComponentId("cache_keys_view")
+/*
+ The rows became KeyAccess (size and last write for eviction) instead of CacheSummary, so the view has a
+ new id and is built again from the CacheEntity events rather than reading rows of the old type. The reads
+ aren't in here, they're kept in the AccessStatsEntity shards and CacheEviction adds them to the candidates
+ this view gives it. Rows built from older journals still hold the reads of their CacheAccessed events.
+ */
+@ComponentId("cache_key_access_view")
 public class CacheView extends View {
 
     private static final Logger log = LoggerFactory.getLogger(CacheView.class);
@@ -19,31 +28,77 @@ public class CacheView extends View {
     public record CacheSummaries(List<CacheSummary> cached) {}
     public record CacheSummary(String cacheName, String key) {}
     public record CachedKeys(List<String> keys) {}
+    public record EvictionQuery(String cacheName, int limit) {}
+    public record ColdKeys(List<KeyAccess> keys) {}
 
     @Consume.FromEventSourcedEntity(CacheEntity.class)
-    public static class KeysByCacheName extends TableUpdater<CacheSummary> {
-        public Effect<CacheSummary> onEvent(CacheEvent cacheEvent) {
+    public static class KeysByCacheName extends TableUpdater<KeyAccess> {
+        public Effect<KeyAccess> onEvent(CacheEvent cacheEvent) {
             return switch (cacheEvent) {
                 case CacheEvent.CacheSet cache -> {
                     if (log.isDebugEnabled()) {
                         log.debug("CacheView CacheSet received for {} {}", cache.cacheName(), cache.key());
                     }
                     yield effects()
-                            .updateRow(new CacheSummary(cache.cacheName(), cache.key()));
+                            .updateRow(written(cache.cacheName(), cache.key(), cache.totalBytes()));
+                }
+                case CacheEvent.CacheCommitted committed -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("CacheView CacheCommitted received for {} {}", committed.cacheName(), committed.key());
+                    }
+                    yield effects()
+                            .updateRow(written(committed.cacheName(), committed.key(), committed.totalBytes()));
                 }
                 case CacheEvent.ChunkAdded chunk -> effects().ignore();
-                case CacheEvent.CacheDeleted deleted -> effects().deleteRow();
+                case CacheEvent.ChunkStaged staged -> effects().ignore();
+                case CacheEvent.StagedAborted aborted -> effects().ignore();
+                case CacheEvent.CacheAppended appended -> effects().ignore();
+                case CacheEvent.LastChunkInlined inlined -> effects().ignore();
+                case CacheEvent.ChunksSealed sealed -> effects().ignore();
+                case CacheEvent.CachePatched patched -> effects().ignore();
+                case CacheEvent.CacheTouched touched -> effects().ignore();
+                case CacheEvent.ChunksReleased released -> effects().ignore();
+                // appends and patches change the size without a CacheSet
+                case CacheEvent.CacheResized resized -> rowState() == null || resized.after().isEmpty()
+                        ? effects().ignore()
+                        : effects().updateRow(rowState().withTotalBytes(resized.after().get().totalBytes()));
+                // only in older journals
+                case CacheEvent.CacheAccessed accessed -> rowState() == null
+                        ? effects().ignore()
+                        : effects().updateRow(rowState().withAccess(accessed.at(), accessed.reads()));
+                case CacheEvent.CachePurged purged -> effects().ignore();
+                // a replaced value is followed by the CacheSet or CacheCommitted of its replacement, which updates the row
+                case CacheEvent.CacheDeleted deleted -> deleted.tombstone() || !deleted.replaced()
+                        ? effects().deleteRow()
+                        : effects().ignore();
             };
         }
+
+        private KeyAccess written(String cacheName, String key, long totalBytes) {
+            Instant now = Instant.now();
+            return rowState() == null ? KeyAccess.written(cacheName, key, totalBytes, now) : rowState().withWrite(totalBytes, now);
+        }
     }
 
-    @Query("SELECT (cacheName, key) AS cached FROM cache_keys_view WHERE cacheName = :cacheName")
+    @Query("SELECT (cacheName, key) AS cached FROM cache_key_access_view WHERE cacheName = :cacheName")
     public QueryEffect<CacheSummaries> getCacheSummaries(String cacheName) {
         return queryResult();
     }
 
-    @Query("SELECT key AS keys FROM cache_keys_view WHERE cacheName = :cacheName")
-    public QueryEffect<CachedKeys> getCacheKeys(String cacheName) {
+    // keyset pagination, see KeyPageQuery
+    @Query("SELECT key AS keys FROM cache_key_access_view WHERE cacheName = :cacheName AND key > :after AND key >= :prefix ORDER BY key LIMIT :limit")
+    public QueryEffect<CachedKeys> getCacheKeysPage(KeyPageQuery query) {
+        return queryResult();
+    }
+
+    @Query("SELECT key AS keys FROM cache_key_access_view WHERE cacheName = :cacheName AND key > :after AND key >= :prefix AND key < :prefixEnd ORDER BY key LIMIT :limit")
+    public QueryEffect<CachedKeys> getCacheKeysPageWithPrefix(KeyPageQuery query) {
+        return queryResult();
+    }
+
+    // the keys written longest ago first, what CacheEviction ranks with their reads and deletes from
+    @Query("SELECT * AS keys FROM cache_key_access_view WHERE cacheName = :cacheName ORDER BY lastAccessed ASC LIMIT :limit")
+    public QueryEffect<ColdKeys> getEvictionCandidates(EvictionQuery query) {
         return queryResult();
     }
 }
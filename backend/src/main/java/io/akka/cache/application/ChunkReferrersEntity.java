@@ -0,0 +1,50 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import io.akka.cache.domain.ChunkReferrers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ One shard of the referrers of a stored chunk, the id comes from ChunkReferrers.shardId. A referrer is
+ added here before the ChunkStoreEntity is told about the shard, and removed here before the ChunkStoreEntity
+ hears the shard emptied, so the payload entity never holds more than a number per shard.
+ */
+@ComponentId("chunk-referrers")
+public class ChunkReferrersEntity extends KeyValueEntity<ChunkReferrers> {
+    private static final Logger log = LoggerFactory.getLogger(ChunkReferrersEntity.class);
+
+    @Override
+    public ChunkReferrers emptyState() {
+        return ChunkReferrers.empty();
+    }
+
+    // replies the shard's epoch, the one the ChunkStoreEntity has to know it by
+    public Effect<Long> add(String referrer) {
+        ChunkReferrers added = currentState().with(referrer);
+        if (added.equals(currentState())) {
+            return effects().reply(currentState().epoch());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkReferrersEntity {} referenced by {}, {} referrers", commandContext().entityId(), referrer, added.referrers().size());
+        }
+        return effects()
+                .updateState(added)
+                .thenReply(added.epoch());
+    }
+
+    // replies whether the shard is empty, also when the referrer was already gone, so a retried release still reaches the ChunkStoreEntity
+    public Effect<ChunkReferrers.Released> remove(String referrer) {
+        ChunkReferrers removed = currentState().without(referrer);
+        if (removed.equals(currentState())) {
+            return effects().reply(currentState().released());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkReferrersEntity {} released by {}, {} referrers left", commandContext().entityId(), referrer, removed.referrers().size());
+        }
+        return effects()
+                .updateState(removed)
+                .thenReply(removed.released());
+    }
+}
@@ -0,0 +1,111 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import io.akka.cache.domain.ChunkShard;
+import io.akka.cache.domain.ChunkStore;
+import io.akka.cache.domain.ChunkStoreEvent;
+import io.akka.cache.domain.StoreChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static akka.Done.done;
+
+/*
+ Content-addressed chunk storage, the entity id is the SHA-256 of the chunk bytes.
+ CacheEntity manifests point at these, so bytes shared by many keys (and cacheNames) are persisted once.
+ Who points at them is kept in the ChunkReferrersEntity shards, here only which shards hold any, so neither
+ the state nor its snapshots grow with the number of keys sharing the bytes.
+ */
+@ComponentId("chunk-store")
+public class ChunkStoreEntity extends EventSourcedEntity<ChunkStore, ChunkStoreEvent> {
+    private static final Logger log = LoggerFactory.getLogger(ChunkStoreEntity.class);
+
+    @Override
+    public ChunkStore emptyState() {
+        return ChunkStore.empty();
+    }
+
+    /*
+     Adds a shard's reference without sending the bytes, the referrer is already in the shard. Replies false
+     when the chunk isn't held, in which case the caller has to store it.
+     */
+    public Effect<Boolean> reference(ChunkShard shard) {
+        if (!currentState().holdsPayload()) {
+            return effects().reply(false);
+        }
+        if (currentState().referencedBy(shard)) {
+            return effects().reply(true);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkStoreEntity {} referenced by shard {} at epoch {}", commandContext().entityId(), shard.shard(), shard.epoch());
+        }
+        return effects()
+                .persist(new ChunkStoreEvent.ChunkShardReferenced(shard))
+                .thenReply(__ -> true);
+    }
+
+    public Effect<Done> store(StoreChunk storeChunk) {
+        // two writers of the same bytes can both miss on reference, the second one only needs a reference
+        if (currentState().holdsPayload()) {
+            if (currentState().referencedBy(storeChunk.shard())) {
+                return effects().reply(done());
+            }
+            return effects()
+                    .persist(new ChunkStoreEvent.ChunkShardReferenced(storeChunk.shard()))
+                    .thenReply(__ -> done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkStoreEntity {} storing {} bytes for shard {}", commandContext().entityId(), storeChunk.payload().length, storeChunk.shard().shard());
+        }
+        return effects()
+                .persist(new ChunkStoreEvent.ChunkStoredForShard(storeChunk.payload(), storeChunk.shard()))
+                .thenReply(__ -> done());
+    }
+
+    // the referrers the chunk got before the shards, a referrer it doesn't hold is a no-op
+    public Effect<Done> release(String referrer) {
+        if (!currentState().referencedBy(referrer)) {
+            return effects().reply(done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkStoreEntity {} released by {}, {} referrers left", commandContext().entityId(), referrer, currentState().referrers().size() - 1);
+        }
+        return effects()
+                .persist(new ChunkStoreEvent.ChunkReleased(referrer))
+                .thenReply(__ -> done());
+    }
+
+    // the shard emptied at shard.epoch(), ignored when it was referenced again since
+    public Effect<Done> shardReleased(ChunkShard shard) {
+        if (!currentState().heldAt(shard)) {
+            return effects().reply(done());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkStoreEntity {} released by shard {}, {} shards left", commandContext().entityId(), shard.shard(), currentState().shards().size() - 1);
+        }
+        return effects()
+                .persist(new ChunkStoreEvent.ChunkShardReleased(shard))
+                .thenReply(__ -> done());
+    }
+
+    public ReadOnlyEffect<byte[]> get() {
+        if (!currentState().holdsPayload()) {
+            return effects().error("No chunk stored for hash " + commandContext().entityId());
+        }
+        return effects().reply(currentState().payload());
+    }
+
+    @Override
+    public ChunkStore applyEvent(ChunkStoreEvent chunkStoreEvent) {
+        return switch (chunkStoreEvent) {
+            case ChunkStoreEvent.ChunkStored stored -> currentState().withPayload(stored.payload(), stored.referrer());
+            case ChunkStoreEvent.ChunkReferenced referenced -> currentState().withReferrer(referenced.referrer());
+            case ChunkStoreEvent.ChunkReleased released -> currentState().withoutReferrer(released.referrer());
+            case ChunkStoreEvent.ChunkStoredForShard stored -> currentState().withPayload(stored.payload(), stored.shard());
+            case ChunkStoreEvent.ChunkShardReferenced referenced -> currentState().withShard(referenced.shard());
+            case ChunkStoreEvent.ChunkShardReleased released -> currentState().withoutShard(released.shard());
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import io.akka.cache.domain.CacheEvent;
+import io.akka.cache.domain.ChunkReferrers;
+import io.akka.cache.domain.ChunkRelease;
+import io.akka.cache.domain.ChunkShard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/*
+ Drops the references a CacheEntity gave up (the value was replaced, deleted, or its upload aborted).
+ A referrer is removed from its ChunkReferrers shard, and the ChunkStoreEntity hears about the shard once
+ it's empty; referrers stored before the shards are released on the ChunkStoreEntity itself. Releasing is
+ idempotent per referrer, so redelivery of an event is harmless.
+ */
+@ComponentId("chunk-store-releaser")
+@Consume.FromEventSourcedEntity(CacheEntity.class)
+public class ChunkStoreReleaser extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(ChunkStoreReleaser.class);
+
+    private final ComponentClient componentClient;
+
+    public ChunkStoreReleaser(ComponentClient componentClient) {
+        this.componentClient = componentClient;
+    }
+
+    public Effect onEvent(CacheEvent cacheEvent) {
+        if (!(cacheEvent instanceof CacheEvent.ChunksReleased released)) {
+            return effects().ignore();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ChunkStoreReleaser releasing {} chunks for {}", released.releases().size(), messageContext().eventSubject().orElse(""));
+        }
+        CompletableFuture<?>[] releases = released.releases().stream()
+                .map(release -> release(release).toCompletableFuture())
+                .toArray(CompletableFuture[]::new);
+        return effects().asyncDone(CompletableFuture.allOf(releases).thenApply(__ -> Done.done()));
+    }
+
+    private CompletionStage<Done> release(ChunkRelease release) {
+        int shard = ChunkReferrers.shardOf(release.referrer());
+        return componentClient.forEventSourcedEntity(release.contentHash())
+                .method(ChunkStoreEntity::release)
+                .invokeAsync(release.referrer())
+                .thenCompose(__ -> componentClient.forKeyValueEntity(ChunkReferrers.shardId(release.contentHash(), shard))
+                        .method(ChunkReferrersEntity::remove)
+                        .invokeAsync(release.referrer()))
+                .thenCompose(released -> released.empty()
+                        ? componentClient.forEventSourcedEntity(release.contentHash())
+                                .method(ChunkStoreEntity::shardReleased)
+                                .invokeAsync(new ChunkShard(shard, released.epoch()))
+                        : CompletableFuture.completedFuture(Done.done()));
+    }
+}
@@ -0,0 +1,56 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import io.akka.cache.domain.CompressionDictionary;
+import io.akka.cache.domain.CompressionDictionaryEvent;
+import io.akka.cache.domain.DictionaryTraining;
+import io.akka.cache.domain.DictionaryVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/*
+ The compression dictionaries of one cacheName (the entity id). Training happens in the endpoint,
+ only the finished dictionary is sent here, so a retrain is a single small event.
+ */
+@ComponentId("compression-dictionary")
+public class CompressionDictionaryEntity extends EventSourcedEntity<CompressionDictionary, CompressionDictionaryEvent> {
+    private static final Logger log = LoggerFactory.getLogger(CompressionDictionaryEntity.class);
+
+    @Override
+    public CompressionDictionary emptyState() {
+        return CompressionDictionary.empty();
+    }
+
+    public Effect<DictionaryVersion> add(DictionaryTraining training) {
+        int version = currentState().current().version() + 1;
+        if (log.isDebugEnabled()) {
+            log.debug("CompressionDictionaryEntity {} version {} trained from {} samples, {} bytes", commandContext().entityId(), version, training.samples(), training.dictionary().length);
+        }
+        return effects()
+                .persist(new CompressionDictionaryEvent.DictionaryTrained(version, training.dictionary(), training.samples()))
+                .thenReply(CompressionDictionary::current);
+    }
+
+    // DictionaryVersion.NONE until the cacheName has trained one
+    public ReadOnlyEffect<DictionaryVersion> current() {
+        return effects().reply(currentState().current());
+    }
+
+    public ReadOnlyEffect<DictionaryVersion> get(int version) {
+        Optional<DictionaryVersion> dictionaryVersion = currentState().version(version);
+        if (dictionaryVersion.isEmpty()) {
+            return effects().error("No dictionary version " + version + " for cacheName " + commandContext().entityId());
+        }
+        return effects().reply(dictionaryVersion.get());
+    }
+
+    @Override
+    public CompressionDictionary applyEvent(CompressionDictionaryEvent dictionaryEvent) {
+        return switch (dictionaryEvent) {
+            case CompressionDictionaryEvent.DictionaryTrained trained -> currentState().withVersion(new DictionaryVersion(trained.version(), trained.dictionary()));
+        };
+    }
+}
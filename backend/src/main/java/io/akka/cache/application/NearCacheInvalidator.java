@@ -0,0 +1,43 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import io.akka.cache.domain.CacheEvent;
+import io.akka.cache.local.NearCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ Any change to a cached key (set, chunk added, delete) drops it from the near-cache.
+ The event subject is the CacheEntity id, which is the same cacheName + key compound
+ key the near-cache uses.
+
+ A consumer processes each event on one node only, so this clears that node's copy and no other.
+ It narrows the window there, the other nodes rely on app.near-cache.max-staleness (see NearCache).
+ */
+@ComponentId("near-cache-invalidator")
+@Consume.FromEventSourcedEntity(CacheEntity.class)
+public class NearCacheInvalidator extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(NearCacheInvalidator.class);
+
+    private final NearCache nearCache;
+
+    public NearCacheInvalidator(NearCache nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    public Effect onEvent(CacheEvent cacheEvent) {
+        // a sampled read doesn't change the value
+        if (cacheEvent instanceof CacheEvent.CacheAccessed) {
+            return effects().ignore();
+        }
+        messageContext().eventSubject().ifPresent(cacheId -> {
+            if (log.isDebugEnabled()) {
+                log.debug("NearCacheInvalidator {} received for {}", cacheEvent.getClass().getSimpleName(), cacheId);
+            }
+            nearCache.invalidate(cacheId);
+        });
+        return effects().done();
+    }
+}
@@ -0,0 +1,43 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import io.akka.cache.domain.CacheEvent;
+import io.akka.cache.domain.ResizeBatch;
+import io.akka.cache.local.ResizeBatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ Moves every change in the size of an org's values over to its OrganizationEntity, batched with the
+ other resizes of the org that come in while a write to it is in flight. Values without an org aren't accounted.
+ */
+@ComponentId("organization-accounting")
+@Consume.FromEventSourcedEntity(CacheEntity.class)
+public class OrganizationAccounting extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(OrganizationAccounting.class);
+
+    private final ComponentClient componentClient;
+    private final ResizeBatcher resizeBatcher;
+
+    public OrganizationAccounting(ComponentClient componentClient, ResizeBatcher resizeBatcher) {
+        this.componentClient = componentClient;
+        this.resizeBatcher = resizeBatcher;
+    }
+
+    public Effect onEvent(CacheEvent cacheEvent) {
+        if (!(cacheEvent instanceof CacheEvent.CacheResized resized) || resized.org().isEmpty()) {
+            return effects().ignore();
+        }
+        String org = resized.org().get();
+        if (log.isDebugEnabled()) {
+            log.debug("OrganizationAccounting {} from {} to {}", org, resized.before(), resized.after());
+        }
+        return effects().asyncDone(resizeBatcher.add("organization-usage/".concat(org), ResizeBatch.Resize.of(messageContext().eventSubject().orElse(""), resized),
+                batch -> componentClient.forKeyValueEntity(org)
+                        .method(OrganizationEntity::resized)
+                        .invokeAsync(batch)));
+    }
+}
@@ -0,0 +1,44 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import io.akka.cache.domain.Organization;
+import io.akka.cache.domain.ResizeBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static akka.Done.done;
+
+/*
+ The bytes one org (the entity id) has cached, fed batches of resizes by the OrganizationAccounting consumer.
+ Writes are admitted against the OrgQuotas copy of this, not against the entity itself.
+ Only the totals are kept, every write of a busy org would otherwise be an event in its journal.
+ */
+@ComponentId("organization-usage")
+public class OrganizationEntity extends KeyValueEntity<Organization> {
+    private static final Logger log = LoggerFactory.getLogger(OrganizationEntity.class);
+
+    @Override
+    public Organization emptyState() {
+        return Organization.empty();
+    }
+
+    public Effect<Done> resized(ResizeBatch batch) {
+        Organization organization = currentState().withResizes(batch);
+        if (log.isDebugEnabled()) {
+            log.debug("OrganizationEntity {} resized by {} of {} resizes", commandContext().entityId(), batch.unapplied(currentState().highWaterMarks()).size(), batch.resizes().size());
+        }
+        // all of them redelivered
+        if (organization.equals(currentState())) {
+            return effects().reply(done());
+        }
+        return effects()
+                .updateState(organization)
+                .thenReply(done());
+    }
+
+    public ReadOnlyEffect<Organization> get() {
+        return effects().reply(currentState());
+    }
+}
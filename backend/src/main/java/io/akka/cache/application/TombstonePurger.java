@@ -0,0 +1,45 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.CacheEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*
+ Every delete (by the API, a TTL expiry or a cacheName flush) leaves a tombstone, and this schedules
+ its purge in the TtlWheel's purge buckets. Scheduling here rather than at each call site keeps the
+ bucket write off the delete's response path. A delete of the same key again adds another entry, the
+ earlier one can purge the newer tombstone up to one grace period early, which is harmless.
+ */
+@ComponentId("tombstone-purger")
+@Consume.FromEventSourcedEntity(CacheEntity.class)
+public class TombstonePurger extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(TombstonePurger.class);
+
+    private final TtlWheel wheel;
+    private final Duration gracePeriod;
+
+    public TombstonePurger(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.wheel = new TtlWheel(config, componentClient, timerScheduler);
+        this.gracePeriod = config.getDuration("app.tombstone-grace-period");
+    }
+
+    public Effect onEvent(CacheEvent cacheEvent) {
+        if (!(cacheEvent instanceof CacheEvent.CacheDeleted deleted) || !deleted.tombstone() || messageContext().eventSubject().isEmpty()) {
+            return effects().ignore();
+        }
+        String cacheId = messageContext().eventSubject().get();
+        if (log.isDebugEnabled()) {
+            log.debug("TombstonePurger purging {} in {}", cacheId, gracePeriod);
+        }
+        return effects().asyncDone(wheel.schedulePurge(cacheId, Instant.now().plus(gracePeriod)));
+    }
+}
@@ -0,0 +1,79 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import io.akka.cache.domain.TtlBucket;
+import io.akka.cache.domain.TtlBucketEvent;
+import io.akka.cache.domain.TtlEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static akka.Done.done;
+
+/*
+ One slot of the TTL wheel, the id comes from TtlSlots.bucketFor. Keys are added as they're set, and
+ when the bucket's single timer fires TtlWheel reads them a page at a time. An entry is only removed
+ once its expire has succeeded, so a failed one is still here for the retry. The wheel caps how many
+ entries a bucket takes (app.ttl-wheel.max-bucket-entries), which bounds both the state and its snapshots.
+ */
+@ComponentId("ttl-bucket")
+public class TtlBucketEntity extends EventSourcedEntity<TtlBucket, TtlBucketEvent> {
+    private static final Logger log = LoggerFactory.getLogger(TtlBucketEntity.class);
+
+    @Override
+    public TtlBucket emptyState() {
+        return TtlBucket.empty();
+    }
+
+    // replies whether the entry was taken and whether the bucket's timer is already running, false means the caller has to start it
+    public Effect<TtlEntry.TtlAdded> add(TtlEntry.TtlAdd add) {
+        TtlEntry ttlEntry = add.entry();
+        if (ttlEntry.expiresAt().equals(currentState().entries().get(ttlEntry.cacheId()))) {
+            return effects().reply(new TtlEntry.TtlAdded(true, currentState().timerStarted()));
+        }
+        if (currentState().full(ttlEntry.cacheId(), add.maxEntries())) {
+            return effects().reply(new TtlEntry.TtlAdded(false, currentState().timerStarted()));
+        }
+        return effects()
+                .persist(new TtlBucketEvent.TtlEntryAdded(ttlEntry.cacheId(), ttlEntry.expiresAt()))
+                .thenReply(bucket -> new TtlEntry.TtlAdded(true, bucket.timerStarted()));
+    }
+
+    public Effect<Done> timerStarted() {
+        if (currentState().timerStarted()) {
+            return effects().reply(done());
+        }
+        return effects()
+                .persist(new TtlBucketEvent.TtlTimerStarted())
+                .thenReply(__ -> done());
+    }
+
+    public ReadOnlyEffect<TtlEntry.TtlEntries> page(TtlEntry.TtlPage page) {
+        return effects().reply(new TtlEntry.TtlEntries(currentState().page(page.afterCacheId(), page.limit())));
+    }
+
+    // replies how many entries are left, expired with an empty list once those are gone resets the timer
+    public Effect<Integer> expired(TtlEntry.TtlEntries expired) {
+        if (log.isDebugEnabled()) {
+            log.debug("TtlBucketEntity {} expired {} of {} entries", commandContext().entityId(), expired.entries().size(), currentState().entries().size());
+        }
+        boolean timerToReset = currentState().entries().isEmpty() && currentState().timerStarted();
+        if (expired.entries().isEmpty() && !timerToReset) {
+            return effects().reply(currentState().entries().size());
+        }
+        return effects()
+                .persist(new TtlBucketEvent.TtlEntriesExpired(expired.entries()))
+                .thenReply(bucket -> bucket.entries().size());
+    }
+
+    @Override
+    public TtlBucket applyEvent(TtlBucketEvent ttlBucketEvent) {
+        return switch (ttlBucketEvent) {
+            case TtlBucketEvent.TtlEntryAdded added -> currentState().withEntry(added.cacheId(), added.expiresAt());
+            case TtlBucketEvent.TtlTimerStarted started -> currentState().withTimerStarted();
+            case TtlBucketEvent.TtlBucketDrained drained -> TtlBucket.empty();
+            case TtlBucketEvent.TtlEntriesExpired expired -> currentState().withExpired(expired.entries());
+        };
+    }
+}
@@ -0,0 +1,218 @@
+package io.akka.cache.application;
+
+import akka.Done;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.TtlEntry;
+import io.akka.cache.domain.TtlSlots;
+import io.akka.cache.utils.FutureHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/*
+ Expiry of keys in time buckets rather than one durable timer per key. Scheduling a key is one event on
+ its bucket; only the first key into a bucket starts the bucket's timer, so timer writes per set are
+ close to zero at any real write rate. Shared by the TtlWheelFeeder, the TombstonePurger and the CacheTimedAction.
+
+ Tombstone purges go through purge buckets (see TtlSlots), so a burst of deletes costs a handful of bucket
+ timers rather than a durable timer per deleted key.
+ */
+public class TtlWheel {
+    private static final Logger log = LoggerFactory.getLogger(TtlWheel.class);
+
+    private final ComponentClient componentClient;
+    private final TimerScheduler timerScheduler;
+    private final TtlSlots slots;
+    private final int maxBucketEntries;
+    private final int expireParallelism;
+    private final int drainPageSize;
+    private final Duration retryDelay;
+
+    public TtlWheel(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.componentClient = componentClient;
+        this.timerScheduler = timerScheduler;
+        this.slots = new TtlSlots(
+                config.getDuration("app.ttl-wheel.bucket-width"),
+                config.getDuration("app.ttl-wheel.coarse-horizon"),
+                config.getDuration("app.ttl-wheel.coarse-bucket-width"),
+                config.getDuration("app.ttl-wheel.jitter"),
+                config.getInt("app.ttl-wheel.shards"));
+        this.maxBucketEntries = config.getInt("app.ttl-wheel.max-bucket-entries");
+        this.expireParallelism = config.getInt("app.ttl-wheel.expire-parallelism");
+        this.drainPageSize = config.getInt("app.ttl-wheel.drain-page-size");
+        this.retryDelay = config.getDuration("app.ttl-wheel.retry-delay");
+    }
+
+    public CompletionStage<Done> schedule(String cacheId, Instant expiresAt) {
+        return schedule(cacheId, expiresAt, false);
+    }
+
+    // the purge only deletes what is still a tombstone by then, see CacheEntity.purge
+    public CompletionStage<Done> schedulePurge(String cacheId, Instant purgeAt) {
+        return schedule(cacheId, purgeAt, true);
+    }
+
+    private CompletionStage<Done> schedule(String cacheId, Instant at, boolean purge) {
+        Instant now = Instant.now();
+        Instant slotTime = slots.slotTime(cacheId, at);
+        // a lagging consumer can be handed an expiry that has already passed
+        if (!slotTime.isAfter(now)) {
+            TtlEntry entry = new TtlEntry(cacheId, at);
+            // failing lets the caller retry, the consumer redelivers and a cascading bucket keeps the entry
+            return (purge ? purge(entry) : expire(entry)).thenCompose(expired -> expired
+                    ? CompletableFuture.completedFuture(Done.done())
+                    : CompletableFuture.<Done>failedFuture(new IllegalStateException("failed to " + (purge ? "purge " : "expire ") + cacheId)));
+        }
+        String bucketId = purge ? slots.purgeBucketFor(cacheId, slotTime, now) : slots.bucketFor(cacheId, slotTime, now);
+        return add(bucketId, new TtlEntry(cacheId, at), now);
+    }
+
+    private CompletionStage<Done> add(String bucketId, TtlEntry entry, Instant now) {
+        return componentClient.forEventSourcedEntity(bucketId)
+                .method(TtlBucketEntity::add)
+                .invokeAsync(new TtlEntry.TtlAdd(entry, maxBucketEntries))
+                .thenCompose(added -> {
+                    if (!added.added()) {
+                        String spillId = slots.spill(bucketId);
+                        if (log.isDebugEnabled()) {
+                            log.debug("TtlWheel bucket {} is full, adding {} to {}", bucketId, entry.cacheId(), spillId);
+                        }
+                        return add(spillId, entry, now);
+                    }
+                    return added.timerStarted() ? CompletableFuture.completedFuture(Done.done()) : startTimer(bucketId, now);
+                });
+    }
+
+    private CompletionStage<Done> startTimer(String bucketId, Instant now) {
+        Duration delay = Duration.between(now, slots.firesAt(bucketId));
+        return startTimer(bucketId, delay.isNegative() ? Duration.ZERO : delay)
+                .thenCompose(__ -> componentClient.forEventSourcedEntity(bucketId)
+                        .method(TtlBucketEntity::timerStarted)
+                        .invokeAsync());
+    }
+
+    private CompletionStage<Done> startTimer(String bucketId, Duration delay) {
+        if (log.isDebugEnabled()) {
+            log.debug("TtlWheel starting timer for bucket {} in {}", bucketId, delay);
+        }
+        return timerScheduler.startSingleTimer(
+                "ttl-".concat(bucketId),
+                delay,
+                componentClient.forTimedAction()
+                        .method(CacheTimedAction::expireTtlBucket)
+                        .deferred(bucketId));
+    }
+
+    /*
+     A coarse bucket moves its keys into fine buckets, a fine bucket expires them (or purges them, for a
+     purge bucket). Either way it reads the
+     bucket a page at a time and works through a page expireParallelism entries at a time, and only the
+     entries that were handled are removed from the bucket. Whatever is left at the end (failed entries,
+     or keys added while the bucket was being expired) gets the bucket's timer again after retry-delay.
+     */
+    public CompletionStage<Done> expireBucket(String bucketId) {
+        boolean purge = slots.purge(bucketId);
+        Function<TtlEntry, CompletionStage<Boolean>> action = slots.coarse(bucketId)
+                ? entry -> moveDown(entry, purge)
+                : purge ? this::purge : this::expire;
+        return expirePages(bucketId, slots.coarse(bucketId), action, "");
+    }
+
+    private CompletionStage<Done> expirePages(String bucketId, boolean coarse, Function<TtlEntry, CompletionStage<Boolean>> action, String afterCacheId) {
+        return componentClient.forEventSourcedEntity(bucketId)
+                .method(TtlBucketEntity::page)
+                .invokeAsync(new TtlEntry.TtlPage(afterCacheId, drainPageSize))
+                .thenCompose(page -> {
+                    List<TtlEntry> entries = page.entries();
+                    if (log.isDebugEnabled()) {
+                        log.debug("TtlWheel {} bucket {} page of {} entries after '{}'", coarse ? "cascading" : "expiring", bucketId, entries.size(), afterCacheId);
+                    }
+                    if (entries.isEmpty()) {
+                        return finishBucket(bucketId);
+                    }
+                    return inBatches(entries, 0, new ArrayList<>(), action)
+                            .thenCompose(handled -> handled.isEmpty()
+                                    ? CompletableFuture.completedFuture(0)
+                                    : componentClient.forEventSourcedEntity(bucketId)
+                                            .method(TtlBucketEntity::expired)
+                                            .invokeAsync(new TtlEntry.TtlEntries(handled)))
+                            .thenCompose(__ -> entries.size() < drainPageSize
+                                    ? finishBucket(bucketId)
+                                    : expirePages(bucketId, coarse, action, entries.getLast().cacheId()));
+                });
+    }
+
+    private CompletionStage<Done> finishBucket(String bucketId) {
+        return componentClient.forEventSourcedEntity(bucketId)
+                .method(TtlBucketEntity::expired)
+                .invokeAsync(new TtlEntry.TtlEntries(List.of()))
+                .thenCompose(remaining -> {
+                    if (remaining == 0) {
+                        return CompletableFuture.completedFuture(Done.done());
+                    }
+                    log.warn("TtlWheel bucket {} has {} entries left, retrying in {}", bucketId, remaining, retryDelay);
+                    return startTimer(bucketId, retryDelay);
+                });
+    }
+
+    private CompletionStage<Boolean> moveDown(TtlEntry entry, boolean purge) {
+        return schedule(entry.cacheId(), entry.expiresAt(), purge)
+                .thenApply(__ -> true)
+                .exceptionally(ex -> {
+                    log.error("TtlWheel failed to move {} down: {}", entry.cacheId(), ex.getMessage());
+                    return false;
+                });
+    }
+
+    private CompletionStage<Boolean> expire(TtlEntry entry) {
+        return componentClient.forEventSourcedEntity(entry.cacheId())
+                .method(CacheEntity::expire)
+                .invokeAsync(entry.expiresAt())
+                .thenApply(__ -> true)
+                .exceptionally(ex -> {
+                    // one failed key shouldn't hold up the rest of the bucket, it stays in the bucket for the retry
+                    log.error("TtlWheel failed to expire {}: {}", entry.cacheId(), ex.getMessage());
+                    return false;
+                });
+    }
+
+    private CompletionStage<Boolean> purge(TtlEntry entry) {
+        return componentClient.forEventSourcedEntity(entry.cacheId())
+                .method(CacheEntity::purge)
+                .invokeAsync()
+                .thenApply(__ -> true)
+                .exceptionally(ex -> {
+                    log.error("TtlWheel failed to purge {}: {}", entry.cacheId(), ex.getMessage());
+                    return false;
+                });
+    }
+
+    // the entries the action succeeded for
+    private CompletionStage<List<TtlEntry>> inBatches(List<TtlEntry> entries, int from, List<TtlEntry> handled, Function<TtlEntry, CompletionStage<Boolean>> action) {
+        if (from >= entries.size()) {
+            return CompletableFuture.completedFuture(handled);
+        }
+        List<TtlEntry> batch = entries.subList(from, Math.min(entries.size(), from + expireParallelism));
+        List<CompletableFuture<Boolean>> results = batch.stream()
+                .map(entry -> action.apply(entry).toCompletableFuture())
+                .toList();
+        return FutureHelper.allOf(results)
+                .thenCompose(succeeded -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (succeeded.get(i)) {
+                            handled.add(batch.get(i));
+                        }
+                    }
+                    return inBatches(entries, from + expireParallelism, handled, action);
+                });
+    }
+}
@@ -0,0 +1,47 @@
+package io.akka.cache.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.CacheEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/*
+ Puts every value that was written (or touched) with an expiry into the TTL wheel. A later set of the same key just
+ adds another entry; the earlier one finds a different expiresAt on the entity when it fires and does nothing.
+ */
+@ComponentId("ttl-wheel-feeder")
+@Consume.FromEventSourcedEntity(CacheEntity.class)
+public class TtlWheelFeeder extends Consumer {
+    private static final Logger log = LoggerFactory.getLogger(TtlWheelFeeder.class);
+
+    private final TtlWheel wheel;
+
+    public TtlWheelFeeder(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+        this.wheel = new TtlWheel(config, componentClient, timerScheduler);
+    }
+
+    public Effect onEvent(CacheEvent cacheEvent) {
+        Optional<Instant> expiresAt = switch (cacheEvent) {
+            case CacheEvent.CacheSet set -> set.expiresAt();
+            case CacheEvent.CacheCommitted committed -> committed.expiresAt();
+            case CacheEvent.CacheTouched touched -> Optional.of(touched.expiresAt());
+            default -> Optional.empty();
+        };
+        if (expiresAt.isEmpty() || messageContext().eventSubject().isEmpty()) {
+            return effects().ignore();
+        }
+        String cacheId = messageContext().eventSubject().get();
+        if (log.isDebugEnabled()) {
+            log.debug("TtlWheelFeeder scheduling {} to expire at {}", cacheId, expiresAt.get());
+        }
+        return effects().asyncDone(wheel.schedule(cacheId, expiresAt.get()));
+    }
+}
@@ -0,0 +1,6 @@
+package io.akka.cache.domain;
+
+import java.util.List;
+
+// the chunks a patch or an append's seal stored under its own generation before it was refused or failed
+public record AbandonedChunks(List<PayloadChunk> chunks) {}
@@ -0,0 +1,62 @@
+package io.akka.cache.domain;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/*
+ The sampled reads of the keys of one shard of a bounded cacheName (see shardId), what eviction ranks
+ those keys by. They're kept apart from the CacheEntity so read traffic never lands in a value's journal,
+ and a shard holds at most maxKeys of them: past that the keys read longest ago are dropped, which only
+ makes them look as cold as a key that was never read.
+
+ Deleted keys aren't removed here unless eviction deleted them, a key set again under the same name
+ starts from the reads its predecessor had, the ranking is an estimate either way.
+ */
+public record AccessStats(Map<String, CacheAccess> reads) {
+
+    // the reads of the keys of one shard a node gathered since its last flush
+    public record Reads(Map<String, CacheAccess> reads, int maxKeys) {}
+
+    public AccessStats {
+        reads = reads == null ? Map.of() : Map.copyOf(reads);
+    }
+
+    public static AccessStats empty() {
+        return new AccessStats(Map.of());
+    }
+
+    public static String shardId(String cacheName, String key, int shards) {
+        return cacheName + "-" + Math.floorMod(key.hashCode(), shards);
+    }
+
+    public AccessStats plus(Reads added) {
+        Map<String, CacheAccess> merged = new HashMap<>(reads);
+        added.reads().forEach((key, access) -> merged.merge(key, access, CacheAccess::plus));
+        if (merged.size() <= added.maxKeys()) {
+            return new AccessStats(merged);
+        }
+        return new AccessStats(merged.entrySet().stream()
+                .sorted(Map.Entry.<String, CacheAccess>comparingByValue(Comparator.comparing(CacheAccess::lastRead)).reversed())
+                .limit(added.maxKeys())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
+    public AccessStats without(List<String> keys) {
+        Map<String, CacheAccess> remaining = new HashMap<>(reads);
+        keys.forEach(remaining::remove);
+        return new AccessStats(remaining);
+    }
+
+    // the candidates with the reads recorded for them added on
+    public List<KeyAccess> applyTo(List<KeyAccess> candidates) {
+        return candidates.stream()
+                .map(candidate -> {
+                    CacheAccess access = reads.get(candidate.key());
+                    return access == null ? candidate : candidate.withAccess(access.lastRead(), access.reads());
+                })
+                .toList();
+    }
+}
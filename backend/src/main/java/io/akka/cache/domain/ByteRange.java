@@ -0,0 +1,88 @@
+package io.akka.cache.domain;
+
+import java.util.Optional;
+
+/*
+ A single Range: bytes=first-last request, resolved against the value's length (last is inclusive).
+ Every chunk but the last is chunkSize long, so the chunks a range needs follow from the offsets alone.
+
+ Only one range is served. A multi range request, or anything that doesn't parse, gets the whole value,
+ which RFC 9110 allows.
+ */
+public record ByteRange(long first, long last) {
+    private static final String BYTES_UNIT = "bytes=";
+
+    public static Optional<ByteRange> parse(Optional<String> rangeHeader, long totalBytes) {
+        if (rangeHeader.isEmpty() || !rangeHeader.get().startsWith(BYTES_UNIT)) {
+            return Optional.empty();
+        }
+        String spec = rangeHeader.get().substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.contains(",")) {
+            return Optional.empty();
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            if (from.isEmpty()) {
+                // suffix range, the last n bytes
+                long suffix = Long.parseLong(to);
+                return Optional.of(new ByteRange(Math.max(0, totalBytes - suffix), suffix == 0 ? -1 : totalBytes - 1));
+            }
+            long first = Long.parseLong(from);
+            long last = to.isEmpty() ? totalBytes - 1 : Math.min(Long.parseLong(to), totalBytes - 1);
+            if (first < 0 || (!to.isEmpty() && Long.parseLong(to) < first)) {
+                return Optional.empty();
+            }
+            return Optional.of(new ByteRange(first, last));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Content-Range: bytes first-last/total (or /*) of a range write
+    public static Optional<ByteRange> parseContentRange(Optional<String> contentRangeHeader) {
+        String unit = "bytes ";
+        if (contentRangeHeader.isEmpty() || !contentRangeHeader.get().startsWith(unit)) {
+            return Optional.empty();
+        }
+        String spec = contentRangeHeader.get().substring(unit.length()).trim();
+        int slash = spec.indexOf('/');
+        int dash = spec.indexOf('-');
+        if (dash < 0 || (slash >= 0 && slash < dash)) {
+            return Optional.empty();
+        }
+        try {
+            long first = Long.parseLong(spec.substring(0, dash).trim());
+            long last = Long.parseLong((slash < 0 ? spec.substring(dash + 1) : spec.substring(dash + 1, slash)).trim());
+            return first < 0 || last < first ? Optional.empty() : Optional.of(new ByteRange(first, last));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    // a range that starts past the end (or an empty suffix) is answered with 416
+    public boolean satisfiable(long totalBytes) {
+        return first < totalBytes && first <= last;
+    }
+
+    public long length() {
+        return last - first + 1;
+    }
+
+    public int firstChunk(long chunkSize) {
+        return (int) (first / chunkSize);
+    }
+
+    public int lastChunk(long chunkSize) {
+        return (int) (last / chunkSize);
+    }
+
+    public String contentRange(long totalBytes) {
+        return "bytes " + first + "-" + last + "/" + totalBytes;
+    }
+
+    public static String unsatisfiedContentRange(long totalBytes) {
+        return "bytes */" + totalBytes;
+    }
+}
@@ -1,9 +1,40 @@
 package io.akka.cache.domain;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.function.Predicate;
+
+/*
+ chunks is the committed value that readers see. Large values are written as a generation: every chunk
+ is staged under the generation id (in any order), and a commit swaps the whole generation in at once.
+
+ contentEncoding is set when the value was compressed before it was chunked (totalBytes is then the compressed size).
+ dictionaryId is the version of the cacheName's compression dictionary a small value was compressed against.
+ expiresAt is when the TTL (requested or default) runs out, the TTL wheel only expires the value it was scheduled for.
+ checksum is the CRC32C of the stored bytes in chunk order, it's the ETag and what reads verify the assembled value against.
+ */
+public record Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks, Optional<String> generation, List<StagedChunk> staged, Optional<String> contentEncoding, Optional<Integer> dictionaryId, Optional<Instant> expiresAt, Optional<Long> checksum) {
+    public Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks, Optional<String> generation, List<StagedChunk> staged, Optional<String> contentEncoding, Optional<Integer> dictionaryId, Optional<Instant> expiresAt) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, dictionaryId, expiresAt, Optional.empty());
+    }
+
+    public Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks, Optional<String> generation, List<StagedChunk> staged, Optional<String> contentEncoding, Optional<Integer> dictionaryId) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, dictionaryId, Optional.empty());
+    }
+
+    public Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks, Optional<String> generation, List<StagedChunk> staged, Optional<String> contentEncoding) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, Optional.empty());
+    }
+
+    public Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks, Optional<String> generation, List<StagedChunk> staged) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, Optional.empty());
+    }
+
+    public Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, Optional.empty(), Collections.emptyList());
+    }
 
-public record Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, Boolean chunked, List<PayloadChunk> chunks) {
     public Cache(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, long totalBytes, List<PayloadChunk> chunks) {
         this(org, cacheName, key, ttlSeconds, false, totalBytes, false, chunks);
     }
@@ -28,17 +59,253 @@ public record Cache(Optional<String> org, String cacheName, String key, Optional
         this(Optional.empty(), cacheName, key, Optional.empty(), false, 0L, false, Collections.emptyList());
     }
 
+    // what the CacheNameStats count for this value, nothing once it's deleted (or when only staged chunks exist)
+    public Optional<ValueSize> liveSize() {
+        if (deleted || chunks.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ValueSize(totalBytes, chunks.size() > 1));
+    }
+
+    // nothing committed yet, but there's somewhere to stage chunks
+    public static Cache empty() {
+        return new Cache(Optional.empty(), "", "", Optional.empty(), true, 0L, false, Collections.emptyList());
+    }
+
     public Cache withChunk(PayloadChunk chunk) {
         List<PayloadChunk> newChunks = new ArrayList<>(chunks);
-        newChunks.add(chunk); // I hate this doesn't return a new list
-        return new Cache(Optional.empty(), cacheName, key, ttlSeconds, deleted, totalBytes, chunked, newChunks);
+        // chunks are addressed by sequence, a re-sent chunk replaces the one already there
+        if (chunk.sequence() < newChunks.size()) {
+            newChunks.set(chunk.sequence(), chunk);
+        }
+        else {
+            newChunks.add(chunk); // I hate this doesn't return a new list
+        }
+        // the value changed under the checksum, so there's nothing to verify it against anymore
+        return new Cache(Optional.empty(), cacheName, key, ttlSeconds, deleted, totalBytes, chunked, newChunks, generation, staged, contentEncoding, dictionaryId, expiresAt, Optional.empty());
+    }
+
+    public Cache withStaged(StagedChunk stagedChunk) {
+        List<StagedChunk> newStaged = new ArrayList<>(staged);
+        newStaged.add(stagedChunk);
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, newStaged, contentEncoding, dictionaryId, expiresAt, checksum);
+    }
+
+    public Cache withoutStaged(String abortedGeneration) {
+        List<StagedChunk> newStaged = staged.stream().filter(s -> !s.generation().equals(abortedGeneration)).toList();
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, newStaged, contentEncoding, dictionaryId, expiresAt, checksum);
+    }
+
+    public boolean hasStaged(String stagedGeneration) {
+        return staged.stream().anyMatch(s -> s.generation().equals(stagedGeneration));
+    }
+
+    public boolean isStaged(String stagedGeneration, int sequence) {
+        return staged.stream().anyMatch(s -> s.generation().equals(stagedGeneration) && s.chunk().sequence() == sequence);
+    }
+
+    // the chunks of a generation in sequence order, empty unless every sequence from 0 up is present exactly once
+    public List<PayloadChunk> stagedChunks(String stagedGeneration) {
+        List<PayloadChunk> generationChunks = staged.stream()
+                .filter(s -> s.generation().equals(stagedGeneration))
+                .map(StagedChunk::chunk)
+                .sorted(Comparator.comparing(PayloadChunk::sequence))
+                .toList();
+        for (int i = 0; i < generationChunks.size(); i++) {
+            if (generationChunks.get(i).sequence() != i) {
+                return Collections.emptyList();
+            }
+        }
+        return generationChunks;
+    }
+
+    // anything still staged for other generations is dropped, those writers lost the race and their commit will fail
+    public Cache withCommitted(Optional<String> newOrg, String newCacheName, String newKey, Optional<Duration> newTtlSeconds, long newTotalBytes, String committedGeneration, Optional<String> newContentEncoding, Optional<Instant> newExpiresAt, Optional<Long> newChecksum) {
+        List<PayloadChunk> committed = stagedChunks(committedGeneration);
+        return new Cache(newOrg, newCacheName, newKey, newTtlSeconds, false, newTotalBytes, committed.size() > 1, committed, Optional.of(committedGeneration), Collections.emptyList(), newContentEncoding, Optional.empty(), newExpiresAt, newChecksum);
+    }
+
+    public Cache withCommitted(Optional<String> newOrg, String newCacheName, String newKey, Optional<Duration> newTtlSeconds, long newTotalBytes, String committedGeneration) {
+        return withCommitted(newOrg, newCacheName, newKey, newTtlSeconds, newTotalBytes, committedGeneration, Optional.empty(), Optional.empty(), Optional.empty());
+    }
+
+    public Cache withContentEncoding(Optional<String> newContentEncoding) {
+        return withContentEncoding(newContentEncoding, Optional.empty());
+    }
+
+    public Cache withContentEncoding(Optional<String> newContentEncoding, Optional<Integer> newDictionaryId) {
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, newContentEncoding, newDictionaryId, expiresAt, checksum);
+    }
+
+    // the stored chunks the committed value points at, nothing once it's deleted since those were released then
+    public List<ChunkRelease> committedReleases(String cacheId) {
+        if (deleted) {
+            return Collections.emptyList();
+        }
+        return chunks.stream()
+                .flatMap(c -> storedReferrer(c, cacheId).map(referrer -> new ChunkRelease(c.contentHash().get(), referrer)).stream())
+                .toList();
+    }
+
+    // a value started by an append has no generation, its chunks are stored under the generation of the write that sealed them
+    private Optional<String> storedReferrer(PayloadChunk chunk, String cacheId) {
+        if (!chunk.inChunkStore()) {
+            return Optional.empty();
+        }
+        return chunk.generation().or(() -> generation).map(g -> ChunkRelease.referrer(cacheId, g, chunk.sequence()));
+    }
+
+    public List<ChunkRelease> stagedReleases(String cacheId, Predicate<String> releasedGenerations) {
+        return staged.stream()
+                .filter(s -> releasedGenerations.test(s.generation()) && s.chunk().inChunkStore())
+                .map(s -> new ChunkRelease(s.chunk().contentHash().get(), ChunkRelease.referrer(cacheId, s.generation(), s.chunk().sequence())))
+                .toList();
+    }
+
+    /*
+     Every chunk but the last is as long as the first, appends keep it that way. A single chunk value
+     grows up to maxChunkBytes before it's split.
+     */
+    public int appendChunkSize(int maxChunkBytes, int lastChunkBytes) {
+        if (chunks.size() == 1) {
+            return Math.max(maxChunkBytes, lastChunkBytes);
+        }
+        return (int) ((totalBytes - lastChunkBytes) / (chunks.size() - 1));
+    }
+
+    public Cache withAppended(byte[] appended, int chunkSize, Optional<Long> newChecksum) {
+        List<PayloadChunk> newChunks = new ArrayList<>(chunks);
+        PayloadChunk last = newChunks.getLast();
+        int offset = Math.min(Math.max(0, chunkSize - last.payload().length), appended.length);
+        if (offset > 0) {
+            byte[] filled = Arrays.copyOf(last.payload(), last.payload().length + offset);
+            System.arraycopy(appended, 0, filled, last.payload().length, offset);
+            newChunks.set(newChunks.size() - 1, new PayloadChunk(last.sequence(), filled));
+        }
+        while (offset < appended.length) {
+            int length = Math.min(chunkSize, appended.length - offset);
+            newChunks.add(new PayloadChunk(newChunks.size(), Arrays.copyOfRange(appended, offset, offset + length)));
+            offset += length;
+        }
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes + appended.length, newChunks.size() > 1, newChunks, generation, staged, contentEncoding, dictionaryId, expiresAt, newChecksum);
+    }
+
+    public List<ChunkRelease> lastChunkReleases(String cacheId) {
+        PayloadChunk last = chunks.getLast();
+        if (deleted) {
+            return Collections.emptyList();
+        }
+        return storedReferrer(last, cacheId).map(referrer -> List.of(new ChunkRelease(last.contentHash().get(), referrer))).orElse(Collections.emptyList());
+    }
+
+    /*
+     The sequences of the full chunks still held inline, every one but the last. An append leaves them to be
+     moved into the chunk store, so the entity holds about one chunk of bytes whatever the size of the value.
+     */
+    public List<Integer> sealable() {
+        if (deleted || contentEncoding.isPresent()) {
+            return Collections.emptyList();
+        }
+        return chunks.subList(0, Math.max(0, chunks.size() - 1)).stream()
+                .filter(c -> !c.inChunkStore())
+                .map(PayloadChunk::sequence)
+                .toList();
+    }
+
+    // a stored chunk can take the place of a full inline chunk that still holds the same bytes
+    public boolean seals(PayloadChunk stored) {
+        if (deleted || !stored.inChunkStore() || stored.sequence() >= chunks.size() - 1) {
+            return false;
+        }
+        PayloadChunk held = chunks.get(stored.sequence());
+        return !held.inChunkStore() && stored.contentHash().get().equals(PayloadChunk.contentHash(held.asByteString()));
+    }
+
+    public Cache withSealed(List<PayloadChunk> sealedChunks) {
+        List<PayloadChunk> newChunks = new ArrayList<>(chunks);
+        for (PayloadChunk sealed : sealedChunks) {
+            newChunks.set(sealed.sequence(), sealed);
+        }
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, newChunks, generation, staged, contentEncoding, dictionaryId, expiresAt, checksum);
+    }
+
+    public Cache withLastChunkInlined(PayloadChunk inlined) {
+        List<PayloadChunk> newChunks = new ArrayList<>(chunks);
+        newChunks.set(newChunks.size() - 1, new PayloadChunk(inlined.sequence(), inlined.payload()));
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, newChunks, generation, staged, contentEncoding, dictionaryId, expiresAt, checksum);
+    }
+
+    public Cache withPatched(List<PayloadChunk> patchedChunks, long newChecksum) {
+        List<PayloadChunk> newChunks = new ArrayList<>(chunks);
+        for (PayloadChunk patched : patchedChunks) {
+            newChunks.set(patched.sequence(), patched);
+        }
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, newChunks, generation, staged, contentEncoding, dictionaryId, expiresAt, Optional.of(newChecksum));
+    }
+
+    // the stored chunks a patch replaces, each patched chunk holds its own reference under the patch's generation
+    public List<ChunkRelease> patchedReleases(String cacheId, List<PayloadChunk> patchedChunks) {
+        List<ChunkRelease> releases = new ArrayList<>();
+        for (PayloadChunk patched : patchedChunks) {
+            PayloadChunk replaced = chunks.get(patched.sequence());
+            if (!holds(patched, cacheId)) {
+                storedReferrer(replaced, cacheId).ifPresent(referrer -> releases.add(new ChunkRelease(replaced.contentHash().get(), referrer)));
+            }
+        }
+        return releases;
+    }
+
+    /*
+     The stored chunks of a patch (or a seal) that didn't apply. Its generation is its own, so nothing else
+     references them under it, but one whose reply was lost may have applied after all, those chunks are kept.
+     */
+    public List<ChunkRelease> abandonedReleases(String cacheId, List<PayloadChunk> storedChunks) {
+        return storedChunks.stream()
+                .filter(chunk -> chunk.inChunkStore() && chunk.generation().isPresent() && !holds(chunk, cacheId))
+                .map(chunk -> new ChunkRelease(chunk.contentHash().get(), chunk.referrer(cacheId, chunk.generation().get())))
+                .toList();
+    }
+
+    private boolean holds(PayloadChunk chunk, String cacheId) {
+        if (deleted || chunk.sequence() >= chunks.size()) {
+            return false;
+        }
+        PayloadChunk held = chunks.get(chunk.sequence());
+        Optional<String> heldReferrer = storedReferrer(held, cacheId);
+        return heldReferrer.isPresent()
+                && held.contentHash().equals(chunk.contentHash())
+                && heldReferrer.equals(storedReferrer(chunk, cacheId));
+    }
+
+    public Cache withChecksum(Optional<Long> newChecksum) {
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, dictionaryId, expiresAt, newChecksum);
+    }
+
+    public Cache withExpiresAt(Optional<Instant> newExpiresAt) {
+        return new Cache(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, dictionaryId, newExpiresAt, checksum);
+    }
+
+    // the TTL wheel deletes expired values in buckets, until then readers treat them as already gone
+    public boolean expired(Instant now) {
+        return expiresAt.filter(at -> !now.isBefore(at)).isPresent();
+    }
+
+    // only the value a wheel entry was scheduled for is expired by it, a set or touch since then moved (or dropped) the expiry
+    public boolean scheduledToExpireAt(Instant scheduledExpiresAt) {
+        return !deleted && expiresAt.filter(scheduledExpiresAt::equals).isPresent();
+    }
+
+    // a touch moves the expiry (and maybe the TTL) without the payload being written again
+    public Cache withTouched(Optional<Duration> newTtlSeconds, Instant newExpiresAt) {
+        return new Cache(org, cacheName, key, newTtlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, dictionaryId, Optional.of(newExpiresAt), checksum);
     }
 
     public Cache withOrg(String org) {
-        return new Cache(Optional.of(org), cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks);
+        return new Cache(Optional.of(org), cacheName, key, ttlSeconds, deleted, totalBytes, chunked, chunks, generation, staged, contentEncoding, dictionaryId, expiresAt, checksum);
     }
 
+    // the payload goes straight away, staged chunks stay since an upload may still commit over the tombstone
     public Cache asDeleted() {
-        return new Cache(Optional.empty(), cacheName, key, ttlSeconds, true, totalBytes, chunked, chunks);
+        return new Cache(Optional.empty(), cacheName, key, ttlSeconds, true, 0L, false, Collections.emptyList(), generation, staged, contentEncoding, dictionaryId, expiresAt, Optional.empty());
     }
-}
\ No newline at end of file
+}
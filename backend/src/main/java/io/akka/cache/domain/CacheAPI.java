@@ -124,10 +124,10 @@ public sealed interface CacheAPI {
         }
     }
 
-    public record CacheGetKeysResponse(String cacheName, List<String> keys) implements CacheAPI {
+    public record CacheGetKeysResponse(String cacheName, List<String> keys, Optional<String> nextCursor) implements CacheAPI {
 
         // Sanitize the inputs during construction
-        public CacheGetKeysResponse(String cacheName, List<String> keys) {
+        public CacheGetKeysResponse(String cacheName, List<String> keys, Optional<String> nextCursor) {
             // Ensure `cacheName` is not null; default to an empty string if null
             this.cacheName = Objects.requireNonNullElse(cacheName, "");
     
@@ -135,10 +135,17 @@ public sealed interface CacheAPI {
             this.keys = keys == null || keys.stream().anyMatch(Objects::isNull)
                     ? Collections.emptyList()
                     : List.copyOf(keys);
+
+            // Ensure `nextCursor` is not null; absent on the last page
+            this.nextCursor = nextCursor == null ? Optional.empty() : nextCursor;
+        }
+
+        public CacheGetKeysResponse(String cacheName, List<String> keys) {
+            this(cacheName, keys, Optional.empty());
         }
 
         public CacheGetKeysResponse withDropOrg(String orgName) {
-            return new CacheGetKeysResponse(cacheName.substring(orgName.length()), keys);
+            return new CacheGetKeysResponse(cacheName.substring(orgName.length()), keys, nextCursor);
         }
     }
    
@@ -156,7 +163,53 @@ public sealed interface CacheAPI {
             this.success = Objects.requireNonNullElse(success, false);
     
             // Ensure `value` is not null; default to an empty byte array if null
-            this.value = value == null ? new byte[0] : value.clone(); // Defensive copy for immutability
+            // no defensive copy, large values would be copied on every hop. Treat the array as read-only.
+            this.value = value == null ? new byte[0] : value;
+        }
+    }
+
+    public record CacheNameStatsResponse(String cacheName, long keys, long totalBytes, long chunkedKeys, List<CacheNameStats.SizeBucket> sizeHistogram) implements CacheAPI {
+
+        // Sanitize the inputs during construction
+        public CacheNameStatsResponse(String cacheName, long keys, long totalBytes, long chunkedKeys, List<CacheNameStats.SizeBucket> sizeHistogram) {
+            // Ensure `cacheName` is not null; default to an empty string if null
+            this.cacheName = Objects.requireNonNullElse(cacheName, "");
+            this.keys = keys;
+            this.totalBytes = totalBytes;
+            this.chunkedKeys = chunkedKeys;
+
+            // Ensure `sizeHistogram` is not null
+            this.sizeHistogram = sizeHistogram == null ? Collections.emptyList() : List.copyOf(sizeHistogram);
+        }
+    }
+
+    public record NearCacheStatsResponse(String cacheName, Boolean enabled, long hits, long misses, long nodeEntries, long nodeWeightedBytes) implements CacheAPI {
+
+        // Sanitize the inputs during construction
+        public NearCacheStatsResponse(String cacheName, Boolean enabled, long hits, long misses, long nodeEntries, long nodeWeightedBytes) {
+            // Ensure `cacheName` is not null; default to an empty string if null
+            this.cacheName = Objects.requireNonNullElse(cacheName, "");
+
+            // Ensure `enabled` is not null; default to `false` if null
+            this.enabled = Objects.requireNonNullElse(enabled, false);
+
+            this.hits = hits;
+            this.misses = misses;
+            this.nodeEntries = nodeEntries;
+            this.nodeWeightedBytes = nodeWeightedBytes;
+        }
+    }
+
+    public record DictionaryTrainedResponse(String cacheName, int version, int dictionaryBytes, int samples) implements CacheAPI {
+
+        // Sanitize the inputs during construction
+        public DictionaryTrainedResponse(String cacheName, int version, int dictionaryBytes, int samples) {
+            // Ensure `cacheName` is not null; default to an empty string if null
+            this.cacheName = Objects.requireNonNullElse(cacheName, "");
+
+            this.version = version;
+            this.dictionaryBytes = dictionaryBytes;
+            this.samples = samples;
         }
     }
 
@@ -191,7 +244,8 @@ public sealed interface CacheAPI {
             this.ttlSeconds = ttlSeconds == null ? Optional.empty() : ttlSeconds;
 
             // Ensure `value` is not null; default to an empty byte array if null
-            this.value = value == null ? new byte[0] : value.clone(); // Defensive copy for immutability
+            // no defensive copy, large values would be copied on every hop. Treat the array as read-only.
+            this.value = value == null ? new byte[0] : value;
         }
 
         public CacheRequest(String cacheName, String key, Optional<Integer> ttlSeconds, byte[] value) {
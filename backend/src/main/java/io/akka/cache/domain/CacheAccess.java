@@ -0,0 +1,12 @@
+package io.akka.cache.domain;
+
+import java.time.Instant;
+
+/*
+ The sampled reads of one key, what a node gathered since its last flush or what its AccessStats shard holds.
+ */
+public record CacheAccess(long reads, Instant lastRead) {
+    public CacheAccess plus(CacheAccess other) {
+        return new CacheAccess(reads + other.reads, other.lastRead.isAfter(lastRead) ? other.lastRead : lastRead);
+    }
+}
@@ -0,0 +1,15 @@
+package io.akka.cache.domain;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/*
+ Bytes to add to the end of a value. org, cacheName, key and expiresAt are only used when there's no value
+ yet and the append starts one. lastChunk is the resolved last chunk, sent on a retry when the entity
+ needed its bytes because it's in the chunk store.
+ */
+public record CacheAppend(Optional<String> org, String cacheName, String key, byte[] bytes, int maxChunkBytes, Optional<Instant> expiresAt, Optional<PayloadChunk> lastChunk) {
+    public CacheAppend withLastChunk(PayloadChunk resolvedLastChunk) {
+        return new CacheAppend(org, cacheName, key, bytes, maxChunkBytes, expiresAt, Optional.of(resolvedLastChunk));
+    }
+}
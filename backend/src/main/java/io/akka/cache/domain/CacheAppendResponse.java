@@ -0,0 +1,15 @@
+package io.akka.cache.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ The reply to an append. CONFLICT means the last chunk is in the chunk store and has to be sent along
+ resolved, NOT_SUPPORTED that the value is compressed. sealable are the sequences of the full chunks
+ still held inline once the append applied, see Cache.sealable.
+ */
+public record CacheAppendResponse(CacheWriteResult result, List<Integer> sealable) {
+    public static CacheAppendResponse of(CacheWriteResult result) {
+        return new CacheAppendResponse(result, Collections.emptyList());
+    }
+}
@@ -0,0 +1,7 @@
+package io.akka.cache.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+public record CacheCommit(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, long totalBytes, String generation, int chunkCount, Optional<String> contentEncoding, Optional<Instant> expiresAt, Optional<Long> checksum) {}
@@ -3,15 +3,84 @@ package io.akka.cache.domain;
 import akka.javasdk.annotations.TypeName;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public sealed interface CacheEvent {
     @TypeName("cache-set")
-    record CacheSet(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, long totalBytes, PayloadChunk chunk) implements CacheEvent {}
+    record CacheSet(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, long totalBytes, PayloadChunk chunk, Optional<String> contentEncoding, Optional<Integer> dictionaryId, Optional<Instant> expiresAt, Optional<Long> checksum) implements CacheEvent {
+        public CacheSet(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, long totalBytes, PayloadChunk chunk) {
+            this(org, cacheName, key, ttlSeconds, totalBytes, chunk, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
+        }
+    }
 
     @TypeName("chunk-added")
     record ChunkAdded(PayloadChunk chunk) implements CacheEvent {}
 
+    @TypeName("chunk-staged")
+    record ChunkStaged(String generation, PayloadChunk chunk) implements CacheEvent {}
+
+    @TypeName("staged-aborted")
+    record StagedAborted(String generation) implements CacheEvent {}
+
+    // the staged chunks of the generation become the value, all at once
+    @TypeName("cache-committed")
+    record CacheCommitted(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, long totalBytes, String generation, int chunkCount, Optional<String> contentEncoding, Optional<Instant> expiresAt, Optional<Long> checksum) implements CacheEvent {}
+
+    // appended bytes fill the last chunk up to chunkSize and then open new chunks of chunkSize
+    @TypeName("cache-appended")
+    record CacheAppended(byte[] bytes, int chunkSize, Optional<Long> checksum) implements CacheEvent {}
+
+    // the last chunk moved out of the chunk store into the entity, so appends can fill it
+    @TypeName("last-chunk-inlined")
+    record LastChunkInlined(PayloadChunk chunk) implements CacheEvent {}
+
+    // full inline chunks replaced by the same bytes in the chunk store, the value doesn't change
+    @TypeName("chunks-sealed")
+    record ChunksSealed(List<PayloadChunk> chunks) implements CacheEvent {}
+
+    // chunks rewritten in place by a range write, every other chunk is untouched
+    @TypeName("cache-patched")
+    record CachePatched(List<PayloadChunk> chunks, long checksum) implements CacheEvent {}
+
+    // only the expiry moved, the payload is untouched
+    @TypeName("cache-touched")
+    record CacheTouched(Optional<Duration> ttlSeconds, Instant expiresAt) implements CacheEvent {}
+
+    // manifest entries that were replaced, aborted or deleted, the ChunkStoreReleaser drops their references
+    @TypeName("chunks-released")
+    record ChunksReleased(List<ChunkRelease> releases) implements CacheEvent {}
+
+    // replaced when the value is only backed out ahead of the one replacing it, a tombstone when the key is deleted.
+    // Deletes written before either flag existed have neither, they were a tombstone unless a set followed them.
     @TypeName("cache-deleted")
-    record CacheDeleted(Optional<String> org, long totalBytes) implements CacheEvent {}
+    record CacheDeleted(Optional<String> org, long totalBytes, boolean tombstone, boolean replaced) implements CacheEvent {
+        public static CacheDeleted tombstone(Optional<String> org, long totalBytes) {
+            return new CacheDeleted(org, totalBytes, true, false);
+        }
+
+        public static CacheDeleted replaced(Optional<String> org, long totalBytes) {
+            return new CacheDeleted(org, totalBytes, false, true);
+        }
+    }
+
+    // what a write did to the key's live value, empty is no live value. The CacheNameStats are kept from these.
+    // sequence only grows per key, events written before resizes had one (0) can't be told apart from their redeliveries
+    @TypeName("cache-resized")
+    record CacheResized(Optional<String> org, String cacheName, Optional<ValueSize> before, Optional<ValueSize> after, long sequence) implements CacheEvent {}
+
+    // sampled reads of a bounded cacheName, the latest at. No longer written, the reads are kept in the
+    // AccessStatsEntity shards now, this is only here so older journals still replay.
+    @TypeName("cache-accessed")
+    record CacheAccessed(Instant at, long reads) implements CacheEvent {
+        // one sampled read each before the reads were gathered
+        public CacheAccessed {
+            reads = Math.max(1L, reads);
+        }
+    }
+
+    // the tombstone outlived its grace period, its chunks are released and the entity is back to Cache.empty()
+    @TypeName("cache-purged")
+    record CachePurged() implements CacheEvent {}
 }
@@ -1,6 +1,23 @@
 package io.akka.cache.domain;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Optional;
 
-public record CacheInternalGetResponse(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, int chunks, PayloadChunk firstChunk) {}
+public record CacheInternalGetResponse(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, int chunks, PayloadChunk firstChunk, Optional<String> contentEncoding, Optional<Integer> dictionaryId, Optional<Instant> expiresAt, Optional<Long> checksum, Optional<String> generation) {
+
+    public CacheInternalGetResponse(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, int chunks, PayloadChunk firstChunk, Optional<String> contentEncoding, Optional<Integer> dictionaryId) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunks, firstChunk, contentEncoding, dictionaryId, Optional.empty(), Optional.empty(), Optional.empty());
+    }
+
+    public CacheInternalGetResponse(Optional<String> org, String cacheName, String key, Optional<Duration> ttlSeconds, Boolean deleted, long totalBytes, int chunks, PayloadChunk firstChunk) {
+        this(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunks, firstChunk, Optional.empty(), Optional.empty());
+    }
+
+    // a miss as an answer rather than an error, so a caller can tell it apart from a get that failed
+    public record Lookup(Optional<CacheInternalGetResponse> found) {}
+
+    public CacheInternalGetResponse withFirstChunk(PayloadChunk resolvedChunk) {
+        return new CacheInternalGetResponse(org, cacheName, key, ttlSeconds, deleted, totalBytes, chunks, resolvedChunk, contentEncoding, dictionaryId, expiresAt, checksum, generation);
+    }
+}
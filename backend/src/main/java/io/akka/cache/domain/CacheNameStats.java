@@ -0,0 +1,81 @@
+package io.akka.cache.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+ Running totals of a cacheName's live values, kept from the CacheResized events so reading them is O(1).
+ sizeHistogram is log2 bucketed: bucket 0 counts empty values, bucket n values of 2^(n-1) up to 2^n - 1 bytes.
+
+ Counts never go below zero, values written before the stats existed can be deleted. A redelivered
+ resize is skipped by its sequence (see ResizeBatch), highWaterMarks are the latest applied per source.
+ */
+public record CacheNameStats(long keys, long totalBytes, long chunkedKeys, List<Long> sizeHistogram, Map<String, Long> highWaterMarks) {
+
+    public record SizeBucket(long maxBytes, long count) {}
+
+    public CacheNameStats {
+        sizeHistogram = sizeHistogram == null ? List.of() : sizeHistogram;
+        highWaterMarks = highWaterMarks == null ? Map.of() : highWaterMarks;
+    }
+
+    public CacheNameStats(long keys, long totalBytes, long chunkedKeys, List<Long> sizeHistogram) {
+        this(keys, totalBytes, chunkedKeys, sizeHistogram, Map.of());
+    }
+
+    public static CacheNameStats empty() {
+        return new CacheNameStats(0L, 0L, 0L, List.of());
+    }
+
+    public CacheNameStats withResizes(ResizeBatch batch) {
+        CacheNameStats stats = this;
+        for (ResizeBatch.Resize resize : batch.unapplied(highWaterMarks)) {
+            stats = stats.withResized(resize.before(), resize.after());
+        }
+        return new CacheNameStats(stats.keys, stats.totalBytes, stats.chunkedKeys, stats.sizeHistogram, batch.applied(highWaterMarks));
+    }
+
+    public CacheNameStats withResized(Optional<ValueSize> before, Optional<ValueSize> after) {
+        CacheNameStats stats = this;
+        if (before.isPresent()) {
+            stats = stats.adding(before.get(), -1);
+        }
+        if (after.isPresent()) {
+            stats = stats.adding(after.get(), 1);
+        }
+        return stats;
+    }
+
+    private CacheNameStats adding(ValueSize size, int sign) {
+        List<Long> histogram = new ArrayList<>(sizeHistogram);
+        int bucket = bucketOf(size.totalBytes());
+        while (histogram.size() <= bucket) {
+            histogram.add(0L);
+        }
+        histogram.set(bucket, Math.max(0L, histogram.get(bucket) + sign));
+        return new CacheNameStats(
+                Math.max(0L, keys + sign),
+                Math.max(0L, totalBytes + sign * size.totalBytes()),
+                Math.max(0L, chunkedKeys + (size.chunked() ? sign : 0)),
+                histogram,
+                highWaterMarks);
+    }
+
+    static int bucketOf(long bytes) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(0L, bytes));
+    }
+
+    // only the buckets that hold any values
+    public List<SizeBucket> sizeBuckets() {
+        List<SizeBucket> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket < sizeHistogram.size(); bucket++) {
+            if (sizeHistogram.get(bucket) > 0) {
+                long maxBytes = bucket == 0 ? 0L : (1L << bucket) - 1;
+                buckets.add(new SizeBucket(maxBytes, sizeHistogram.get(bucket)));
+            }
+        }
+        return buckets;
+    }
+}
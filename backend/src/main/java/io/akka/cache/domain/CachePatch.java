@@ -0,0 +1,9 @@
+package io.akka.cache.domain;
+
+import java.util.List;
+
+/*
+ The rewritten chunks of a range write. expectedChecksum is the value the patch was computed against,
+ the entity refuses it when the value changed in the meantime.
+ */
+public record CachePatch(long expectedChecksum, long checksum, List<PayloadChunk> chunks) {}
@@ -0,0 +1,19 @@
+package io.akka.cache.domain;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/*
+ ttlSeconds replaces the key's TTL, when empty the key's own TTL (else defaultTTL) is used again.
+ A touch that would move the expiry by less than minExtension isn't persisted, so sliding expiry
+ on reads costs a write per minExtension per key at most, not a write per read.
+ */
+public record CacheTouch(Optional<Duration> ttlSeconds, Optional<Duration> defaultTTL, Duration minExtension) {
+    public static CacheTouch withTtl(Duration ttl) {
+        return new CacheTouch(Optional.of(ttl), Optional.empty(), Duration.ZERO);
+    }
+
+    public static CacheTouch sliding(Optional<Duration> defaultTTL, Duration minExtension) {
+        return new CacheTouch(Optional.empty(), defaultTTL, minExtension);
+    }
+}
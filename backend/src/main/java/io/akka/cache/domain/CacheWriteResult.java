@@ -0,0 +1,13 @@
+package io.akka.cache.domain;
+
+/*
+ The reply of the CacheEntity commands that change an existing value in place, so the endpoint can tell
+ a missing key (404), a lost race (409) or a value the command can't apply to (400) from a failure
+ of the call itself (5xx).
+ */
+public enum CacheWriteResult {
+    APPLIED,
+    NOT_FOUND,
+    CONFLICT,
+    NOT_SUPPORTED
+}
@@ -0,0 +1,61 @@
+package io.akka.cache.domain;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ One shard of the referrers of a stored chunk, kept apart from the ChunkStore so the entity holding the
+ payload only ever holds a number per shard (see ChunkStore.shards), however many keys share the bytes.
+ The referrers are still a set rather than a count, so referencing and releasing stay safe to retry.
+
+ epoch goes up each time the shard goes from empty to referenced. The ChunkStore only lets go of a shard
+ when the epoch it was emptied at is the one it last saw referenced, so a release racing a new reference
+ to the same shard can never drop the payload under it.
+
+ A referrer's shard comes from its hash, SHARDS can't change without stranding the referrers already held.
+ */
+public record ChunkReferrers(Set<String> referrers, long epoch) {
+
+    public static final int SHARDS = 16;
+
+    // what a release left behind, the ChunkStore only needs to hear about an empty shard
+    public record Released(boolean empty, long epoch) {}
+
+    public ChunkReferrers {
+        referrers = referrers == null ? Set.of() : Set.copyOf(referrers);
+    }
+
+    public static ChunkReferrers empty() {
+        return new ChunkReferrers(Set.of(), 0L);
+    }
+
+    public static int shardOf(String referrer) {
+        return Math.floorMod(referrer.hashCode(), SHARDS);
+    }
+
+    public static String shardId(String contentHash, int shard) {
+        return contentHash + "/" + shard;
+    }
+
+    public ChunkReferrers with(String referrer) {
+        if (referrers.contains(referrer)) {
+            return this;
+        }
+        Set<String> newReferrers = new HashSet<>(referrers);
+        newReferrers.add(referrer);
+        return new ChunkReferrers(newReferrers, referrers.isEmpty() ? epoch + 1 : epoch);
+    }
+
+    public ChunkReferrers without(String referrer) {
+        if (!referrers.contains(referrer)) {
+            return this;
+        }
+        Set<String> newReferrers = new HashSet<>(referrers);
+        newReferrers.remove(referrer);
+        return new ChunkReferrers(newReferrers, epoch);
+    }
+
+    public Released released() {
+        return new Released(referrers.isEmpty(), epoch);
+    }
+}
@@ -0,0 +1,9 @@
+package io.akka.cache.domain;
+
+// a manifest entry that no longer points at its stored chunk
+public record ChunkRelease(String contentHash, String referrer) {
+
+    public static String referrer(String cacheId, String generation, Integer sequence) {
+        return cacheId + "/" + generation + "/" + sequence;
+    }
+}
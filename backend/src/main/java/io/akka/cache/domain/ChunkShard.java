@@ -0,0 +1,4 @@
+package io.akka.cache.domain;
+
+// a shard of a chunk's referrers (see ChunkReferrers) at the epoch the caller saw it at
+public record ChunkShard(int shard, long epoch) {}
@@ -0,0 +1,92 @@
+package io.akka.cache.domain;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ One chunk of bytes, stored once no matter how many keys hold it. The id of the entity is the
+ content hash. The manifest entries (cacheId/generation/sequence) pointing at it are kept in
+ ChunkReferrers shards, here there's only the epoch of each shard that holds any, so the state stays
+ one payload and at most ChunkReferrers.SHARDS numbers however widely the bytes are shared.
+
+ referrers are the ones chunks stored before the shards still hold. Being a set rather than a count
+ makes referencing and releasing them safe to retry, no new referrer is added to it.
+
+ When the last shard and legacy referrer are released the payload is dropped. A later store of the same
+ bytes brings it back.
+ */
+public record ChunkStore(byte[] payload, Set<String> referrers, Map<Integer, Long> shards) {
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    public ChunkStore {
+        // snapshots taken before the shards have none
+        shards = shards == null ? Map.of() : shards;
+    }
+
+    public static ChunkStore empty() {
+        return new ChunkStore(NO_PAYLOAD, Collections.emptySet(), Map.of());
+    }
+
+    public boolean holdsPayload() {
+        return !referrers.isEmpty() || !shards.isEmpty();
+    }
+
+    public boolean referencedBy(String referrer) {
+        return referrers.contains(referrer);
+    }
+
+    // the shard is known at this epoch or a later one
+    public boolean referencedBy(ChunkShard shard) {
+        Long epoch = shards.get(shard.shard());
+        return epoch != null && epoch >= shard.epoch();
+    }
+
+    public ChunkStore withPayload(byte[] storedPayload, String referrer) {
+        return new ChunkStore(storedPayload, Set.of(referrer), Map.of());
+    }
+
+    public ChunkStore withPayload(byte[] storedPayload, ChunkShard shard) {
+        return new ChunkStore(storedPayload, Collections.emptySet(), Map.of(shard.shard(), shard.epoch()));
+    }
+
+    public ChunkStore withReferrer(String referrer) {
+        Set<String> newReferrers = new HashSet<>(referrers);
+        newReferrers.add(referrer);
+        return new ChunkStore(payload, newReferrers, shards);
+    }
+
+    public ChunkStore withoutReferrer(String referrer) {
+        Set<String> newReferrers = new HashSet<>(referrers);
+        newReferrers.remove(referrer);
+        return withHolders(newReferrers, shards);
+    }
+
+    public ChunkStore withShard(ChunkShard shard) {
+        Map<Integer, Long> newShards = new HashMap<>(shards);
+        newShards.merge(shard.shard(), shard.epoch(), Math::max);
+        return new ChunkStore(payload, referrers, newShards);
+    }
+
+    // whether the shard was last referenced at exactly this epoch, only then does its emptying release it
+    public boolean heldAt(ChunkShard shard) {
+        return Long.valueOf(shard.epoch()).equals(shards.get(shard.shard()));
+    }
+
+    // a shard referenced again since it emptied at this epoch is kept
+    public ChunkStore withoutShard(ChunkShard shard) {
+        if (!heldAt(shard)) {
+            return this;
+        }
+        Map<Integer, Long> newShards = new HashMap<>(shards);
+        newShards.remove(shard.shard());
+        return withHolders(referrers, newShards);
+    }
+
+    private ChunkStore withHolders(Set<String> newReferrers, Map<Integer, Long> newShards) {
+        boolean held = !newReferrers.isEmpty() || !newShards.isEmpty();
+        return new ChunkStore(held ? payload : NO_PAYLOAD, newReferrers, newShards);
+    }
+}
@@ -0,0 +1,25 @@
+package io.akka.cache.domain;
+
+import akka.javasdk.annotations.TypeName;
+
+public sealed interface ChunkStoreEvent {
+    // the only events that carry the bytes, every other key holding the same chunk just references it
+    @TypeName("chunk-stored")
+    record ChunkStored(byte[] payload, String referrer) implements ChunkStoreEvent {}
+
+    @TypeName("chunk-stored-for-shard")
+    record ChunkStoredForShard(byte[] payload, ChunkShard shard) implements ChunkStoreEvent {}
+
+    // only the referrers stored before the ChunkReferrers shards are released one by one, none are referenced any more
+    @TypeName("chunk-referenced")
+    record ChunkReferenced(String referrer) implements ChunkStoreEvent {}
+
+    @TypeName("chunk-released")
+    record ChunkReleased(String referrer) implements ChunkStoreEvent {}
+
+    @TypeName("chunk-shard-referenced")
+    record ChunkShardReferenced(ChunkShard shard) implements ChunkStoreEvent {}
+
+    @TypeName("chunk-shard-released")
+    record ChunkShardReleased(ChunkShard shard) implements ChunkStoreEvent {}
+}
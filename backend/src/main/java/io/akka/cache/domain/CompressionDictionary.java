@@ -0,0 +1,31 @@
+package io.akka.cache.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ Every dictionary a cacheName has trained. Values record the version they were compressed against,
+ so older versions are kept for as long as values written with them can be read.
+ */
+public record CompressionDictionary(List<DictionaryVersion> versions) {
+
+    public static CompressionDictionary empty() {
+        return new CompressionDictionary(Collections.emptyList());
+    }
+
+    public DictionaryVersion current() {
+        return versions.isEmpty() ? DictionaryVersion.NONE : versions.getLast();
+    }
+
+    public Optional<DictionaryVersion> version(int version) {
+        return versions.stream().filter(v -> v.version() == version).findFirst();
+    }
+
+    public CompressionDictionary withVersion(DictionaryVersion dictionaryVersion) {
+        List<DictionaryVersion> newVersions = new ArrayList<>(versions);
+        newVersions.add(dictionaryVersion);
+        return new CompressionDictionary(newVersions);
+    }
+}
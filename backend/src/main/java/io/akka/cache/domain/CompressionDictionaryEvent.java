@@ -0,0 +1,8 @@
+package io.akka.cache.domain;
+
+import akka.javasdk.annotations.TypeName;
+
+public sealed interface CompressionDictionaryEvent {
+    @TypeName("dictionary-trained")
+    record DictionaryTrained(int version, byte[] dictionary, int samples) implements CompressionDictionaryEvent {}
+}
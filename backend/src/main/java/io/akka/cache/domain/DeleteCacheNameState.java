@@ -6,9 +6,19 @@ import java.util.Collections;
 
 import static io.akka.cache.domain.DeleteCacheNameState.DeleteStatus.INPROGRESS;
 
-public record DeleteCacheNameState(String cacheName, CacheView.CachedKeys keys, Integer currOffset, DeleteStatus deleteStatus, Integer intRetries, Boolean flushOnly) {
+/*
+ Only the page of keys being deleted is held, never the whole cacheName. after is the last key of the
+ pages already deleted, the next page starts there (see KeyPageQuery), lastPage says there's none after this one.
+ */
+public record DeleteCacheNameState(String cacheName, CacheView.CachedKeys keys, Integer currOffset, DeleteStatus deleteStatus, Integer intRetries, Boolean flushOnly, String after, Boolean lastPage) {
+    // a workflow started before paging has neither, it carries on from its key list as if that was the first page
+    public DeleteCacheNameState {
+        after = after == null ? "" : after;
+        lastPage = lastPage != null && lastPage;
+    }
+
     public DeleteCacheNameState(String cacheName, Boolean flushOnly) {
-        this(cacheName, new CacheView.CachedKeys(Collections.emptyList()), 0, DeleteStatus.EMPTY, 0, flushOnly);
+        this(cacheName, new CacheView.CachedKeys(Collections.emptyList()), 0, DeleteStatus.EMPTY, 0, flushOnly, "", false);
     }
 
     public enum DeleteStatus {
@@ -16,19 +26,26 @@ public record DeleteCacheNameState(String cacheName, CacheView.CachedKeys keys,
     }
 
     public DeleteCacheNameState withStatus(DeleteStatus newStatus) {
-        return new DeleteCacheNameState(cacheName, keys, currOffset, newStatus, intRetries, flushOnly);
+        return new DeleteCacheNameState(cacheName, keys, currOffset, newStatus, intRetries, flushOnly, after, lastPage);
+    }
+
+    public DeleteCacheNameState withPage(CacheView.CachedKeys page, boolean lastPage) {
+        return new DeleteCacheNameState(cacheName, page, 0, INPROGRESS, intRetries, flushOnly, after, lastPage);
     }
 
-    public DeleteCacheNameState withCached(CacheView.CachedKeys cached) {
-        return new DeleteCacheNameState(cacheName, cached, currOffset, INPROGRESS, intRetries, flushOnly);
+    // the page is done, the next one is fetched from after its last key. The highest rather than the last
+    // one, a key list from before paging isn't in key order
+    public DeleteCacheNameState withPageDeleted() {
+        String pageEnd = keys.keys().isEmpty() ? after : Collections.max(keys.keys());
+        return new DeleteCacheNameState(cacheName, new CacheView.CachedKeys(Collections.emptyList()), 0, deleteStatus, intRetries, flushOnly, pageEnd, lastPage);
     }
 
     public DeleteCacheNameState withCurrOffset(Integer currOffset) {
-        return new DeleteCacheNameState(cacheName, keys, currOffset, deleteStatus, intRetries, flushOnly);
+        return new DeleteCacheNameState(cacheName, keys, currOffset, deleteStatus, intRetries, flushOnly, after, lastPage);
     }
 
     public DeleteCacheNameState withIntRetries(Integer intRetries) {
-        return new DeleteCacheNameState(cacheName, keys, currOffset, deleteStatus, intRetries, flushOnly);
+        return new DeleteCacheNameState(cacheName, keys, currOffset, deleteStatus, intRetries, flushOnly, after, lastPage);
     }
 
 }
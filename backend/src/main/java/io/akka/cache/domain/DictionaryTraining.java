@@ -0,0 +1,3 @@
+package io.akka.cache.domain;
+
+public record DictionaryTraining(byte[] dictionary, int samples) {}
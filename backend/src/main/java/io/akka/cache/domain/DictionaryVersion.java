@@ -0,0 +1,10 @@
+package io.akka.cache.domain;
+
+// version 0 is never trained, it stands for "no dictionary yet"
+public record DictionaryVersion(int version, byte[] dictionary) {
+    public static final DictionaryVersion NONE = new DictionaryVersion(0, new byte[0]);
+
+    public boolean trained() {
+        return version > 0;
+    }
+}
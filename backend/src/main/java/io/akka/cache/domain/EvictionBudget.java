@@ -0,0 +1,39 @@
+package io.akka.cache.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ How big a bounded cacheName may get, 0 leaves that dimension unbounded. Once the cacheName's stats
+ go over, the coldest keys are picked until what they free brings it back within both limits.
+ */
+public record EvictionBudget(String cacheName, long maxBytes, long maxEntries, EvictionPolicy policy) {
+
+    public long excessBytes(CacheNameStats stats) {
+        return maxBytes > 0 ? Math.max(0L, stats.totalBytes() - maxBytes) : 0L;
+    }
+
+    public long excessEntries(CacheNameStats stats) {
+        return maxEntries > 0 ? Math.max(0L, stats.keys() - maxEntries) : 0L;
+    }
+
+    public boolean exceededBy(CacheNameStats stats) {
+        return excessBytes(stats) > 0 || excessEntries(stats) > 0;
+    }
+
+    // coldest comes coldest first, as CacheEviction ranks it by the policy
+    public List<KeyAccess> select(List<KeyAccess> coldest, CacheNameStats stats) {
+        long bytesToFree = excessBytes(stats);
+        long entriesToFree = excessEntries(stats);
+        List<KeyAccess> selected = new ArrayList<>();
+        for (KeyAccess keyAccess : coldest) {
+            if (bytesToFree <= 0 && entriesToFree <= 0) {
+                break;
+            }
+            selected.add(keyAccess);
+            bytesToFree -= keyAccess.totalBytes();
+            entriesToFree--;
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,14 @@
+package io.akka.cache.domain;
+
+import java.util.Comparator;
+
+// LRU evicts the keys read (or written) longest ago, LFU the ones read least often
+public enum EvictionPolicy {
+    LRU,
+    LFU;
+
+    public Comparator<KeyAccess> coldestFirst() {
+        Comparator<KeyAccess> byLastAccess = Comparator.comparing(KeyAccess::lastAccessed);
+        return this == LFU ? Comparator.comparingLong(KeyAccess::accesses).thenComparing(byLastAccess) : byLastAccess;
+    }
+}
@@ -0,0 +1,36 @@
+package io.akka.cache.domain;
+
+import java.time.Instant;
+
+/*
+ A row of the CacheView, what eviction ranks a key by once CacheEviction has added the reads its
+ AccessStatsEntity shard recorded (see AccessStats.applyTo). Reads are sampled (app.eviction.access-sample-rate),
+ so accesses counts sampled reads, not every read. A write counts as an access too.
+
+ A flush that is retried counts its reads again, so accesses can run a little high. That only moves a key
+ down the eviction order, which is an estimate to begin with; how much has to be evicted comes from the
+ CacheNameStats, which skip redelivered resizes.
+ */
+public record KeyAccess(String cacheName, String key, long totalBytes, Instant lastAccessed, long accesses) {
+
+    public static KeyAccess written(String cacheName, String key, long totalBytes, Instant at) {
+        return new KeyAccess(cacheName, key, totalBytes, at, 0L);
+    }
+
+    // an overwrite keeps what was counted for the key so far
+    public KeyAccess withWrite(long newTotalBytes, Instant at) {
+        return new KeyAccess(cacheName, key, newTotalBytes, later(at), accesses);
+    }
+
+    public KeyAccess withAccess(Instant at, long reads) {
+        return new KeyAccess(cacheName, key, totalBytes, later(at), accesses + reads);
+    }
+
+    public KeyAccess withTotalBytes(long newTotalBytes) {
+        return new KeyAccess(cacheName, key, newTotalBytes, lastAccessed, accesses);
+    }
+
+    private Instant later(Instant at) {
+        return lastAccessed == null || at.isAfter(lastAccessed) ? at : lastAccessed;
+    }
+}
@@ -0,0 +1,64 @@
+package io.akka.cache.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ One page of a cacheName's keys, in key order. The page starts after the cursor (the last key of the
+ previous page) instead of at an offset, so every page costs the same no matter how deep into the
+ cacheName it is. A prefix becomes the key range [prefix, prefixEnd).
+
+ limit is what the view is asked for: one more than the page size, the extra key only tells there's a next page.
+ */
+public record KeyPageQuery(String cacheName, String after, String prefix, String prefixEnd, int limit) {
+
+    public static KeyPageQuery of(String cacheName, Optional<String> cursor, Optional<String> prefix, int pageSize) {
+        String keyPrefix = prefix.orElse("");
+        return new KeyPageQuery(cacheName, cursor.map(KeyPageQuery::decodeCursor).orElse(""), keyPrefix, prefixEnd(keyPrefix), pageSize + 1);
+    }
+
+    public int pageSize() {
+        return limit - 1;
+    }
+
+    // without an upper bound the view query only needs key >= prefix
+    public boolean bounded() {
+        return !prefixEnd.isEmpty();
+    }
+
+    public KeyPageQuery next(String cursorKey) {
+        return new KeyPageQuery(cacheName, cursorKey, prefix, prefixEnd, limit);
+    }
+
+    public List<String> page(List<String> fetched) {
+        return fetched.size() > pageSize() ? fetched.subList(0, pageSize()) : fetched;
+    }
+
+    public Optional<String> nextCursor(List<String> fetched) {
+        return fetched.size() > pageSize() ? Optional.of(encodeCursor(fetched.get(pageSize() - 1))) : Optional.empty();
+    }
+
+    // the smallest string above every string that starts with the prefix, empty when there isn't one
+    static String prefixEnd(String prefix) {
+        StringBuilder end = new StringBuilder(prefix);
+        while (!end.isEmpty() && end.charAt(end.length() - 1) == Character.MAX_VALUE) {
+            end.setLength(end.length() - 1);
+        }
+        if (end.isEmpty()) {
+            return "";
+        }
+        end.setCharAt(end.length() - 1, (char) (end.charAt(end.length() - 1) + 1));
+        return end.toString();
+    }
+
+    // opaque to clients, and safe in a query string whatever the key is
+    public static String encodeCursor(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeCursor(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
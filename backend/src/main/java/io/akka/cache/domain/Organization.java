@@ -1,11 +1,50 @@
 package io.akka.cache.domain;
 
-public record Organization(int cacheCount, long totalBytesCached) {
+import java.util.Map;
+import java.util.Optional;
+
+/*
+ What an org has cached across all of its cacheNames, kept by the OrganizationEntity.
+ Never below zero, values cached before the accounting started can be deleted. A redelivered resize
+ is skipped by its sequence (see ResizeBatch), highWaterMarks are the latest applied per source.
+ */
+public record Organization(int cacheCount, long totalBytesCached, Map<String, Long> highWaterMarks) {
+    public Organization {
+        highWaterMarks = highWaterMarks == null ? Map.of() : highWaterMarks;
+    }
+
+    public Organization(int cacheCount, long totalBytesCached) {
+        this(cacheCount, totalBytesCached, Map.of());
+    }
+
+    public static Organization empty() {
+        return new Organization(0, 0L);
+    }
+
+    public Organization withResizes(ResizeBatch batch) {
+        Organization organization = this;
+        for (ResizeBatch.Resize resize : batch.unapplied(highWaterMarks)) {
+            organization = organization.withResized(resize.before(), resize.after());
+        }
+        return new Organization(organization.cacheCount, organization.totalBytesCached, batch.applied(highWaterMarks));
+    }
+
+    public Organization withResized(Optional<ValueSize> before, Optional<ValueSize> after) {
+        Organization organization = this;
+        if (before.isPresent()) {
+            organization = organization.withDecrementedBytesCached(before.get().totalBytes());
+        }
+        if (after.isPresent()) {
+            organization = organization.withIncrementedBytesCached(after.get().totalBytes());
+        }
+        return new Organization(Math.max(0, organization.cacheCount()), Math.max(0L, organization.totalBytesCached()), highWaterMarks);
+    }
+
     public Organization withIncrementedBytesCached(long incrementBytesBy) {
-        return new Organization(cacheCount + 1, totalBytesCached + incrementBytesBy);
+        return new Organization(cacheCount + 1, totalBytesCached + incrementBytesBy, highWaterMarks);
     }
 
     public Organization withDecrementedBytesCached(long decrementBytesBy) {
-        return new Organization(cacheCount - 1, totalBytesCached - decrementBytesBy);
+        return new Organization(cacheCount - 1, totalBytesCached - decrementBytesBy, highWaterMarks);
     }
 }
@@ -1,4 +1,75 @@
 package io.akka.cache.domain;
 
-public record PayloadChunk(Integer sequence, byte[] payload) {
-}
\ No newline at end of file
+import akka.util.ByteString;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/*
+ The payload stays a byte[] since that is what gets persisted (and what the journal already holds),
+ but moving between it and ByteString never copies more than once.
+
+ A chunk with a contentHash is a manifest entry: the bytes live once in the ChunkStoreEntity
+ with that id and the payload here is empty. It's referenced as cacheId/generation/sequence, the value's
+ generation unless the chunk was stored by a later write (a patch) under its own generation.
+ */
+public record PayloadChunk(Integer sequence, byte[] payload, Optional<String> contentHash, Optional<String> generation) {
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    public PayloadChunk {
+        // chunks persisted before these fields existed
+        contentHash = contentHash == null ? Optional.empty() : contentHash;
+        generation = generation == null ? Optional.empty() : generation;
+    }
+
+    public PayloadChunk(Integer sequence, byte[] payload) {
+        this(sequence, payload, Optional.empty(), Optional.empty());
+    }
+
+    // free only when the ByteString owns its whole backing array. Every chunk the Chunker cuts out of a larger
+    // buffer is a slice of it, the first one included, so a chunked value is copied once here, chunk by chunk
+    public static PayloadChunk of(Integer sequence, ByteString bytes) {
+        return new PayloadChunk(sequence, bytes.toArrayUnsafe());
+    }
+
+    public static PayloadChunk stored(Integer sequence, String contentHash) {
+        return new PayloadChunk(sequence, NO_PAYLOAD, Optional.of(contentHash), Optional.empty());
+    }
+
+    public static PayloadChunk stored(Integer sequence, String contentHash, String generation) {
+        return new PayloadChunk(sequence, NO_PAYLOAD, Optional.of(contentHash), Optional.of(generation));
+    }
+
+    // SHA-256, hex encoded. Walks the ByteString's buffers so a slice isn't copied just to hash it
+    public static String contentHash(ByteString bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (ByteBuffer buffer : bytes.getByteBuffers()) {
+                digest.update(buffer);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public boolean inChunkStore() {
+        return contentHash.isPresent();
+    }
+
+    public PayloadChunk withPayload(byte[] storedPayload) {
+        return new PayloadChunk(sequence, storedPayload, contentHash, generation);
+    }
+
+    // the referrer this manifest entry holds its stored chunk under, within a value of valueGeneration
+    public String referrer(String cacheId, String valueGeneration) {
+        return ChunkRelease.referrer(cacheId, generation.orElse(valueGeneration), sequence);
+    }
+
+    public ByteString asByteString() {
+        return ByteString.fromArrayUnsafe(payload);
+    }
+}
@@ -0,0 +1,66 @@
+package io.akka.cache.domain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*
+ CacheResized events gathered for one CacheNameStatsEntity or OrganizationEntity, applied in one write.
+
+ Consumers see an event at least once, so the same resize can show up in a later batch again. Each
+ resize carries its source (the CacheEntity id) and a sequence that only grows per source, and the
+ entities keep the highest sequence applied for each of their latest TRACKED_SOURCES sources: one
+ number per key, however often it is written, instead of an id per resize. A redelivery comes from
+ the offsets not yet stored and so is always recent. A resize without a sequence can't be recognized
+ and is applied every time.
+ */
+public record ResizeBatch(List<Resize> resizes) {
+
+    public static final int TRACKED_SOURCES = 256;
+
+    public record Resize(String source, long sequence, Optional<ValueSize> before, Optional<ValueSize> after) {
+        public static Resize of(String source, CacheEvent.CacheResized resized) {
+            return new Resize(source, resized.sequence(), resized.before(), resized.after());
+        }
+
+        private boolean tracked() {
+            return !source.isEmpty() && sequence > 0;
+        }
+    }
+
+    // the resizes that haven't been applied yet, each one once
+    public List<Resize> unapplied(Map<String, Long> highWaterMarks) {
+        Map<String, Long> seen = new HashMap<>(highWaterMarks);
+        List<Resize> unapplied = new ArrayList<>();
+        for (Resize resize : resizes) {
+            if (!resize.tracked()) {
+                unapplied.add(resize);
+            } else if (resize.sequence() > seen.getOrDefault(resize.source(), 0L)) {
+                seen.put(resize.source(), resize.sequence());
+                unapplied.add(resize);
+            }
+        }
+        return unapplied;
+    }
+
+    // highWaterMarks moved up by this batch, the sources it touched last, trimmed to the latest TRACKED_SOURCES
+    public Map<String, Long> applied(Map<String, Long> highWaterMarks) {
+        LinkedHashMap<String, Long> applied = new LinkedHashMap<>(highWaterMarks);
+        for (Resize resize : unapplied(highWaterMarks)) {
+            if (resize.tracked()) {
+                applied.remove(resize.source());
+                applied.put(resize.source(), resize.sequence());
+            }
+        }
+        Iterator<String> oldest = applied.keySet().iterator();
+        while (applied.size() > TRACKED_SOURCES) {
+            oldest.next();
+            oldest.remove();
+        }
+        return applied;
+    }
+}
@@ -0,0 +1,6 @@
+package io.akka.cache.domain;
+
+import java.util.List;
+
+// full chunks an append left inline, now in the chunk store under the seal's own generation
+public record SealedChunks(List<PayloadChunk> chunks) {}
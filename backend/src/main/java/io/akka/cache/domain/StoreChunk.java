@@ -0,0 +1,3 @@
+package io.akka.cache.domain;
+
+public record StoreChunk(ChunkShard shard, byte[] payload) {}
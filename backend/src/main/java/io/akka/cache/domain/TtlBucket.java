@@ -0,0 +1,51 @@
+package io.akka.cache.domain;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+ The keys expiring in one slot of the TTL wheel. timerStarted is only set once the timer has been started,
+ and goes back to false when the last entry is expired, so the first add after that (and any add whose
+ timer start failed) starts it again.
+
+ The entries are kept in cacheId order so a page is a tailMap rather than a sort of the whole bucket.
+ */
+public record TtlBucket(NavigableMap<String, Instant> entries, boolean timerStarted) {
+
+    public static TtlBucket empty() {
+        return new TtlBucket(Collections.emptyNavigableMap(), false);
+    }
+
+    // a key already in the bucket only gets a new expiry, so it's never turned away
+    public boolean full(String cacheId, int maxEntries) {
+        return entries.size() >= maxEntries && !entries.containsKey(cacheId);
+    }
+
+    public TtlBucket withEntry(String cacheId, Instant expiresAt) {
+        NavigableMap<String, Instant> newEntries = new TreeMap<>(entries);
+        newEntries.put(cacheId, expiresAt);
+        return new TtlBucket(newEntries, timerStarted);
+    }
+
+    public TtlBucket withTimerStarted() {
+        return new TtlBucket(entries, true);
+    }
+
+    // an entry re-added with a new expiry while it was being expired stays for the next pass
+    public TtlBucket withExpired(List<TtlEntry> expired) {
+        NavigableMap<String, Instant> newEntries = new TreeMap<>(entries);
+        expired.forEach(entry -> newEntries.remove(entry.cacheId(), entry.expiresAt()));
+        return new TtlBucket(newEntries, timerStarted && !newEntries.isEmpty());
+    }
+
+    // the entries after the given cacheId, in cacheId order, so a drain can page through the bucket
+    public List<TtlEntry> page(String afterCacheId, int limit) {
+        return entries.tailMap(afterCacheId, false).entrySet().stream()
+                .limit(limit)
+                .map(entry -> new TtlEntry(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,22 @@
+package io.akka.cache.domain;
+
+import akka.javasdk.annotations.TypeName;
+
+import java.time.Instant;
+import java.util.List;
+
+public sealed interface TtlBucketEvent {
+    @TypeName("ttl-entry-added")
+    record TtlEntryAdded(String cacheId, Instant expiresAt) implements TtlBucketEvent {}
+
+    @TypeName("ttl-timer-started")
+    record TtlTimerStarted() implements TtlBucketEvent {}
+
+    // buckets drained in one go, before the drain went by pages. Only replayed, no longer persisted
+    @TypeName("ttl-bucket-drained")
+    record TtlBucketDrained() implements TtlBucketEvent {}
+
+    // the entries that were expired (or moved down to a fine bucket), only after that succeeded
+    @TypeName("ttl-entries-expired")
+    record TtlEntriesExpired(List<TtlEntry> entries) implements TtlBucketEvent {}
+}
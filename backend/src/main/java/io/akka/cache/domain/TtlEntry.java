@@ -0,0 +1,16 @@
+package io.akka.cache.domain;
+
+import java.time.Instant;
+import java.util.List;
+
+public record TtlEntry(String cacheId, Instant expiresAt) {
+
+    public record TtlEntries(List<TtlEntry> entries) {}
+
+    public record TtlPage(String afterCacheId, int limit) {}
+
+    // maxEntries caps the bucket, a full bucket turns away new keys and the wheel spills them into another shard
+    public record TtlAdd(TtlEntry entry, int maxEntries) {}
+
+    public record TtlAdded(boolean added, boolean timerStarted) {}
+}
@@ -0,0 +1,88 @@
+package io.akka.cache.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/*
+ The slot arithmetic of the two level TTL wheel. Expiries within coarseHorizon go into fine buckets that fire
+ at the end of their slot. Further out they go into coarse buckets that fire at the start of theirs and move
+ every entry down into the fine buckets, which by then are all within the horizon.
+
+ Each slot is split into shards buckets by the key's hash, ids "fine-<slot start>-<shard>", so one busy
+ slot is spread over several entities. A shard that is full spills into shard + shards, then + 2 * shards
+ and so on. Ids from before the shards (no "-<shard>") still parse.
+
+ Tombstone purges run through the same wheel in buckets of their own, their ids are the expiry bucket ids
+ with a "purge-" prefix, so a purge bucket cascades and fires just like the expiry bucket it shadows.
+
+ jitter pushes each key's slot back by a fixed, per key amount (never forward), so a mass of keys set
+ together spreads over several buckets instead of expiring in one spike.
+ */
+public record TtlSlots(Duration bucketWidth, Duration coarseHorizon, Duration coarseBucketWidth, Duration jitter, int shards) {
+    private static final String FINE = "fine-";
+    private static final String COARSE = "coarse-";
+    private static final String PURGE = "purge-";
+
+    public TtlSlots {
+        shards = Math.max(1, shards);
+    }
+
+    public Instant slotTime(String cacheId, Instant expiresAt) {
+        long jitterMillis = jitter.toMillis();
+        return jitterMillis <= 0 ? expiresAt : expiresAt.plusMillis(Math.floorMod(cacheId.hashCode(), jitterMillis));
+    }
+
+    public String bucketFor(String cacheId, Instant slotTime, Instant now) {
+        int shard = Math.floorMod(cacheId.hashCode(), shards);
+        if (Duration.between(now, slotTime).compareTo(coarseHorizon) <= 0) {
+            return FINE + slotStart(slotTime, bucketWidth) + "-" + shard;
+        }
+        return COARSE + slotStart(slotTime, coarseBucketWidth) + "-" + shard;
+    }
+
+    public String purgeBucketFor(String cacheId, Instant slotTime, Instant now) {
+        return PURGE + bucketFor(cacheId, slotTime, now);
+    }
+
+    // the bucket a full one spills into, the same slot (and kind) in the next round of shards
+    public String spill(String bucketId) {
+        int dash = bucketId.lastIndexOf('-');
+        String head = bucketId.substring(0, dash + 1);
+        String tail = bucketId.substring(dash + 1);
+        if (head.equals(FINE) || head.equals(COARSE) || head.equals(PURGE + FINE) || head.equals(PURGE + COARSE)) {
+            // a bucket id from before the shards
+            return bucketId + "-" + shards;
+        }
+        return head + (Integer.parseInt(tail) + shards);
+    }
+
+    public boolean purge(String bucketId) {
+        return bucketId.startsWith(PURGE);
+    }
+
+    public boolean coarse(String bucketId) {
+        return slot(bucketId).startsWith(COARSE);
+    }
+
+    public Instant firesAt(String bucketId) {
+        String slot = slot(bucketId);
+        if (slot.startsWith(COARSE)) {
+            return Instant.ofEpochMilli(slotMillis(slot.substring(COARSE.length())));
+        }
+        return Instant.ofEpochMilli(slotMillis(slot.substring(FINE.length()))).plus(bucketWidth);
+    }
+
+    private static long slotMillis(String slotAndShard) {
+        int dash = slotAndShard.indexOf('-');
+        return Long.parseLong(dash < 0 ? slotAndShard : slotAndShard.substring(0, dash));
+    }
+
+    private static String slot(String bucketId) {
+        return bucketId.startsWith(PURGE) ? bucketId.substring(PURGE.length()) : bucketId;
+    }
+
+    private static long slotStart(Instant slotTime, Duration width) {
+        long widthMillis = width.toMillis();
+        return Math.floorDiv(slotTime.toEpochMilli(), widthMillis) * widthMillis;
+    }
+}
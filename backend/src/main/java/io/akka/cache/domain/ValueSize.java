@@ -0,0 +1,4 @@
+package io.akka.cache.domain;
+
+// what the CacheNameStats count for one live value
+public record ValueSize(long totalBytes, boolean chunked) {}
@@ -0,0 +1,105 @@
+package io.akka.cache.local;
+
+import akka.Done;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.AccessStats;
+import io.akka.cache.domain.CacheAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Gathers the sampled reads of the bounded cacheNames on this node, so the eviction ranking costs each
+ * AccessStatsEntity shard (app.eviction.access-shards per cacheName) one write per
+ * app.eviction.access-flush-interval at most instead of one per sample. The CacheEntity never sees them.
+ *
+ * app.eviction.access-sample-rate of the reads are recorded. The reads of a key add up until the flush,
+ * which writes each shard's keys with their count and latest read and starts over. At most
+ * app.eviction.access-max-keys are held between flushes, the samples of keys past that are dropped.
+ * Samples still held when a node goes down are lost, the ranking is an estimate either way.
+ */
+public class AccessSamples {
+    private static final Logger log = LoggerFactory.getLogger(AccessSamples.class);
+
+    private final Set<String> boundedCacheNames;
+    private final double sampleRate;
+    private final Duration flushInterval;
+    private final int shards;
+    private final int maxKeys;
+    private final BiFunction<String, Map<String, CacheAccess>, CompletionStage<Done>> write;
+    // by shard id, then by key
+    private final Map<String, Map<String, CacheAccess>> pending = new HashMap<>();
+    private int pendingKeys;
+
+    // write records the reads of a shard's keys in its AccessStatsEntity
+    public AccessSamples(Config config, BiFunction<String, Map<String, CacheAccess>, CompletionStage<Done>> write) {
+        this.boundedCacheNames = config.getConfigList("app.eviction.cache-names").stream()
+                .map(bounded -> bounded.getString("name"))
+                .collect(Collectors.toSet());
+        this.sampleRate = config.getDouble("app.eviction.access-sample-rate");
+        this.flushInterval = config.getDuration("app.eviction.access-flush-interval");
+        this.shards = config.getInt("app.eviction.access-shards");
+        this.maxKeys = config.getInt("app.eviction.access-max-keys");
+        this.write = write;
+    }
+
+    public void record(String cacheName, String key) {
+        if (!boundedCacheNames.contains(cacheName) || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        record(cacheName, key, Instant.now());
+    }
+
+    void record(String cacheName, String key, Instant at) {
+        String shardId = AccessStats.shardId(cacheName, key, shards);
+        boolean opened;
+        synchronized (pending) {
+            Map<String, CacheAccess> shard = pending.get(shardId);
+            boolean known = shard != null && shard.containsKey(key);
+            if (!known && pendingKeys >= maxKeys) {
+                return;
+            }
+            opened = pending.isEmpty();
+            if (!known) {
+                pendingKeys++;
+            }
+            pending.computeIfAbsent(shardId, __ -> new HashMap<>()).merge(key, new CacheAccess(1L, at), CacheAccess::plus);
+        }
+        // the first sample since the last flush schedules the next one
+        if (opened) {
+            CompletableFuture.delayedExecutor(flushInterval.toMillis(), TimeUnit.MILLISECONDS).execute(this::flush);
+        }
+    }
+
+    void flush() {
+        Map<String, Map<String, CacheAccess>> flushing;
+        int keys;
+        synchronized (pending) {
+            flushing = new HashMap<>(pending);
+            keys = pendingKeys;
+            pending.clear();
+            pendingKeys = 0;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("AccessSamples flushing the reads of {} keys in {} shards", keys, flushing.size());
+        }
+        flushing.forEach((shardId, reads) -> write.apply(shardId, reads)
+                .exceptionally(ex -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("AccessSamples flush failed for {}: {}", shardId, ex.getMessage());
+                    }
+                    return Done.done();
+                }));
+    }
+}
@@ -0,0 +1,64 @@
+package io.akka.cache.local;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Node-local answer to "does this cacheName exist", so app.cache-name-needed-first doesn't cost every
+ * write a round trip to the CacheNameEntity.
+ *
+ * Both answers are cached, a missing cacheName for the shorter app.cache-name-existence.negative-ttl so
+ * one created through another node is picked up soon. Coherence is time-bounded like the NearCache's: a
+ * create through this node invalidates immediately, but the CacheNameExistenceInvalidator consumer only
+ * sees each event on one node, so the TTLs are what bound how long every other node keeps its answer.
+ * A failed lookup isn't cached.
+ */
+public class CacheNameExistence {
+    private static final Logger log = LoggerFactory.getLogger(CacheNameExistence.class);
+
+    private final AsyncCache<String, Boolean> existence;
+
+    public CacheNameExistence(Config config) {
+        Duration positiveTtl = config.getDuration("app.cache-name-existence.positive-ttl");
+        Duration negativeTtl = config.getDuration("app.cache-name-existence.negative-ttl");
+        this.existence = Caffeine.newBuilder()
+                .maximumSize(config.getLong("app.cache-name-existence.max-entries"))
+                .expireAfter(new Expiry<String, Boolean>() {
+                    @Override
+                    public long expireAfterCreate(String cacheName, Boolean exists, long currentTime) {
+                        return exists ? positiveTtl.toNanos() : negativeTtl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String cacheName, Boolean exists, long currentTime, long currentDuration) {
+                        return exists ? positiveTtl.toNanos() : negativeTtl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String cacheName, Boolean exists, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+        if (log.isDebugEnabled()) {
+            log.debug("CacheNameExistence positiveTtl {} negativeTtl {}", positiveTtl, negativeTtl);
+        }
+    }
+
+    // concurrent checks of a cacheName that isn't known yet share the one lookup
+    public CompletionStage<Boolean> exists(String cacheName, Supplier<CompletionStage<Boolean>> loader) {
+        return existence.get(cacheName, (id, executor) -> loader.get().toCompletableFuture());
+    }
+
+    public void invalidate(String cacheName) {
+        existence.synchronous().invalidate(cacheName);
+    }
+}
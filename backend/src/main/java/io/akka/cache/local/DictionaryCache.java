@@ -0,0 +1,57 @@
+package io.akka.cache.local;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.DictionaryVersion;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Node-local copy of the compression dictionaries, so compressing or reading a small value
+ * doesn't cost a round trip to the CompressionDictionaryEntity.
+ *
+ * A trained version never changes, so versions are kept until they're pushed out by size. Which
+ * version is current is re-read after app.dictionary.refresh, that's how long a retrain takes to
+ * reach every node (the node that trained it picks it up straight away).
+ */
+public class DictionaryCache {
+    private static final String ALL_CACHE_NAMES = "*";
+    private static final int MAX_VERSIONS = 1000;
+
+    private final Set<String> cacheNames;
+    private final AsyncCache<String, DictionaryVersion> current;
+    private final AsyncCache<String, DictionaryVersion> versions;
+
+    public DictionaryCache(Config config) {
+        this.cacheNames = new HashSet<>(config.getStringList("app.dictionary.cache-names"));
+        Duration refresh = config.getDuration("app.dictionary.refresh");
+        this.current = Caffeine.newBuilder()
+                .expireAfterWrite(refresh)
+                .buildAsync();
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(MAX_VERSIONS)
+                .buildAsync();
+    }
+
+    public boolean isEnabledFor(String cacheName) {
+        return cacheNames.contains(ALL_CACHE_NAMES) || cacheNames.contains(cacheName);
+    }
+
+    // a failed load isn't cached, the next caller tries again
+    public CompletionStage<DictionaryVersion> current(String cacheName, Supplier<CompletionStage<DictionaryVersion>> loader) {
+        return current.get(cacheName, (id, executor) -> loader.get().toCompletableFuture());
+    }
+
+    public CompletionStage<DictionaryVersion> version(String cacheName, int version, Supplier<CompletionStage<DictionaryVersion>> loader) {
+        return versions.get(cacheName + "/" + version, (id, executor) -> loader.get().toCompletableFuture());
+    }
+
+    public void trained(String cacheName) {
+        current.synchronous().invalidate(cacheName);
+    }
+}
@@ -0,0 +1,198 @@
+package io.akka.cache.local;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.typesafe.config.Config;
+import io.akka.cache.streams.DictionaryCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-local, byte-weighted near-cache that sits in front of the CacheEntity reads.
+ *
+ * Eviction is W-TinyLFU (Caffeine), so a burst of one-off reads doesn't push out the small
+ * set of hot keys that make up most of the read traffic. Only single chunk objects are
+ * held, and only for the cacheNames listed in app.near-cache.cache-names ("*" enables all).
+ *
+ * Coherence is time-bounded: writes through this node invalidate immediately, but the NearCacheInvalidator
+ * consumer only sees each CacheEvent on one node, so every other node keeps serving its entry until it is
+ * app.near-cache.max-staleness old. An entry also never outlives the value's own expiresAt.
+ */
+public class NearCache {
+    private static final Logger log = LoggerFactory.getLogger(NearCache.class);
+
+    private static final String ALL_CACHE_NAMES = "*";
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    /*
+     deliberately not a record, tickets must compare by identity.
+     A dictionary compressed value is held as stored and inflated on each hit. The dictionary is the
+     shared node-local copy, so only the compressed bytes count against max-bytes.
+     */
+    public static final class Entry {
+        private final byte[] value;
+        private final byte[] dictionary;
+        private final Instant expiresAt;
+        private final Long checksum;
+
+        Entry(byte[] value, byte[] dictionary, Instant expiresAt, Long checksum) {
+            this.value = value;
+            this.dictionary = dictionary;
+            this.expiresAt = expiresAt;
+            this.checksum = checksum;
+        }
+
+        public byte[] value() {
+            return dictionary == null ? value : DictionaryCompression.decompress(value, dictionary);
+        }
+
+        int weight() {
+            return value == null ? 0 : value.length;
+        }
+
+        long nanosToLive(Duration maxStaleness) {
+            if (expiresAt == null) {
+                return maxStaleness.toNanos();
+            }
+            Duration untilExpired = Duration.between(Instant.now(), expiresAt);
+            return untilExpired.isNegative() ? 0L : Math.min(untilExpired.toNanos(), maxStaleness.toNanos());
+        }
+    }
+
+    /*
+     A miss leaves behind a unique placeholder (the ticket). A fill only succeeds when
+     the ticket is still in place, so a read that raced with an invalidation can't
+     put a stale value back into the cache.
+     */
+    public record Lookup(String cacheName, String cacheId, Optional<byte[]> value, Optional<Long> checksum, Entry ticket) {
+        public boolean hit() {
+            return value.isPresent();
+        }
+    }
+
+    public record Stats(String cacheName, boolean enabled, long hits, long misses, long entries, long weightedBytes) {}
+
+    private record Counters(LongAdder hits, LongAdder misses) {
+        Counters() {
+            this(new LongAdder(), new LongAdder());
+        }
+    }
+
+    private final Set<String> cacheNames;
+    private final long maxEntryBytes;
+    private final Cache<String, Entry> entries;
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public NearCache(Config config) {
+        this.cacheNames = new HashSet<>(config.getStringList("app.near-cache.cache-names"));
+        this.maxEntryBytes = config.getBytes("app.near-cache.max-entry-bytes");
+        long maxBytes = config.getBytes("app.near-cache.max-bytes");
+        Duration maxStaleness = config.getDuration("app.near-cache.max-staleness");
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String cacheId, Entry entry) -> cacheId.length() + ENTRY_OVERHEAD_BYTES + entry.weight())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String cacheId, Entry entry, long currentTime) {
+                        return entry.nanosToLive(maxStaleness);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String cacheId, Entry entry, long currentTime, long currentDuration) {
+                        return entry.nanosToLive(maxStaleness);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String cacheId, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        if (log.isDebugEnabled()) {
+            log.debug("NearCache cacheNames {} maxBytes {} maxEntryBytes {} maxStaleness {}", cacheNames, maxBytes, maxEntryBytes, maxStaleness);
+        }
+    }
+
+    public boolean isEnabledFor(String cacheName) {
+        return cacheNames.contains(ALL_CACHE_NAMES) || cacheNames.contains(cacheName);
+    }
+
+    public Lookup lookup(String cacheName, String key) {
+        String cacheId = cacheName.concat(key);
+        if (!isEnabledFor(cacheName)) {
+            return new Lookup(cacheName, cacheId, Optional.empty(), Optional.empty(), null);
+        }
+        Counters cnt = counters.computeIfAbsent(cacheName, __ -> new Counters());
+        Entry entry = entries.getIfPresent(cacheId);
+        if (entry != null && entry.value != null) {
+            cnt.hits().increment();
+            return new Lookup(cacheName, cacheId, Optional.of(entry.value()), Optional.ofNullable(entry.checksum), null);
+        }
+        cnt.misses().increment();
+        Entry ticket = new Entry(null, null, null, null);
+        Entry existing = entries.asMap().putIfAbsent(cacheId, ticket);
+        // another reader is already filling this key, let it win
+        return new Lookup(cacheName, cacheId, Optional.empty(), Optional.empty(), existing == null ? ticket : null);
+    }
+
+    public void fill(Lookup lookup, byte[] value) {
+        fill(lookup, value, Optional.empty());
+    }
+
+    public void fill(Lookup lookup, byte[] value, Optional<Instant> expiresAt) {
+        fill(lookup, value, expiresAt, Optional.empty());
+    }
+
+    // the checksum comes back with a hit, so a conditional GET can be answered without the entity
+    public void fill(Lookup lookup, byte[] value, Optional<Instant> expiresAt, Optional<Long> checksum) {
+        fill(lookup, new Entry(value, null, expiresAt.orElse(null), checksum.orElse(null)));
+    }
+
+    // holds the value still compressed against the dictionary
+    public void fill(Lookup lookup, byte[] compressedValue, byte[] dictionary, Optional<Instant> expiresAt, Optional<Long> checksum) {
+        fill(lookup, new Entry(compressedValue, dictionary, expiresAt.orElse(null), checksum.orElse(null)));
+    }
+
+    private void fill(Lookup lookup, Entry entry) {
+        if (lookup.ticket() == null) {
+            return;
+        }
+        if (entry.weight() > maxEntryBytes) {
+            entries.asMap().remove(lookup.cacheId(), lookup.ticket());
+            return;
+        }
+        entries.asMap().replace(lookup.cacheId(), lookup.ticket(), entry);
+    }
+
+    // the value isn't going to be cached (chunked, or the read failed), so give the slot back
+    public void release(Lookup lookup) {
+        if (lookup.ticket() != null) {
+            entries.asMap().remove(lookup.cacheId(), lookup.ticket());
+        }
+    }
+
+    public void invalidate(String cacheName, String key) {
+        invalidate(cacheName.concat(key));
+    }
+
+    public void invalidate(String cacheId) {
+        entries.invalidate(cacheId);
+    }
+
+    public Stats stats(String cacheName) {
+        Counters cnt = counters.getOrDefault(cacheName, new Counters());
+        long weightedBytes = entries.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new Stats(cacheName, isEnabledFor(cacheName), cnt.hits().sum(), cnt.misses().sum(), entries.estimatedSize(), weightedBytes);
+    }
+}
@@ -0,0 +1,57 @@
+package io.akka.cache.local;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.Organization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Node-local copy of what each org has cached, so admitting a write doesn't cost a round trip to
+ * the OrganizationEntity.
+ *
+ * An org's usage is loaded the first time one of its writes comes in and re-read in the background
+ * after app.org-quota.refresh, writes keep being checked against the previous copy meanwhile. Until
+ * the first load completes the org's writes are let through. So an org can go over its quota by what
+ * it writes within one refresh, in exchange for admission never waiting on an entity.
+ */
+public class OrgQuotas {
+    private static final Logger log = LoggerFactory.getLogger(OrgQuotas.class);
+
+    private final long maxBytes;
+    private final AsyncLoadingCache<String, Organization> usage;
+
+    public OrgQuotas(Config config, Function<String, CompletionStage<Organization>> loader) {
+        this.maxBytes = config.getBytes("app.org-quota.max-bytes");
+        Duration refresh = config.getDuration("app.org-quota.refresh");
+        this.usage = Caffeine.newBuilder()
+                .refreshAfterWrite(refresh)
+                .expireAfterAccess(refresh.multipliedBy(10))
+                .buildAsync((org, executor) -> loader.apply(org).toCompletableFuture());
+        if (log.isDebugEnabled()) {
+            log.debug("OrgQuotas maxBytes {} refresh {}", maxBytes, refresh);
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    // incomingBytes is what the write adds, 0 when its size isn't known up front
+    public boolean admits(String org, long incomingBytes) {
+        if (!isEnabled()) {
+            return true;
+        }
+        CompletableFuture<Organization> organization = usage.get(org);
+        if (!organization.isDone() || organization.isCompletedExceptionally()) {
+            return true;
+        }
+        return organization.join().totalBytesCached() + incomingBytes <= maxBytes;
+    }
+}
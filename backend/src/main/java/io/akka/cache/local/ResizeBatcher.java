@@ -0,0 +1,110 @@
+package io.akka.cache.local;
+
+import akka.Done;
+import com.typesafe.config.Config;
+import io.akka.cache.domain.ResizeBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Gathers the resizes a node's consumers see for the same entity into one write, so a busy cacheName
+ * or org costs its entity one write per batch instead of one per changed value.
+ *
+ * There's no timer to wait on: a resize for an entity with no write in flight is written straight away,
+ * and the resizes that come in while that write is in flight go out together (up to
+ * app.resize-batches.max-resizes a write) as soon as it's done. A quiet entity gets each resize on its own
+ * with no added latency, a busy one gets batches as big as its write latency lets them grow.
+ *
+ * The future each resize gets completes with the write of its batch, and a consumer only moves past an
+ * event once that has happened, so nothing is lost when a node goes down with resizes still waiting:
+ * their events are delivered again and the entity skips the ones it had already applied (see ResizeBatch).
+ */
+public class ResizeBatcher {
+    private static final Logger log = LoggerFactory.getLogger(ResizeBatcher.class);
+
+    private static final class Pending {
+        private final List<ResizeBatch.Resize> resizes = new ArrayList<>();
+        private final CompletableFuture<Done> written = new CompletableFuture<>();
+        private final Function<ResizeBatch, CompletionStage<Done>> write;
+
+        private Pending(Function<ResizeBatch, CompletionStage<Done>> write) {
+            this.write = write;
+        }
+    }
+
+    // the batches waiting for the write in flight to an entity, an entity is only here while it has one
+    private final Map<String, Deque<Pending>> waiting = new HashMap<>();
+    private final int maxResizes;
+
+    public ResizeBatcher(Config config) {
+        this.maxResizes = config.getInt("app.resize-batches.max-resizes");
+    }
+
+    // batchKey tells the entities apart (component and entity id), write stores a batch in that entity
+    public CompletionStage<Done> add(String batchKey, ResizeBatch.Resize resize, Function<ResizeBatch, CompletionStage<Done>> write) {
+        Pending batch;
+        boolean idle;
+        synchronized (waiting) {
+            Deque<Pending> batches = waiting.get(batchKey);
+            idle = batches == null;
+            if (idle) {
+                waiting.put(batchKey, new ArrayDeque<>());
+                batch = new Pending(write);
+            } else {
+                batch = batches.peekLast();
+                if (batch == null || batch.resizes.size() >= maxResizes) {
+                    batch = new Pending(write);
+                    batches.addLast(batch);
+                }
+            }
+            batch.resizes.add(resize);
+        }
+        if (idle) {
+            write(batchKey, batch);
+        }
+        return batch.written;
+    }
+
+    private void write(String batchKey, Pending batch) {
+        List<ResizeBatch.Resize> resizes;
+        synchronized (waiting) {
+            resizes = List.copyOf(batch.resizes);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("ResizeBatcher writing {} resizes to {}", resizes.size(), batchKey);
+        }
+        CompletableFuture.completedFuture(new ResizeBatch(resizes))
+                .thenCompose(batch.write)
+                .whenComplete((done, ex) -> {
+                    if (ex != null) {
+                        batch.written.completeExceptionally(ex);
+                    } else {
+                        batch.written.complete(done);
+                    }
+                    writeNext(batchKey);
+                });
+    }
+
+    private void writeNext(String batchKey) {
+        Pending next;
+        synchronized (waiting) {
+            Deque<Pending> batches = waiting.get(batchKey);
+            next = batches.pollFirst();
+            if (next == null) {
+                waiting.remove(batchKey);
+                return;
+            }
+        }
+        write(batchKey, next);
+    }
+}
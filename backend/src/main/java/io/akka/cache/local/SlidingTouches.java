@@ -0,0 +1,56 @@
+package io.akka.cache.local;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.typesafe.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Node-local throttle of the sliding TTL touches, so a hot key of a sliding cacheName costs its entity one
+ * touch command per app.sliding-ttl.min-extension from each node rather than one per read.
+ *
+ * A key is remembered for min-extension after this node touched it, the entity wouldn't persist a touch
+ * sooner anyway. It's bounded by app.sliding-ttl.max-throttled-keys, a key evicted early only means
+ * an extra touch. A touch that failed is forgotten so the next read tries again.
+ */
+public class SlidingTouches {
+    private static final Logger log = LoggerFactory.getLogger(SlidingTouches.class);
+
+    private final Set<String> cacheNames;
+    private final Duration minExtension;
+    private final Cache<String, Boolean> touched;
+
+    public SlidingTouches(Config config) {
+        this.cacheNames = new HashSet<>(config.getStringList("app.sliding-ttl.cache-names"));
+        this.minExtension = config.getDuration("app.sliding-ttl.min-extension");
+        this.touched = Caffeine.newBuilder()
+                .maximumSize(config.getLong("app.sliding-ttl.max-throttled-keys"))
+                .expireAfterWrite(minExtension)
+                .build();
+        if (log.isDebugEnabled()) {
+            log.debug("SlidingTouches cacheNames {} minExtension {}", cacheNames, minExtension);
+        }
+    }
+
+    public boolean enabled(String cacheName) {
+        return cacheNames.contains(cacheName);
+    }
+
+    public Duration minExtension() {
+        return minExtension;
+    }
+
+    // true for the first read of the key within min-extension, which is the one that sends the touch
+    public boolean due(String cacheId) {
+        return touched.asMap().putIfAbsent(cacheId, Boolean.TRUE) == null;
+    }
+
+    public void forget(String cacheId) {
+        touched.invalidate(cacheId);
+    }
+}
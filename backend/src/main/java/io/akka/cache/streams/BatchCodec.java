@@ -0,0 +1,161 @@
+package io.akka.cache.streams;
+
+import akka.util.ByteIterator;
+import akka.util.ByteString;
+import akka.util.ByteStringBuilder;
+import io.akka.cache.domain.CacheAPI.BatchGetCacheRequest;
+import io.akka.cache.domain.CacheAPI.CacheGetResponse;
+import io.akka.cache.domain.CacheAPI.CacheRequest;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * application/octet-stream framing for the batch endpoints, so values go over the wire as they are
+ * instead of base64 inside JSON. A body is a run of frames, all integers big-endian:
+ *
+ * <pre>
+ *   int32  frame length (the bytes after this field)
+ *   int8   flags
+ *   int16  cacheName length, then the cacheName in UTF-8
+ *   int16  key length, then the key in UTF-8
+ *   int32  ttlSeconds (only meaningful with FLAG_TTL)
+ *   ...    value, the rest of the frame
+ * </pre>
+ *
+ * Get requests leave the value empty. In a get response FLAG_FOUND tells a hit from a miss,
+ * so an empty value can still be cached.
+ */
+public final class BatchCodec {
+    public static final byte FLAG_TTL = 0x01;
+    public static final byte FLAG_FOUND = 0x02;
+
+    private static final ByteOrder ORDER = ByteOrder.BIG_ENDIAN;
+    // flags, both name lengths and the ttl
+    private static final int FIXED_FRAME_BYTES = 1 + 2 + 2 + 4;
+
+    private BatchCodec() {}
+
+    public record Frame(byte flags, String cacheName, String key, int ttlSeconds, ByteString value) {
+        public boolean has(byte flag) {
+            return (flags & flag) != 0;
+        }
+    }
+
+    public static List<CacheRequest> decodeSets(ByteString body) {
+        return decode(body).stream()
+                .map(frame -> new CacheRequest(
+                        Optional.empty(),
+                        frame.cacheName(),
+                        frame.key(),
+                        frame.has(FLAG_TTL) ? Optional.of(frame.ttlSeconds()) : Optional.empty(),
+                        frame.value().toArray()))
+                .toList();
+    }
+
+    public static List<BatchGetCacheRequest> decodeGets(ByteString body) {
+        return decode(body).stream()
+                .map(frame -> new BatchGetCacheRequest(frame.cacheName(), frame.key()))
+                .toList();
+    }
+
+    public static List<CacheGetResponse> decodeGetResults(ByteString body) {
+        return decode(body).stream()
+                .map(frame -> new CacheGetResponse(frame.cacheName(), frame.key(), frame.has(FLAG_FOUND), frame.value().toArray()))
+                .toList();
+    }
+
+    public static ByteString encodeSets(List<CacheRequest> cacheRequests) {
+        ByteStringBuilder builder = new ByteStringBuilder();
+        for (CacheRequest cacheRequest : cacheRequests) {
+            byte flags = cacheRequest.ttlSeconds().isPresent() ? FLAG_TTL : 0;
+            encode(builder, flags, cacheRequest.cacheName(), cacheRequest.key(), cacheRequest.ttlSeconds().orElse(0), cacheRequest.value());
+        }
+        return builder.result();
+    }
+
+    public static ByteString encodeGets(List<BatchGetCacheRequest> getRequests) {
+        ByteStringBuilder builder = new ByteStringBuilder();
+        for (BatchGetCacheRequest getRequest : getRequests) {
+            encode(builder, (byte) 0, getRequest.cacheName(), getRequest.key(), 0, new byte[0]);
+        }
+        return builder.result();
+    }
+
+    public static ByteString encodeGetResults(List<CacheGetResponse> results) {
+        ByteStringBuilder builder = new ByteStringBuilder();
+        for (CacheGetResponse result : results) {
+            byte flags = result.success() ? FLAG_FOUND : 0;
+            encode(builder, flags, result.cacheName(), result.key(), 0, result.success() ? result.value() : new byte[0]);
+        }
+        return builder.result();
+    }
+
+    private static void encode(ByteStringBuilder builder, byte flags, String cacheName, String key, int ttlSeconds, byte[] value) {
+        byte[] cacheNameBytes = nameBytes(cacheName);
+        byte[] keyBytes = nameBytes(key);
+        builder.putInt(FIXED_FRAME_BYTES + cacheNameBytes.length + keyBytes.length + value.length, ORDER);
+        builder.putByte(flags);
+        builder.putShort(cacheNameBytes.length, ORDER);
+        builder.putBytes(cacheNameBytes);
+        builder.putShort(keyBytes.length, ORDER);
+        builder.putBytes(keyBytes);
+        builder.putInt(ttlSeconds, ORDER);
+        builder.putBytes(value);
+    }
+
+    private static byte[] nameBytes(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("cacheName and key are limited to 65535 bytes");
+        }
+        return bytes;
+    }
+
+    // values are slices of the body, nothing is copied until they're turned into a request
+    static List<Frame> decode(ByteString body) {
+        List<Frame> frames = new ArrayList<>();
+        ByteString remaining = body;
+        while (!remaining.isEmpty()) {
+            if (remaining.size() < 4) {
+                throw new IllegalArgumentException("truncated frame length");
+            }
+            int frameLength = remaining.iterator().getInt(ORDER);
+            if (frameLength < FIXED_FRAME_BYTES || frameLength > remaining.size() - 4) {
+                throw new IllegalArgumentException("frame length " + frameLength + " doesn't fit the " + (remaining.size() - 4) + " bytes left");
+            }
+            frames.add(decodeFrame(remaining.slice(4, 4 + frameLength)));
+            remaining = remaining.drop(4 + frameLength);
+        }
+        return frames;
+    }
+
+    private static Frame decodeFrame(ByteString frame) {
+        ByteIterator it = frame.iterator();
+        byte flags = it.getByte();
+        String cacheName = readName(it, frame);
+        String key = readName(it, frame);
+        if (it.len() < 4) {
+            throw new IllegalArgumentException("truncated frame");
+        }
+        int ttlSeconds = it.getInt(ORDER);
+        ByteString value = frame.drop(frame.size() - it.len());
+        return new Frame(flags, cacheName, key, ttlSeconds, value);
+    }
+
+    private static String readName(ByteIterator it, ByteString frame) {
+        if (it.len() < 2) {
+            throw new IllegalArgumentException("truncated frame");
+        }
+        int length = it.getShort(ORDER) & 0xFFFF;
+        if (length > it.len()) {
+            throw new IllegalArgumentException("name length " + length + " runs past the frame");
+        }
+        int offset = frame.size() - it.len();
+        it.drop(length);
+        return frame.slice(offset, offset + length).decodeString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,52 @@
+package io.akka.cache.streams;
+
+import akka.NotUsed;
+import akka.stream.javadsl.Source;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Runs the items of a batch through a stream, at most parallelism of them at a time, with each result
+ * coming out as soon as its item completes. Results carry their cacheName and key, so a slow key holds
+ * up nobody but itself and callers match results by key rather than by position.
+ *
+ * A key that shows up more than once is only run once, keyed the same way the CacheEntity ids are: the
+ * last item for it wins. Every item ends up as an Outcome of its own, so one
+ * failure doesn't take the rest of the batch with it. An item that failed (rather than answered with a
+ * miss or a refusal) is marked failed, and a batch is complete when none did.
+ */
+public final class BatchRunner {
+
+    public record Outcome<R>(R result, boolean failed) {}
+
+    private BatchRunner() {}
+
+    public static <T, R> Source<Outcome<R>, NotUsed> run(List<T> items, Function<T, String> cacheName, Function<T, String> key, int parallelism,
+                                                         Function<T, CompletionStage<R>> runItem, BiFunction<T, Throwable, R> failedItem) {
+        return Source.from(distinctKeys(items, cacheName, key))
+                .mapAsyncUnordered(parallelism, item -> CompletableFuture.completedFuture(item)
+                        .thenCompose(runItem)
+                        .thenApply(result -> new Outcome<>(result, false))
+                        .exceptionally(ex -> new Outcome<>(failedItem.apply(item, ex), true)));
+    }
+
+    public static <T> List<T> distinctKeys(List<T> items, Function<T, String> cacheName, Function<T, String> key) {
+        LinkedHashMap<String, T> byCompoundKey = new LinkedHashMap<>();
+        items.forEach(item -> byCompoundKey.put(cacheName.apply(item).concat(key.apply(item)), item));
+        return new ArrayList<>(byCompoundKey.values());
+    }
+
+    public static <R> boolean complete(List<Outcome<R>> outcomes) {
+        return outcomes.stream().noneMatch(Outcome::failed);
+    }
+
+    public static <R> List<R> results(List<Outcome<R>> outcomes) {
+        return outcomes.stream().map(Outcome::result).toList();
+    }
+}
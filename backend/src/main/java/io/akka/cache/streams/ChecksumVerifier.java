@@ -0,0 +1,73 @@
+package io.akka.cache.streams;
+
+import akka.stream.Attributes;
+import akka.stream.FlowShape;
+import akka.stream.Inlet;
+import akka.stream.Outlet;
+import akka.stream.stage.AbstractInHandler;
+import akka.stream.stage.AbstractOutHandler;
+import akka.stream.stage.GraphStage;
+import akka.stream.stage.GraphStageLogic;
+import akka.util.ByteString;
+
+/*
+ Passes the stored bytes of a value through unchanged and fails the stream at the end when they don't
+ add up to the checksum that was recorded on write, so a corrupt or mixed up chunk aborts the response
+ instead of going out as a value.
+ */
+public class ChecksumVerifier extends GraphStage<FlowShape<ByteString, ByteString>> {
+
+    private final long expected;
+
+    public Inlet<ByteString> in = Inlet.<ByteString>create("ChecksumVerifier.in");
+    public Outlet<ByteString> out = Outlet.<ByteString>create("ChecksumVerifier.out");
+    private FlowShape<ByteString, ByteString> shape = FlowShape.of(in, out);
+
+    public ChecksumVerifier(long expected) {
+        this.expected = expected;
+    }
+
+    @Override
+    public FlowShape<ByteString, ByteString> shape() {
+        return shape;
+    }
+
+    @Override
+    public GraphStageLogic createLogic(Attributes inheritedAttributes) {
+        return new GraphStageLogic(shape) {
+            private final ContentChecksum checksum = new ContentChecksum();
+
+            {
+                setHandler(
+                        out,
+                        new AbstractOutHandler() {
+                            @Override
+                            public void onPull() throws Exception {
+                                pull(in);
+                            }
+                        });
+
+                setHandler(
+                        in,
+                        new AbstractInHandler() {
+                            @Override
+                            public void onPush() throws Exception {
+                                ByteString elem = grab(in);
+                                checksum.update(elem);
+                                push(out, elem);
+                            }
+
+                            @Override
+                            public void onUpstreamFinish() throws Exception {
+                                if (checksum.value() == expected) {
+                                    completeStage();
+                                }
+                                else {
+                                    failStage(new IllegalStateException("checksum mismatch, expected " + Long.toHexString(expected) + " but was " + Long.toHexString(checksum.value())));
+                                }
+                            }
+                        });
+            }
+        };
+    }
+}
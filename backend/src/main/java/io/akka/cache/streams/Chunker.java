@@ -74,15 +74,16 @@ public class Chunker extends GraphStage<FlowShape<ByteString, ByteString>> {
                         });
             }
 
+            // only full chunks go out while upstream is still open, the last one may be short
             private void emitChunk() {
-                if (buffer.isEmpty()) {
-                    if (isClosed(in)) completeStage();
-                    else pull(in);
-                } else {
+                if (buffer.size() >= chunkSize || (isClosed(in) && !buffer.isEmpty())) {
                     Tuple2<ByteString, ByteString> split = buffer.splitAt(chunkSize);
                     ByteString chunk = split._1();
                     buffer = split._2();
                     push(out, chunk);
+                } else {
+                    if (isClosed(in)) completeStage();
+                    else pull(in);
                 }
             }
         };
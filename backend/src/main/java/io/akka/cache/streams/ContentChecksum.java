@@ -0,0 +1,123 @@
+package io.akka.cache.streams;
+
+import akka.util.ByteString;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C over the stored bytes of a value, in chunk order. It's hardware accelerated on current JDKs,
+ * so computing it as the chunks stream by costs next to nothing next to the entity writes.
+ *
+ * The same checksum is the value's ETag. It's a weak ETag, and a gzipped value sent as stored gets
+ * its own (suffixed -gzip), so a cache never hands the gzipped bytes to a client that asked for the
+ * identity ones. If-None-Match matches either, both are the same value.
+ *
+ * A single chunk value whose bytes don't match its checksum fails with a MismatchException, which
+ * is served as a 500 rather than as a miss.
+ */
+public final class ContentChecksum {
+    private static final byte[] ZEROS = new byte[64 * 1024];
+    // reflected Castagnoli polynomial, the one CRC32C uses
+    private static final int[] CRC32C_TABLE = crc32cTable();
+
+    private final CRC32C crc = new CRC32C();
+
+    public ContentChecksum update(ByteString bytes) {
+        for (ByteBuffer buffer : bytes.getByteBuffers()) {
+            crc.update(buffer);
+        }
+        return this;
+    }
+
+    public ContentChecksum update(byte[] bytes) {
+        crc.update(bytes);
+        return this;
+    }
+
+    public ContentChecksum updateZeros(long count) {
+        for (long remaining = count; remaining > 0; remaining -= ZEROS.length) {
+            crc.update(ZEROS, 0, (int) Math.min(ZEROS.length, remaining));
+        }
+        return this;
+    }
+
+    public long value() {
+        return crc.getValue();
+    }
+
+    public static long of(byte[] bytes) {
+        return new ContentChecksum().update(bytes).value();
+    }
+
+    /*
+     The checksum of the value after the bytes before were overwritten with after, bytesAfter from the end.
+     A CRC is affine over same length messages, so only the difference (and the zeros behind it) is run
+     through the CRC, none of the unchanged chunks have to be read back.
+     */
+    public static long patched(long checksum, byte[] before, byte[] after, long bytesAfter) {
+        byte[] delta = new byte[before.length];
+        for (int i = 0; i < delta.length; i++) {
+            delta[i] = (byte) (before[i] ^ after[i]);
+        }
+        long withDelta = new ContentChecksum().update(delta).updateZeros(bytesAfter).value();
+        long zeros = new ContentChecksum().updateZeros(delta.length + bytesAfter).value();
+        return checksum ^ withDelta ^ zeros;
+    }
+
+    /*
+     The checksum of the value with appended added to its end. CRC32C can't be resumed from a value, so this
+     runs the appended bytes through a table driven CRC starting from the old checksum's register.
+     */
+    public static long extended(long checksum, byte[] appended) {
+        int register = ~(int) checksum;
+        for (byte b : appended) {
+            register = CRC32C_TABLE[(register ^ b) & 0xff] ^ (register >>> 8);
+        }
+        return (~register) & 0xffffffffL;
+    }
+
+    private static int[] crc32cTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < table.length; i++) {
+            int entry = i;
+            for (int bit = 0; bit < 8; bit++) {
+                entry = (entry & 1) != 0 ? (entry >>> 1) ^ 0x82F63B78 : entry >>> 1;
+            }
+            table[i] = entry;
+        }
+        return table;
+    }
+
+    public static String etag(long checksum) {
+        return etag(checksum, false);
+    }
+
+    public static String etag(long checksum, boolean gzip) {
+        return "W/" + opaque(checksum, gzip);
+    }
+
+    // If-None-Match is a list of (possibly weak) ETags or *, the weak comparison ignores the W/ prefix
+    public static boolean matches(Optional<String> ifNoneMatch, long checksum) {
+        String identity = opaque(checksum, false);
+        String gzip = opaque(checksum, true);
+        return ifNoneMatch
+                .map(header -> Arrays.stream(header.split(","))
+                        .map(String::trim)
+                        .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                        .anyMatch(tag -> tag.equals("*") || tag.equals(identity) || tag.equals(gzip)))
+                .orElse(false);
+    }
+
+    private static String opaque(long checksum, boolean gzip) {
+        return "\"" + Long.toHexString(checksum) + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    public static final class MismatchException extends IllegalStateException {
+        public MismatchException(String message) {
+            super(message);
+        }
+    }
+}
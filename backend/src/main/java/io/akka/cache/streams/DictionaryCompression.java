@@ -0,0 +1,95 @@
+package io.akka.cache.streams;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate against a preset dictionary, for small values that share most of their structure
+ * (JSON blobs with the same field names, for instance) but are too small for plain gzip to find it.
+ *
+ * The JDK has no dictionary trainer, so training is a plain frequency count: the byte segments that
+ * show up in the most samples go into the dictionary, most common last since deflate reaches the
+ * end of the dictionary most cheaply.
+ */
+public final class DictionaryCompression {
+    public static final String DEFLATE_DICTIONARY = "deflate-dictionary";
+
+    private static final int SEGMENT_BYTES = 16;
+    private static final int SEGMENT_STEP = 4;
+
+    private DictionaryCompression() {}
+
+    public static byte[] train(List<byte[]> samples, int maxDictionaryBytes) {
+        // the number of samples a segment shows up in, not how often, so one repetitive value can't dominate
+        Map<String, Integer> sampleCounts = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i + SEGMENT_BYTES <= sample.length; i += SEGMENT_STEP) {
+                String segment = new String(sample, i, SEGMENT_BYTES, StandardCharsets.ISO_8859_1);
+                if (seen.add(segment)) {
+                    sampleCounts.merge(segment, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> common = sampleCounts.entrySet().stream()
+                .filter(e -> e.getValue() > 1)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(maxDictionaryBytes / SEGMENT_BYTES)
+                .map(Map.Entry::getKey)
+                .toList();
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(common.size() * SEGMENT_BYTES);
+        for (String segment : common.reversed()) {
+            dictionary.writeBytes(segment.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return dictionary.toByteArray();
+    }
+
+    // the compressed bytes, or empty when they'd be no smaller
+    public static Optional<byte[]> compress(byte[] value, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setDictionary(dictionary);
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(value.length);
+            byte[] buffer = new byte[Math.max(256, value.length)];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+            return compressed.size() < value.length ? Optional.of(compressed.toByteArray()) : Optional.empty();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static byte[] decompress(byte[] compressed, byte[] dictionary) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream value = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    } else if (inflater.needsInput()) {
+                        throw new IllegalStateException("Truncated dictionary compressed value");
+                    }
+                }
+                value.write(buffer, 0, length);
+            }
+            return value.toByteArray();
+        } catch (DataFormatException | IllegalArgumentException e) {
+            // zlib checks the dictionary's Adler-32, a value read back with the wrong version fails here
+            throw new IllegalStateException("Corrupt dictionary compressed value, or not the dictionary it was written with", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.akka.cache.streams;
+
+import akka.NotUsed;
+import akka.stream.javadsl.Compression;
+import akka.stream.javadsl.Flow;
+import akka.util.ByteString;
+import akka.util.ByteStringBuilder;
+import com.typesafe.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Optional gzip of values on write, for the cacheNames listed in app.compression.cache-names ("*" enables all).
+ *
+ * Values are compressed before they are chunked, so a compressible large value needs fewer chunks,
+ * and the stored bytes are a plain gzip stream that can go back to a client as they are
+ * when it sends Accept-Encoding: gzip.
+ */
+public class PayloadCompression {
+    public static final String GZIP = "gzip";
+
+    private static final String ALL_CACHE_NAMES = "*";
+    // gunzip emits at most this much per element, keeps a highly compressed chunk from inflating in one go
+    private static final int MAX_BYTES_PER_CHUNK = 64 * 1024;
+
+    private final Set<String> cacheNames;
+    private final long minBytes;
+
+    public PayloadCompression(Config config) {
+        this.cacheNames = new HashSet<>(config.getStringList("app.compression.cache-names"));
+        this.minBytes = config.getBytes("app.compression.min-bytes");
+    }
+
+    public boolean isEnabledFor(String cacheName) {
+        return cacheNames.contains(ALL_CACHE_NAMES) || cacheNames.contains(cacheName);
+    }
+
+    // small values don't shrink enough to pay for the gzip header and the work
+    public boolean worthCompressing(String cacheName, long size) {
+        return isEnabledFor(cacheName) && size >= minBytes;
+    }
+
+    // the compressed bytes, or empty when they'd be no smaller (already compressed content, for instance)
+    public static Optional<ByteString> gzip(ByteString value) {
+        ByteStringBuilder compressed = new ByteStringBuilder();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed.asOutputStream())) {
+            out.write(value.toArrayUnsafe());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteString result = compressed.result();
+        return result.size() < value.size() ? Optional.of(result) : Optional.empty();
+    }
+
+    public static ByteString gunzip(ByteString compressed) {
+        try (InputStream in = new GZIPInputStream(compressed.iterator().asInputStream())) {
+            return ByteString.fromArrayUnsafe(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Flow<ByteString, ByteString, NotUsed> gzipFlow() {
+        return Compression.gzip();
+    }
+
+    public static Flow<ByteString, ByteString, NotUsed> gunzipFlow() {
+        return Compression.gunzip(MAX_BYTES_PER_CHUNK);
+    }
+
+    /*
+     True when the Accept-Encoding header allows gzip: listed without q=0, or not listed and * is
+     (without q=0). An explicit gzip;q=0 wins over the wildcard.
+     */
+    public static boolean acceptsGzip(Optional<String> acceptEncoding) {
+        if (acceptEncoding.isEmpty()) {
+            return false;
+        }
+        Optional<Boolean> explicit = Optional.empty();
+        Optional<Boolean> wildcard = Optional.empty();
+        for (String coding : acceptEncoding.get().split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase();
+            if (name.equals(GZIP) || name.equals("x-gzip")) {
+                // either name accepting it is enough
+                explicit = Optional.of(explicit.orElse(false) || !refused(parts));
+            }
+            else if (name.equals("*")) {
+                wildcard = Optional.of(!refused(parts));
+            }
+        }
+        return explicit.isPresent() ? explicit.get() : wildcard.orElse(false);
+    }
+
+    private static boolean refused(String[] parts) {
+        boolean refused = false;
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim().toLowerCase();
+            if (param.startsWith("q=")) {
+                try {
+                    refused = Double.parseDouble(param.substring(2)) == 0.0;
+                } catch (NumberFormatException e) {
+                    refused = true;
+                }
+            }
+        }
+        return refused;
+    }
+}
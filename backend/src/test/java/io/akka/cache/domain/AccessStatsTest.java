@@ -0,0 +1,38 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessStatsTest {
+
+    private final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void testAShardKeepsTheKeysReadLatest() {
+        AccessStats stats = AccessStats.empty()
+                .plus(new AccessStats.Reads(Map.of("a", new CacheAccess(1, now), "b", new CacheAccess(1, now.plusSeconds(1))), 2))
+                .plus(new AccessStats.Reads(Map.of("a", new CacheAccess(2, now.plusSeconds(3)), "c", new CacheAccess(1, now.plusSeconds(2))), 2));
+
+        assertEquals(Map.of("a", new CacheAccess(3, now.plusSeconds(3)), "c", new CacheAccess(1, now.plusSeconds(2))), stats.reads());
+        assertEquals(Map.of("c", new CacheAccess(1, now.plusSeconds(2))), stats.without(List.of("a")).reads());
+    }
+
+    @Test
+    void testTheReadsReorderTheCandidates() {
+        List<KeyAccess> candidates = List.of(
+                KeyAccess.written("cache1", "a", 10, now),
+                KeyAccess.written("cache1", "b", 10, now.plusSeconds(1)));
+        AccessStats stats = new AccessStats(Map.of("a", new CacheAccess(5, now.plusSeconds(10))));
+
+        List<KeyAccess> ranked = stats.applyTo(candidates);
+
+        assertEquals(List.of("b", "a"), ranked.stream().sorted(EvictionPolicy.LRU.coldestFirst()).map(KeyAccess::key).toList());
+        assertEquals(List.of("b", "a"), ranked.stream().sorted(EvictionPolicy.LFU.coldestFirst()).map(KeyAccess::key).toList());
+        assertEquals("cache1-" + Math.floorMod("a".hashCode(), 16), AccessStats.shardId("cache1", "a", 16));
+    }
+}
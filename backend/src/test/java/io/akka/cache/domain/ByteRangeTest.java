@@ -0,0 +1,63 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    private static ByteRange parse(String header, long totalBytes) {
+        return ByteRange.parse(Optional.of(header), totalBytes).orElseThrow();
+    }
+
+    @Test
+    void testRangeForms() {
+        assertEquals(new ByteRange(0, 99), parse("bytes=0-99", 1000));
+        assertEquals(new ByteRange(900, 999), parse("bytes=900-", 1000));
+        assertEquals(new ByteRange(990, 999), parse("bytes=-10", 1000));
+        // last is clamped to the value
+        assertEquals(new ByteRange(500, 999), parse("bytes=500-5000", 1000));
+    }
+
+    @Test
+    void testWholeValueWhenNotASingleRange() {
+        assertTrue(ByteRange.parse(Optional.empty(), 1000).isEmpty());
+        assertTrue(ByteRange.parse(Optional.of("bytes=0-1,5-6"), 1000).isEmpty());
+        assertTrue(ByteRange.parse(Optional.of("items=0-1"), 1000).isEmpty());
+        assertTrue(ByteRange.parse(Optional.of("bytes=9-1"), 1000).isEmpty());
+        assertTrue(ByteRange.parse(Optional.of("bytes=a-b"), 1000).isEmpty());
+    }
+
+    @Test
+    void testUnsatisfiable() {
+        assertFalse(parse("bytes=1000-", 1000).satisfiable(1000));
+        assertFalse(parse("bytes=-0", 1000).satisfiable(1000));
+        assertTrue(parse("bytes=999-", 1000).satisfiable(1000));
+    }
+
+    @Test
+    void testOnlyTheCoveringChunks() {
+        long chunkSize = 450_000;
+        // a few KB from the middle of a 100 MB value
+        ByteRange range = parse("bytes=50000000-50004095", 100_000_000);
+        assertEquals(111, range.firstChunk(chunkSize));
+        assertEquals(111, range.lastChunk(chunkSize));
+
+        ByteRange straddling = parse("bytes=449000-451000", 100_000_000);
+        assertEquals(0, straddling.firstChunk(chunkSize));
+        assertEquals(1, straddling.lastChunk(chunkSize));
+        assertEquals(2001, straddling.length());
+        assertEquals("bytes 449000-451000/100000000", straddling.contentRange(100_000_000));
+    }
+
+    @Test
+    void testContentRangeOfARangeWrite() {
+        assertEquals(new ByteRange(100, 199), ByteRange.parseContentRange(Optional.of("bytes 100-199/1000")).orElseThrow());
+        assertEquals(new ByteRange(0, 0), ByteRange.parseContentRange(Optional.of("bytes 0-0/*")).orElseThrow());
+        assertTrue(ByteRange.parseContentRange(Optional.of("bytes */1000")).isEmpty());
+        assertTrue(ByteRange.parseContentRange(Optional.of("bytes 9-1/1000")).isEmpty());
+        assertTrue(ByteRange.parseContentRange(Optional.empty()).isEmpty());
+    }
+}
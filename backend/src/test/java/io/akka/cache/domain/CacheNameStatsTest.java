@@ -0,0 +1,111 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheNameStatsTest {
+
+    @Test
+    void testSetOverwriteAndDelete() {
+        ValueSize small = new ValueSize(100, false);
+        ValueSize large = new ValueSize(1_000_000, true);
+
+        CacheNameStats stats = CacheNameStats.empty()
+                .withResized(Optional.empty(), Optional.of(small))
+                .withResized(Optional.empty(), Optional.of(small))
+                // the second key is overwritten with a chunked value
+                .withResized(Optional.of(small), Optional.of(large));
+
+        assertEquals(2, stats.keys());
+        assertEquals(1_000_100, stats.totalBytes());
+        assertEquals(1, stats.chunkedKeys());
+        assertEquals(List.of(new CacheNameStats.SizeBucket(127, 1), new CacheNameStats.SizeBucket(1_048_575, 1)), stats.sizeBuckets());
+
+        stats = stats.withResized(Optional.of(large), Optional.empty());
+        assertEquals(1, stats.keys());
+        assertEquals(100, stats.totalBytes());
+        assertEquals(0, stats.chunkedKeys());
+        assertEquals(List.of(new CacheNameStats.SizeBucket(127, 1)), stats.sizeBuckets());
+    }
+
+    @Test
+    void testHistogramBuckets() {
+        assertEquals(0, CacheNameStats.bucketOf(0));
+        assertEquals(1, CacheNameStats.bucketOf(1));
+        assertEquals(2, CacheNameStats.bucketOf(3));
+        assertEquals(3, CacheNameStats.bucketOf(4));
+        assertEquals(11, CacheNameStats.bucketOf(1024));
+    }
+
+    @Test
+    void testCountsNeverGoNegative() {
+        // a value written before the stats existed is deleted
+        CacheNameStats stats = CacheNameStats.empty().withResized(Optional.of(new ValueSize(10, true)), Optional.empty());
+
+        assertEquals(0, stats.keys());
+        assertEquals(0, stats.totalBytes());
+        assertEquals(0, stats.chunkedKeys());
+        assertTrue(stats.sizeBuckets().isEmpty());
+    }
+
+    @Test
+    void testOnlyLiveValuesHaveASize() {
+        Cache cache = new Cache(Optional.empty(), "cache1", "key1", Optional.empty(), 3L, List.of(new PayloadChunk(0, new byte[]{1, 2, 3})));
+
+        assertEquals(Optional.of(new ValueSize(3, false)), cache.liveSize());
+        assertEquals(Optional.empty(), cache.asDeleted().liveSize());
+        assertEquals(Optional.empty(), Cache.empty().liveSize());
+    }
+
+    @Test
+    void testARedeliveredResizeIsAppliedOnce() {
+        ValueSize small = new ValueSize(100, false);
+        ResizeBatch.Resize first = new ResizeBatch.Resize("cache1key1", 3, Optional.empty(), Optional.of(small));
+        ResizeBatch.Resize second = new ResizeBatch.Resize("cache1key1", 5, Optional.of(small), Optional.empty());
+        ResizeBatch.Resize other = new ResizeBatch.Resize("cache1key2", 2, Optional.empty(), Optional.of(small));
+
+        CacheNameStats stats = CacheNameStats.empty()
+                .withResizes(new ResizeBatch(List.of(first)))
+                // the first one again, with the next ones
+                .withResizes(new ResizeBatch(List.of(first, other, second, second)));
+
+        assertEquals(1, stats.keys());
+        assertEquals(100, stats.totalBytes());
+        assertEquals(Map.of("cache1key1", 5L, "cache1key2", 2L), stats.highWaterMarks());
+        assertEquals(stats, stats.withResizes(new ResizeBatch(List.of(other, second))));
+    }
+
+    @Test
+    void testAResizeWithoutASequenceIsAlwaysApplied() {
+        ResizeBatch.Resize legacy = new ResizeBatch.Resize("cache1key1", 0, Optional.empty(), Optional.of(new ValueSize(1, false)));
+
+        CacheNameStats stats = CacheNameStats.empty()
+                .withResizes(new ResizeBatch(List.of(legacy)))
+                .withResizes(new ResizeBatch(List.of(legacy)));
+
+        assertEquals(2, stats.keys());
+        assertTrue(stats.highWaterMarks().isEmpty());
+    }
+
+    @Test
+    void testOnlyTheLatestSourcesAreTracked() {
+        List<ResizeBatch.Resize> resizes = new ArrayList<>();
+        for (int i = 0; i <= ResizeBatch.TRACKED_SOURCES; i++) {
+            // a source written twice only takes one mark
+            resizes.add(new ResizeBatch.Resize("key" + i, 1, Optional.empty(), Optional.of(new ValueSize(1, false))));
+            resizes.add(new ResizeBatch.Resize("key" + i, 2, Optional.of(new ValueSize(1, false)), Optional.of(new ValueSize(2, false))));
+        }
+        CacheNameStats stats = CacheNameStats.empty().withResizes(new ResizeBatch(resizes));
+
+        assertEquals(ResizeBatch.TRACKED_SOURCES + 1, stats.keys());
+        assertEquals(ResizeBatch.TRACKED_SOURCES, stats.highWaterMarks().size());
+        assertFalse(stats.highWaterMarks().containsKey("key0"));
+        assertEquals(2L, stats.highWaterMarks().get("key1"));
+    }
+}
@@ -0,0 +1,208 @@
+package io.akka.cache.domain;
+
+import akka.util.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheTest {
+
+    private static PayloadChunk chunk(int sequence) {
+        return new PayloadChunk(sequence, new byte[]{(byte) sequence});
+    }
+
+    @Test
+    void testStagedChunksAreOrderedBySequence() {
+        Cache cache = Cache.empty()
+                .withStaged(new StagedChunk("g1", chunk(2)))
+                .withStaged(new StagedChunk("g1", chunk(0)))
+                .withStaged(new StagedChunk("g2", chunk(0)))
+                .withStaged(new StagedChunk("g1", chunk(1)));
+
+        List<PayloadChunk> staged = cache.stagedChunks("g1");
+        assertEquals(List.of(0, 1, 2), staged.stream().map(PayloadChunk::sequence).toList());
+        assertTrue(cache.isStaged("g1", 2));
+        assertFalse(cache.isStaged("g2", 1));
+    }
+
+    @Test
+    void testIncompleteGenerationIsNotCommittable() {
+        Cache cache = Cache.empty()
+                .withStaged(new StagedChunk("g1", chunk(0)))
+                .withStaged(new StagedChunk("g1", chunk(2)));
+
+        assertTrue(cache.hasStaged("g1"));
+        assertTrue(cache.stagedChunks("g1").isEmpty());
+    }
+
+    @Test
+    void testCommitSwapsInTheGenerationAndDropsOtherStagedChunks() {
+        Cache current = new Cache(Optional.empty(), "cache1", "key1", Optional.empty(), 1, List.of(chunk(0)));
+        Cache cache = current
+                .withStaged(new StagedChunk("g1", chunk(1)))
+                .withStaged(new StagedChunk("g1", chunk(0)))
+                .withStaged(new StagedChunk("g2", chunk(0)));
+
+        // still the old value until the commit
+        assertEquals(1, cache.chunks().size());
+
+        Cache committed = cache.withCommitted(Optional.empty(), "cache1", "key1", Optional.empty(), 2, "g1");
+        assertEquals(Optional.of("g1"), committed.generation());
+        assertEquals(2, committed.chunks().size());
+        assertTrue(committed.chunked());
+        assertFalse(committed.deleted());
+        assertFalse(committed.hasStaged("g2"));
+    }
+
+    @Test
+    void testAbortDropsOnlyThatGeneration() {
+        Cache cache = Cache.empty()
+                .withStaged(new StagedChunk("g1", chunk(0)))
+                .withStaged(new StagedChunk("g2", chunk(0)))
+                .withoutStaged("g1");
+
+        assertFalse(cache.hasStaged("g1"));
+        assertTrue(cache.hasStaged("g2"));
+    }
+
+    @Test
+    void testReleasesCoverStoredChunksOnly() {
+        Cache cache = Cache.empty()
+                .withStaged(new StagedChunk("g1", PayloadChunk.stored(0, "hash-a")))
+                .withStaged(new StagedChunk("g1", chunk(1)))
+                .withStaged(new StagedChunk("g2", PayloadChunk.stored(0, "hash-a")))
+                .withCommitted(Optional.empty(), "cache1", "key1", Optional.empty(), 2, "g1");
+
+        assertEquals(
+                List.of(new ChunkRelease("hash-a", "cache1key1/g1/0")),
+                cache.committedReleases("cache1key1"));
+        // once deleted the references are already gone
+        assertTrue(cache.asDeleted().committedReleases("cache1key1").isEmpty());
+
+        Cache staging = cache.withStaged(new StagedChunk("g3", PayloadChunk.stored(0, "hash-b")));
+        assertEquals(
+                List.of(new ChunkRelease("hash-b", "cache1key1/g3/0")),
+                staging.stagedReleases("cache1key1", "g3"::equals));
+    }
+
+    @Test
+    void testDeleteDropsThePayloadButKeepsStagedChunks() {
+        Cache cache = new Cache(Optional.empty(), "cache1", "key1", Optional.empty(), 1, List.of(chunk(0)))
+                .withStaged(new StagedChunk("g1", chunk(0)))
+                .asDeleted();
+
+        assertTrue(cache.deleted());
+        assertTrue(cache.chunks().isEmpty());
+        assertEquals(0L, cache.totalBytes());
+        // an upload that was under way can still commit over the tombstone
+        assertFalse(cache.withCommitted(Optional.empty(), "cache1", "key1", Optional.empty(), 1, "g1").deleted());
+    }
+
+    @Test
+    void testExpiredFromItsExpiresAtOnward() {
+        Instant expiresAt = Instant.ofEpochSecond(1_000_000);
+        Cache cache = new Cache(Optional.empty(), "cache1", "key1", Optional.empty(), 1, List.of(chunk(0)))
+                .withExpiresAt(Optional.of(expiresAt));
+
+        assertFalse(cache.expired(expiresAt.minusMillis(1)));
+        assertTrue(cache.expired(expiresAt));
+        assertTrue(cache.scheduledToExpireAt(expiresAt));
+        assertFalse(cache.scheduledToExpireAt(expiresAt.plusSeconds(1)));
+        assertFalse(cache.withExpiresAt(Optional.empty()).expired(expiresAt.plusSeconds(3600)));
+    }
+
+    @Test
+    void testTouchMovesOnlyTheExpiry() {
+        Instant expiresAt = Instant.ofEpochSecond(1_000_000);
+        Cache cache = new Cache(Optional.empty(), "cache1", "key1", Optional.of(Duration.ofSeconds(60)), 1, List.of(chunk(0)))
+                .withExpiresAt(Optional.of(expiresAt));
+
+        Cache touched = cache.withTouched(cache.ttlSeconds(), expiresAt.plusSeconds(60));
+        assertFalse(touched.expired(expiresAt));
+        assertSame(cache.chunks(), touched.chunks());
+        assertEquals(cache.totalBytes(), touched.totalBytes());
+        // the wheel entry for the old expiry no longer matches
+        assertFalse(touched.scheduledToExpireAt(expiresAt));
+    }
+
+    @Test
+    void testPatchReplacesOnlyThoseChunksAndReleasesChangedOnes() {
+        Cache cache = Cache.empty()
+                .withStaged(new StagedChunk("g1", PayloadChunk.stored(0, "hash0")))
+                .withStaged(new StagedChunk("g1", PayloadChunk.stored(1, "hash1")))
+                .withStaged(new StagedChunk("g1", PayloadChunk.stored(2, "hash2")))
+                .withCommitted(Optional.empty(), "cache1", "key1", Optional.empty(), 3, "g1");
+
+        List<PayloadChunk> patched = List.of(PayloadChunk.stored(1, "hash1b"), PayloadChunk.stored(2, "hash2"));
+        assertEquals(List.of(new ChunkRelease("hash1", ChunkRelease.referrer("cache1key1", "g1", 1))), cache.patchedReleases("cache1key1", patched));
+
+        Cache after = cache.withPatched(patched, 42L);
+        assertEquals(List.of("hash0", "hash1b", "hash2"), after.chunks().stream().map(c -> c.contentHash().get()).toList());
+        assertEquals(Optional.of(42L), after.checksum());
+    }
+
+    @Test
+    void testPatchedChunksHoldTheirOwnReferenceUntilAbandoned() {
+        Cache cache = Cache.empty()
+                .withStaged(new StagedChunk("g1", PayloadChunk.stored(0, "hash0")))
+                .withStaged(new StagedChunk("g1", PayloadChunk.stored(1, "hash1")))
+                .withCommitted(Optional.empty(), "cache1", "key1", Optional.empty(), 2, "g1");
+
+        // the same bytes under the patch's generation are a new reference, the old one is released
+        List<PayloadChunk> patched = List.of(PayloadChunk.stored(0, "hash0", "p1"), PayloadChunk.stored(1, "hash1b", "p1"));
+        assertEquals(List.of(new ChunkRelease("hash0", ChunkRelease.referrer("cache1key1", "g1", 0)), new ChunkRelease("hash1", ChunkRelease.referrer("cache1key1", "g1", 1))),
+                cache.patchedReleases("cache1key1", patched));
+
+        // a patch that didn't apply gives up everything it stored
+        assertEquals(List.of(new ChunkRelease("hash0", ChunkRelease.referrer("cache1key1", "p1", 0)), new ChunkRelease("hash1b", ChunkRelease.referrer("cache1key1", "p1", 1))),
+                cache.abandonedReleases("cache1key1", patched));
+
+        // one that applied after all keeps them, and the value releases them under the patch's generation later
+        Cache after = cache.withPatched(patched, 42L);
+        assertEquals(List.of(), after.abandonedReleases("cache1key1", patched));
+        assertEquals(List.of(new ChunkRelease("hash0", ChunkRelease.referrer("cache1key1", "p1", 0)), new ChunkRelease("hash1b", ChunkRelease.referrer("cache1key1", "p1", 1))),
+                after.committedReleases("cache1key1"));
+    }
+
+    @Test
+    void testAppendFillsTheLastChunkThenOpensNewOnes() {
+        Cache cache = new Cache(Optional.empty(), "cache1", "key1", Optional.empty(), 3, List.of(new PayloadChunk(0, new byte[]{0, 1, 2})));
+        int chunkSize = cache.appendChunkSize(4, 3);
+        assertEquals(4, chunkSize);
+
+        Cache appended = cache.withAppended(new byte[]{3, 4, 5, 6, 7, 8}, chunkSize, Optional.empty());
+        assertEquals(List.of(4, 4, 1), appended.chunks().stream().map(c -> c.payload().length).toList());
+        assertEquals(List.of(0, 1, 2), appended.chunks().stream().map(PayloadChunk::sequence).toList());
+        assertEquals(9, appended.totalBytes());
+        assertTrue(appended.chunked());
+
+        // once chunked the chunk size follows from the full chunks, not from the configured maximum
+        assertEquals(4, appended.appendChunkSize(1000, 1));
+    }
+
+    @Test
+    void testFullInlineChunksAreSealedIntoTheChunkStore() {
+        Cache cache = new Cache(Optional.empty(), "cache1", "key1", Optional.empty(), 0, List.of(new PayloadChunk(0, new byte[0])))
+                .withAppended(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8}, 4, Optional.empty());
+        // the partial last chunk stays inline
+        assertEquals(List.of(0, 1), cache.sealable());
+
+        String hash0 = PayloadChunk.contentHash(ByteString.fromArray(new byte[]{0, 1, 2, 3}));
+        PayloadChunk sealed = PayloadChunk.stored(0, hash0, "s1");
+        assertTrue(cache.seals(sealed));
+        assertFalse(cache.seals(PayloadChunk.stored(1, hash0, "s1")));
+        assertFalse(cache.seals(PayloadChunk.stored(2, PayloadChunk.contentHash(ByteString.fromArray(new byte[]{8})), "s1")));
+
+        Cache after = cache.withSealed(List.of(sealed));
+        assertEquals(List.of(1), after.sealable());
+        assertEquals(9, after.totalBytes());
+        // the value has no generation of its own, the sealed chunk is released under the seal's
+        assertEquals(List.of(new ChunkRelease(hash0, ChunkRelease.referrer("cache1key1", "s1", 0))), after.committedReleases("cache1key1"));
+        assertFalse(after.seals(sealed));
+    }
+}
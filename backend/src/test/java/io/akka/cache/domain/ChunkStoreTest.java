@@ -0,0 +1,65 @@
+package io.akka.cache.domain;
+
+import akka.util.ByteString;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkStoreTest {
+
+    @Test
+    void testSameBytesSameHashEvenAcrossSlices() {
+        byte[] payload = {1, 2, 3, 4, 5, 6};
+        ByteString whole = ByteString.fromArray(payload);
+        // a chunk cut out of a larger buffer, and one assembled from two buffers
+        ByteString slice = ByteString.fromArray(new byte[]{9, 1, 2, 3, 4, 5, 6, 9}).slice(1, 7);
+        ByteString joined = ByteString.fromArray(new byte[]{1, 2, 3}).concat(ByteString.fromArray(new byte[]{4, 5, 6}));
+
+        String hash = PayloadChunk.contentHash(whole);
+        assertEquals(64, hash.length());
+        assertEquals(hash, PayloadChunk.contentHash(slice));
+        assertEquals(hash, PayloadChunk.contentHash(joined));
+        assertNotEquals(hash, PayloadChunk.contentHash(ByteString.fromArray(new byte[]{1, 2, 3})));
+    }
+
+    @Test
+    void testPayloadIsDroppedWithTheLastReferrer() {
+        byte[] payload = {1, 2, 3};
+        ChunkStore store = ChunkStore.empty();
+        assertFalse(store.holdsPayload());
+
+        store = store.withPayload(payload, "a").withReferrer("b").withReferrer("b");
+        assertEquals(2, store.referrers().size());
+
+        store = store.withoutReferrer("a").withoutReferrer("a");
+        assertTrue(store.holdsPayload());
+        assertArrayEquals(payload, store.payload());
+
+        store = store.withoutReferrer("b");
+        assertFalse(store.holdsPayload());
+        assertEquals(0, store.payload().length);
+    }
+
+    @Test
+    void testAShardReferencedAgainKeepsThePayload() {
+        byte[] payload = {1, 2, 3};
+        ChunkReferrers referrers = ChunkReferrers.empty().with("a");
+        ChunkStore store = ChunkStore.empty().withPayload(payload, new ChunkShard(0, referrers.epoch()));
+
+        // the shard empties, and a new referrer comes in before the ChunkStore hears about it
+        referrers = referrers.without("a");
+        ChunkReferrers.Released released = referrers.released();
+        assertTrue(released.empty());
+        referrers = referrers.with("b");
+        store = store.withShard(new ChunkShard(0, referrers.epoch()));
+
+        store = store.withoutShard(new ChunkShard(0, released.epoch()));
+        assertTrue(store.holdsPayload());
+        assertArrayEquals(payload, store.payload());
+
+        released = referrers.without("b").released();
+        store = store.withoutShard(new ChunkShard(0, released.epoch()));
+        assertFalse(store.holdsPayload());
+        assertEquals(0, store.payload().length);
+    }
+}
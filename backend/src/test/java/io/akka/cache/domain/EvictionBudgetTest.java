@@ -0,0 +1,58 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvictionBudgetTest {
+
+    private final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    private KeyAccess key(String key, long totalBytes) {
+        return KeyAccess.written("cache1", key, totalBytes, now);
+    }
+
+    private CacheNameStats stats(long keys, long totalBytes) {
+        return new CacheNameStats(keys, totalBytes, 0, List.of());
+    }
+
+    @Test
+    void testColdestKeysAreTakenUntilTheBytesFit() {
+        EvictionBudget budget = new EvictionBudget("cache1", 1000, 0, EvictionPolicy.LRU);
+        List<KeyAccess> coldest = List.of(key("a", 100), key("b", 300), key("c", 500));
+
+        assertTrue(budget.exceededBy(stats(10, 1350)));
+        assertEquals(List.of(key("a", 100), key("b", 300)), budget.select(coldest, stats(10, 1350)));
+        assertFalse(budget.exceededBy(stats(10, 1000)));
+        assertTrue(budget.select(coldest, stats(10, 1000)).isEmpty());
+    }
+
+    @Test
+    void testBothLimitsHaveToFit() {
+        EvictionBudget budget = new EvictionBudget("cache1", 1000, 5, EvictionPolicy.LFU);
+        List<KeyAccess> coldest = List.of(key("a", 600), key("b", 10), key("c", 10));
+
+        // the first key frees the bytes, the entries need one more
+        assertEquals(2, budget.select(coldest, stats(7, 1500)).size());
+    }
+
+    @Test
+    void testZeroIsUnbounded() {
+        EvictionBudget budget = new EvictionBudget("cache1", 0, 0, EvictionPolicy.LRU);
+
+        assertFalse(budget.exceededBy(stats(Long.MAX_VALUE, Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testAccessesMoveAKeyUpTheRanking() {
+        KeyAccess keyAccess = key("a", 100).withAccess(now.plusSeconds(10), 3).withAccess(now.plusSeconds(5), 1);
+
+        assertEquals(4, keyAccess.accesses());
+        // a lagging access doesn't make the key look colder
+        assertEquals(now.plusSeconds(10), keyAccess.lastAccessed());
+        assertEquals(4, keyAccess.withWrite(200, now.plusSeconds(20)).accesses());
+    }
+}
@@ -0,0 +1,51 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyPageQueryTest {
+
+    @Test
+    void testPrefixBecomesAKeyRange() {
+        KeyPageQuery query = KeyPageQuery.of("cache1", Optional.empty(), Optional.of("user-"), 10);
+
+        assertEquals("user-", query.prefix());
+        assertEquals("user.", query.prefixEnd());
+        assertTrue(query.bounded());
+        assertTrue("user-zzz".compareTo(query.prefixEnd()) < 0);
+        assertTrue("user.".compareTo(query.prefixEnd()) >= 0);
+
+        assertFalse(KeyPageQuery.of("cache1", Optional.empty(), Optional.empty(), 10).bounded());
+        assertEquals("b", KeyPageQuery.prefixEnd("a" + Character.MAX_VALUE));
+        assertEquals("", KeyPageQuery.prefixEnd(String.valueOf(Character.MAX_VALUE)));
+    }
+
+    @Test
+    void testExtraKeyMeansAnotherPage() {
+        KeyPageQuery query = KeyPageQuery.of("cache1", Optional.empty(), Optional.empty(), 2);
+        assertEquals(3, query.limit());
+
+        List<String> fetched = List.of("a", "b", "c");
+        assertEquals(List.of("a", "b"), query.page(fetched));
+        String cursor = query.nextCursor(fetched).orElseThrow();
+
+        KeyPageQuery next = KeyPageQuery.of("cache1", Optional.of(cursor), Optional.empty(), 2);
+        assertEquals("b", next.after());
+
+        List<String> last = List.of("c");
+        assertEquals(last, next.page(last));
+        assertEquals(Optional.empty(), next.nextCursor(last));
+    }
+
+    @Test
+    void testCursorSurvivesAnyKey() {
+        String key = "a/b?c=d&e é";
+        assertEquals(key, KeyPageQuery.decodeCursor(KeyPageQuery.encodeCursor(key)));
+        assertFalse(KeyPageQuery.encodeCursor(key).contains("/"));
+        assertThrows(IllegalArgumentException.class, () -> KeyPageQuery.decodeCursor("not base64!"));
+    }
+}
@@ -0,0 +1,65 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlBucketTest {
+
+    private final Instant expiresAt = Instant.ofEpochSecond(1_000_000);
+
+    @Test
+    void testPagesInCacheIdOrder() {
+        TtlBucket bucket = TtlBucket.empty()
+                .withEntry("c", expiresAt)
+                .withEntry("a", expiresAt)
+                .withEntry("b", expiresAt);
+
+        assertEquals(List.of(new TtlEntry("a", expiresAt), new TtlEntry("b", expiresAt)), bucket.page("", 2));
+        assertEquals(List.of(new TtlEntry("c", expiresAt)), bucket.page("b", 2));
+        assertTrue(bucket.page("c", 2).isEmpty());
+    }
+
+    @Test
+    void testOnlyExpiredEntriesAreRemoved() {
+        TtlBucket bucket = TtlBucket.empty()
+                .withEntry("a", expiresAt)
+                .withEntry("b", expiresAt)
+                .withTimerStarted();
+
+        // b failed to expire, it stays for the retry
+        bucket = bucket.withExpired(List.of(new TtlEntry("a", expiresAt)));
+        assertEquals(List.of(new TtlEntry("b", expiresAt)), bucket.page("", 10));
+        assertTrue(bucket.timerStarted());
+
+        bucket = bucket.withExpired(List.of(new TtlEntry("b", expiresAt)));
+        assertTrue(bucket.entries().isEmpty());
+        assertFalse(bucket.timerStarted());
+    }
+
+    @Test
+    void testAFullBucketOnlyTakesKeysItAlreadyHolds() {
+        TtlBucket bucket = TtlBucket.empty()
+                .withEntry("a", expiresAt)
+                .withEntry("b", expiresAt);
+
+        assertTrue(bucket.full("c", 2));
+        assertFalse(bucket.full("a", 2));
+        assertFalse(bucket.full("c", 3));
+    }
+
+    @Test
+    void testAnEntryReAddedWhileExpiringStays() {
+        Instant later = expiresAt.plusSeconds(5);
+        TtlBucket bucket = TtlBucket.empty()
+                .withEntry("a", expiresAt)
+                .withTimerStarted()
+                .withEntry("a", later);
+
+        bucket = bucket.withExpired(List.of(new TtlEntry("a", expiresAt)));
+        assertEquals(List.of(new TtlEntry("a", later)), bucket.page("", 10));
+    }
+}
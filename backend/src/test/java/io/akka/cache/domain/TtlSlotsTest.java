@@ -0,0 +1,100 @@
+package io.akka.cache.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtlSlotsTest {
+
+    private final TtlSlots slots = new TtlSlots(Duration.ofSeconds(10), Duration.ofHours(1), Duration.ofMinutes(10), Duration.ZERO, 4);
+    private final Instant now = Instant.ofEpochSecond(1_000_000);
+
+    @Test
+    void testKeysInTheSameSlotShareABucket() {
+        String first = slots.bucketFor("cache1key1", now.plusSeconds(61), now);
+        String second = slots.bucketFor("cache1key1", now.plusSeconds(69), now);
+        assertEquals(first, second);
+        assertFalse(slots.coarse(first));
+        assertNotEquals(first, slots.bucketFor("cache1key1", now.plusSeconds(71), now));
+    }
+
+    @Test
+    void testFineBucketFiresAfterEveryKeyInIt() {
+        Instant expiresAt = now.plusSeconds(65);
+        Instant firesAt = slots.firesAt(slots.bucketFor("cache1key1", expiresAt, now));
+        assertFalse(firesAt.isBefore(expiresAt));
+        assertTrue(Duration.between(expiresAt, firesAt).compareTo(Duration.ofSeconds(10)) <= 0);
+    }
+
+    @Test
+    void testFarExpiriesCascadeIntoFineBuckets() {
+        Instant expiresAt = now.plus(Duration.ofHours(5)).plusSeconds(3);
+        String coarse = slots.bucketFor("cache1key1", expiresAt, now);
+        assertTrue(slots.coarse(coarse));
+
+        // by the time the coarse bucket fires the key is within the horizon
+        Instant firesAt = slots.firesAt(coarse);
+        assertFalse(firesAt.isAfter(expiresAt));
+        assertFalse(slots.coarse(slots.bucketFor("cache1key1", expiresAt, firesAt)));
+    }
+
+    @Test
+    void testASlotIsShardedByKeyAndSpillsIntoFurtherShards() {
+        Instant expiresAt = now.plusSeconds(65);
+        Set<String> buckets = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String bucketId = slots.bucketFor("cache1key" + i, expiresAt, now);
+            buckets.add(bucketId);
+            assertEquals(bucketId, slots.bucketFor("cache1key" + i, expiresAt, now));
+        }
+        assertEquals(4, buckets.size());
+
+        String bucketId = slots.bucketFor("cache1key1", expiresAt, now);
+        String spilled = slots.spill(bucketId);
+        assertNotEquals(bucketId, spilled);
+        assertNotEquals(spilled, slots.spill(spilled));
+        assertEquals(slots.firesAt(bucketId), slots.firesAt(spilled));
+        assertEquals(slots.firesAt(slots.purgeBucketFor("cache1key1", expiresAt, now)), slots.firesAt(slots.spill(slots.purgeBucketFor("cache1key1", expiresAt, now))));
+    }
+
+    @Test
+    void testBucketIdsFromBeforeTheShardsStillParse() {
+        assertEquals(Instant.ofEpochMilli(1_000_010_000L), slots.firesAt("fine-1000000000"));
+        assertEquals(Instant.ofEpochMilli(1_000_000_000L), slots.firesAt("coarse-1000000000"));
+        assertEquals("fine-1000000000-4", slots.spill("fine-1000000000"));
+    }
+
+    @Test
+    void testPurgeBucketsShadowTheExpiryBuckets() {
+        Instant fineAt = now.plusSeconds(65);
+        String purge = slots.purgeBucketFor("cache1key1", fineAt, now);
+        assertTrue(slots.purge(purge));
+        assertFalse(slots.purge(slots.bucketFor("cache1key1", fineAt, now)));
+        assertNotEquals(slots.bucketFor("cache1key1", fineAt, now), purge);
+        assertFalse(slots.coarse(purge));
+        assertEquals(slots.firesAt(slots.bucketFor("cache1key1", fineAt, now)), slots.firesAt(purge));
+
+        Instant coarseAt = now.plus(Duration.ofHours(5));
+        String coarsePurge = slots.purgeBucketFor("cache1key1", coarseAt, now);
+        assertTrue(slots.coarse(coarsePurge));
+        assertEquals(slots.firesAt(slots.bucketFor("cache1key1", coarseAt, now)), slots.firesAt(coarsePurge));
+    }
+
+    @Test
+    void testJitterOnlyDelaysAndIsStablePerKey() {
+        TtlSlots jittered = new TtlSlots(Duration.ofSeconds(10), Duration.ofHours(1), Duration.ofMinutes(10), Duration.ofSeconds(30), 4);
+        Instant expiresAt = now.plusSeconds(120);
+        for (int i = 0; i < 100; i++) {
+            Instant slotTime = jittered.slotTime("cache1key" + i, expiresAt);
+            assertFalse(slotTime.isBefore(expiresAt));
+            assertTrue(slotTime.isBefore(expiresAt.plusSeconds(30)));
+            assertEquals(slotTime, jittered.slotTime("cache1key" + i, expiresAt));
+        }
+        assertEquals(expiresAt, slots.slotTime("cache1key1", expiresAt));
+    }
+}
@@ -0,0 +1,54 @@
+package io.akka.cache.local;
+
+import akka.Done;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.akka.cache.domain.CacheAccess;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessSamplesTest {
+
+    private final Config config = ConfigFactory.parseMap(Map.of(
+            "app.eviction.cache-names", List.of(Map.of("name", "bounded")),
+            "app.eviction.access-sample-rate", 1.0,
+            // the test flushes by itself
+            "app.eviction.access-flush-interval", "1h",
+            "app.eviction.access-max-keys", 2,
+            "app.eviction.access-shards", 1
+    ));
+
+    @Test
+    void testTheReadsOfAShardAreWrittenOncePerFlush() {
+        Map<String, Map<String, CacheAccess>> written = new ConcurrentHashMap<>();
+        AccessSamples accessSamples = new AccessSamples(config, (shardId, reads) -> {
+            written.put(shardId, reads);
+            return CompletableFuture.completedFuture(Done.done());
+        });
+        Instant now = Instant.ofEpochSecond(1_000_000);
+
+        accessSamples.record("bounded", "key1", now.plusSeconds(2));
+        accessSamples.record("bounded", "key1", now);
+        accessSamples.record("bounded", "key2", now);
+        // past access-max-keys
+        accessSamples.record("bounded", "key3", now);
+        // not a bounded cacheName
+        accessSamples.record("other", "key1");
+        accessSamples.flush();
+
+        assertEquals(Map.of("bounded-0", Map.of(
+                "key1", new CacheAccess(2, now.plusSeconds(2)),
+                "key2", new CacheAccess(1, now))), written);
+
+        written.clear();
+        accessSamples.flush();
+        assertTrue(written.isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package io.akka.cache.local;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheNameExistenceTest {
+
+    private final Config config = ConfigFactory.parseMap(Map.of(
+            "app.cache-name-existence.positive-ttl", "1m",
+            "app.cache-name-existence.negative-ttl", "1m",
+            "app.cache-name-existence.max-entries", "100"
+    ));
+
+    @Test
+    void testBothAnswersAreCachedUntilInvalidated() {
+        CacheNameExistence cacheNameExistence = new CacheNameExistence(config);
+        AtomicInteger loads = new AtomicInteger();
+        AtomicBoolean created = new AtomicBoolean(false);
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(cacheNameExistence.exists("cache1", () -> {
+                loads.incrementAndGet();
+                return CompletableFuture.completedFuture(created.get());
+            }).toCompletableFuture().join());
+        }
+        assertEquals(1, loads.get());
+
+        created.set(true);
+        cacheNameExistence.invalidate("cache1");
+        assertTrue(cacheNameExistence.exists("cache1", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(created.get());
+        }).toCompletableFuture().join());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testAFailedLookupIsNotCached() {
+        CacheNameExistence cacheNameExistence = new CacheNameExistence(config);
+
+        assertTrue(cacheNameExistence.exists("cache1", () -> CompletableFuture.failedFuture(new RuntimeException("unavailable")))
+                .toCompletableFuture().isCompletedExceptionally());
+        assertTrue(cacheNameExistence.exists("cache1", () -> CompletableFuture.completedFuture(true)).toCompletableFuture().join());
+    }
+}
@@ -0,0 +1,96 @@
+package io.akka.cache.local;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearCacheTest {
+
+    private NearCache nearCache(List<String> cacheNames) {
+        Config config = ConfigFactory.parseMap(Map.of(
+                "app.near-cache.cache-names", cacheNames,
+                "app.near-cache.max-bytes", "1MiB",
+                "app.near-cache.max-entry-bytes", "1KiB",
+                "app.near-cache.max-staleness", "1m"
+        ));
+        return new NearCache(config);
+    }
+
+    @Test
+    void testMissThenFillThenHit() {
+        NearCache nearCache = nearCache(List.of("cache1"));
+        byte[] value = {1, 2, 3};
+
+        NearCache.Lookup miss = nearCache.lookup("cache1", "key1");
+        assertFalse(miss.hit());
+        nearCache.fill(miss, value);
+
+        NearCache.Lookup hit = nearCache.lookup("cache1", "key1");
+        assertTrue(hit.hit());
+        assertArrayEquals(value, hit.value().get());
+
+        NearCache.Stats stats = nearCache.stats("cache1");
+        assertTrue(stats.enabled());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void testCacheNameOptIn() {
+        NearCache nearCache = nearCache(List.of("cache1"));
+
+        NearCache.Lookup miss = nearCache.lookup("cache2", "key1");
+        nearCache.fill(miss, new byte[]{1});
+        assertFalse(nearCache.lookup("cache2", "key1").hit());
+        assertFalse(nearCache.stats("cache2").enabled());
+
+        NearCache all = nearCache(List.of("*"));
+        assertTrue(all.isEnabledFor("anything"));
+    }
+
+    @Test
+    void testInvalidationBeatsInFlightFill() {
+        NearCache nearCache = nearCache(List.of("cache1"));
+
+        NearCache.Lookup staleRead = nearCache.lookup("cache1", "key1");
+        // a write lands while the read is still talking to the entity
+        nearCache.invalidate("cache1", "key1");
+        nearCache.fill(staleRead, new byte[]{1});
+
+        assertFalse(nearCache.lookup("cache1", "key1").hit());
+    }
+
+    @Test
+    void testOversizedValuesAreNotHeld() {
+        NearCache nearCache = nearCache(List.of("cache1"));
+
+        NearCache.Lookup miss = nearCache.lookup("cache1", "key1");
+        nearCache.fill(miss, new byte[2048]);
+
+        NearCache.Lookup again = nearCache.lookup("cache1", "key1");
+        assertFalse(again.hit());
+        // the slot was given back, so the next reader can fill it
+        nearCache.fill(again, new byte[]{1});
+        assertTrue(nearCache.lookup("cache1", "key1").hit());
+    }
+
+    @Test
+    void testEntryNeverOutlivesTheValuesExpiry() {
+        NearCache nearCache = nearCache(List.of("cache1"));
+
+        NearCache.Lookup miss = nearCache.lookup("cache1", "key1");
+        nearCache.fill(miss, new byte[]{1}, Optional.of(Instant.now().minusSeconds(1)));
+        assertFalse(nearCache.lookup("cache1", "key1").hit());
+
+        NearCache.Lookup other = nearCache.lookup("cache1", "key2");
+        nearCache.fill(other, new byte[]{1}, Optional.of(Instant.now().plusSeconds(30)));
+        assertTrue(nearCache.lookup("cache1", "key2").hit());
+    }
+}
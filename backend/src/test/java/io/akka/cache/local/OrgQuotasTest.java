@@ -0,0 +1,59 @@
+package io.akka.cache.local;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.akka.cache.domain.Organization;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrgQuotasTest {
+
+    private OrgQuotas orgQuotas(String maxBytes, Function<String, CompletionStage<Organization>> loader) {
+        Config config = ConfigFactory.parseMap(Map.of(
+                "app.org-quota.max-bytes", maxBytes,
+                "app.org-quota.refresh", "1m"
+        ));
+        return new OrgQuotas(config, loader);
+    }
+
+    @Test
+    void testWritesOverTheQuotaAreRejected() {
+        AtomicInteger loads = new AtomicInteger();
+        OrgQuotas orgQuotas = orgQuotas("1000B", org -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(new Organization(3, 900L));
+        });
+
+        assertTrue(orgQuotas.admits("org1", 100));
+        assertFalse(orgQuotas.admits("org1", 101));
+        // the usage is loaded once and then read locally
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testWritesAreLetThroughUntilTheUsageIsKnown() {
+        CompletableFuture<Organization> pending = new CompletableFuture<>();
+        OrgQuotas orgQuotas = orgQuotas("1000B", org -> pending);
+
+        assertTrue(orgQuotas.admits("org1", 5000));
+        pending.complete(new Organization(1, 1000L));
+        assertFalse(orgQuotas.admits("org1", 1));
+    }
+
+    @Test
+    void testZeroTurnsTheCheckOff() {
+        OrgQuotas orgQuotas = orgQuotas("0", org -> {
+            throw new AssertionError("the usage shouldn't be loaded");
+        });
+
+        assertFalse(orgQuotas.isEnabled());
+        assertTrue(orgQuotas.admits("org1", Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,92 @@
+package io.akka.cache.local;
+
+import akka.Done;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.akka.cache.domain.ResizeBatch;
+import io.akka.cache.domain.ValueSize;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResizeBatcherTest {
+
+    private final Config config = ConfigFactory.parseMap(Map.of(
+            "app.resize-batches.max-resizes", 3
+    ));
+
+    private static ResizeBatch.Resize resize(String source) {
+        return new ResizeBatch.Resize(source, 1, Optional.empty(), Optional.of(new ValueSize(1, false)));
+    }
+
+    private static List<String> sources(ResizeBatch batch) {
+        return batch.resizes().stream().map(ResizeBatch.Resize::source).toList();
+    }
+
+    @Test
+    void testAResizeToAnIdleEntityIsWrittenStraightAway() throws Exception {
+        ResizeBatcher resizeBatcher = new ResizeBatcher(config);
+        List<ResizeBatch> written = new CopyOnWriteArrayList<>();
+
+        resizeBatcher.add("cache1", resize("key1"), batch -> {
+            written.add(batch);
+            return CompletableFuture.completedFuture(Done.done());
+        }).toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        assertEquals(List.of(List.of("key1")), written.stream().map(ResizeBatcherTest::sources).toList());
+    }
+
+    @Test
+    void testResizesWaitingOnAWriteInFlightGoTogether() throws Exception {
+        ResizeBatcher resizeBatcher = new ResizeBatcher(config);
+        List<ResizeBatch> written = new CopyOnWriteArrayList<>();
+        CompletableFuture<Done> inFlight = new CompletableFuture<>();
+        Function<ResizeBatch, CompletionStage<Done>> write = batch -> {
+            written.add(batch);
+            return written.size() == 1 ? inFlight : CompletableFuture.completedFuture(Done.done());
+        };
+
+        CompletionStage<Done> first = resizeBatcher.add("cache1", resize("key1"), write);
+        CompletionStage<Done> second = resizeBatcher.add("cache1", resize("key2"), write);
+        resizeBatcher.add("cache1", resize("key3"), write);
+        resizeBatcher.add("cache1", resize("key4"), write);
+        CompletionStage<Done> last = resizeBatcher.add("cache1", resize("key5"), write);
+        // another entity doesn't wait on cache1's write
+        resizeBatcher.add("cache2", resize("key6"), write).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertFalse(second.toCompletableFuture().isDone());
+
+        inFlight.complete(Done.done());
+        first.toCompletableFuture().get(1, TimeUnit.SECONDS);
+        last.toCompletableFuture().get(1, TimeUnit.SECONDS);
+        assertTrue(second.toCompletableFuture().isDone());
+
+        // at most max-resizes a write
+        assertEquals(List.of(List.of("key1"), List.of("key6"), List.of("key2", "key3", "key4"), List.of("key5")),
+                written.stream().map(ResizeBatcherTest::sources).toList());
+    }
+
+    @Test
+    void testAFailedWriteFailsEveryResizeInTheBatch() {
+        ResizeBatcher resizeBatcher = new ResizeBatcher(config);
+        CompletableFuture<Done> inFlight = new CompletableFuture<>();
+        Function<ResizeBatch, CompletionStage<Done>> write = batch -> inFlight;
+
+        CompletionStage<Done> first = resizeBatcher.add("cache1", resize("key1"), write);
+        CompletionStage<Done> second = resizeBatcher.add("cache1", resize("key2"), write);
+        CompletionStage<Done> third = resizeBatcher.add("cache1", resize("key3"), write);
+        inFlight.completeExceptionally(new IllegalStateException("unavailable"));
+
+        assertThrows(Exception.class, () -> first.toCompletableFuture().get(1, TimeUnit.SECONDS));
+        assertThrows(Exception.class, () -> second.toCompletableFuture().get(1, TimeUnit.SECONDS));
+        assertThrows(Exception.class, () -> third.toCompletableFuture().get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,41 @@
+package io.akka.cache.local;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingTouchesTest {
+
+    private final Config config = ConfigFactory.parseMap(Map.of(
+            "app.sliding-ttl.cache-names", List.of("sliding"),
+            "app.sliding-ttl.min-extension", "1m",
+            "app.sliding-ttl.max-throttled-keys", "100"
+    ));
+
+    @Test
+    void testOneTouchPerKeyWithinTheMinExtension() {
+        SlidingTouches slidingTouches = new SlidingTouches(config);
+
+        assertTrue(slidingTouches.enabled("sliding"));
+        assertFalse(slidingTouches.enabled("other"));
+
+        assertTrue(slidingTouches.due("slidingkey1"));
+        assertFalse(slidingTouches.due("slidingkey1"));
+        assertFalse(slidingTouches.due("slidingkey1"));
+        assertTrue(slidingTouches.due("slidingkey2"));
+    }
+
+    @Test
+    void testAForgottenTouchIsDueAgain() {
+        SlidingTouches slidingTouches = new SlidingTouches(config);
+
+        assertTrue(slidingTouches.due("slidingkey1"));
+        slidingTouches.forget("slidingkey1");
+        assertTrue(slidingTouches.due("slidingkey1"));
+    }
+}
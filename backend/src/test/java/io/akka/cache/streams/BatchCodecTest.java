@@ -0,0 +1,69 @@
+package io.akka.cache.streams;
+
+import akka.util.ByteString;
+import io.akka.cache.domain.CacheAPI.BatchGetCacheRequest;
+import io.akka.cache.domain.CacheAPI.CacheGetResponse;
+import io.akka.cache.domain.CacheAPI.CacheRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCodecTest {
+
+    @Test
+    void testSetsRoundTrip() {
+        List<CacheRequest> sets = List.of(
+                new CacheRequest(Optional.empty(), "cache1", "key1", Optional.of(60), new byte[]{1, 2, 3}),
+                new CacheRequest(Optional.empty(), "cache1", "kéy2", Optional.empty(), new byte[0]));
+
+        List<CacheRequest> decoded = BatchCodec.decodeSets(BatchCodec.encodeSets(sets));
+
+        assertEquals(2, decoded.size());
+        assertEquals("key1", decoded.get(0).key());
+        assertEquals(Optional.of(60), decoded.get(0).ttlSeconds());
+        assertArrayEquals(new byte[]{1, 2, 3}, decoded.get(0).value());
+        assertEquals("kéy2", decoded.get(1).key());
+        assertEquals(Optional.empty(), decoded.get(1).ttlSeconds());
+        assertEquals(0, decoded.get(1).value().length);
+    }
+
+    @Test
+    void testGetResultsKeepMissesApartFromEmptyValues() {
+        ByteString body = BatchCodec.encodeGetResults(List.of(
+                new CacheGetResponse("cache1", "key1", true, new byte[0]),
+                new CacheGetResponse("cache1", "key2", false, new byte[0])));
+
+        List<CacheGetResponse> results = BatchCodec.decodeGetResults(body);
+
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success());
+        assertEquals(List.of(new BatchGetCacheRequest("cache1", "key1")),
+                BatchCodec.decodeGets(BatchCodec.encodeGets(List.of(new BatchGetCacheRequest("cache1", "key1")))));
+    }
+
+    @Test
+    void testTruncatedBodyIsRejected() {
+        ByteString body = BatchCodec.encodeSets(List.of(
+                new CacheRequest(Optional.empty(), "cache1", "key1", Optional.empty(), new byte[100])));
+
+        assertThrows(IllegalArgumentException.class, () -> BatchCodec.decodeSets(body.take(body.size() - 1)));
+        assertThrows(IllegalArgumentException.class, () -> BatchCodec.decodeSets(body.take(3)));
+    }
+
+    @Test
+    void testFramingIsSmallerThanBase64Json() {
+        byte[] value = new byte[4096];
+        CacheRequest set = new CacheRequest(Optional.empty(), "cache1", "key1", Optional.empty(), value);
+        // the JSON body carries the value base64 encoded, before any of the field names
+        int jsonValueBytes = Base64.getEncoder().encode(value).length;
+
+        int binaryBytes = BatchCodec.encodeSets(List.of(set)).size();
+
+        assertTrue(binaryBytes < value.length + 32, "frame overhead should be a few bytes but was " + (binaryBytes - value.length));
+        assertTrue(binaryBytes < jsonValueBytes);
+    }
+}
@@ -0,0 +1,98 @@
+package io.akka.cache.streams;
+
+import akka.actor.ActorSystem;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import io.akka.cache.domain.CacheAPI.BatchGetCacheRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    private static ActorSystem system;
+    private static Materializer materializer;
+
+    @BeforeAll
+    static void setup() {
+        system = ActorSystem.create("BatchRunnerTest");
+        materializer = Materializer.matFromSystem(system);
+    }
+
+    @AfterAll
+    static void teardown() {
+        system.terminate();
+    }
+
+    private record Item(String cacheName, String key, String value) {}
+
+    @Test
+    void testRepeatedKeysCollapseToTheLastInThePlaceOfTheFirst() {
+        List<Item> items = List.of(
+                new Item("cache1", "key1", "a"),
+                new Item("cache1", "key2", "b"),
+                new Item("cache1", "key1", "c"),
+                new Item("cache2", "key1", "d"));
+
+        List<Item> distinct = BatchRunner.distinctKeys(items, Item::cacheName, Item::key);
+        assertEquals(List.of("c", "b", "d"), distinct.stream().map(Item::value).toList());
+    }
+
+    @Test
+    void testResultsComeBackAsTheyComplete() throws Exception {
+        List<BatchGetCacheRequest> requests = List.of(
+                new BatchGetCacheRequest("cache1", "slow"),
+                new BatchGetCacheRequest("cache1", "fast"),
+                new BatchGetCacheRequest("cache1", "slow"));
+        AtomicInteger runs = new AtomicInteger();
+
+        List<BatchRunner.Outcome<String>> outcomes = BatchRunner.run(requests, BatchGetCacheRequest::cacheName, BatchGetCacheRequest::key, 4,
+                        request -> {
+                            runs.incrementAndGet();
+                            long delay = request.key().equals("slow") ? 200 : 0;
+                            return CompletableFuture.supplyAsync(request::key, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+                        },
+                        (request, ex) -> "failed")
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        // the fast key isn't held up behind the slow one
+        assertEquals(List.of("fast", "slow"), BatchRunner.results(outcomes));
+        assertEquals(2, runs.get());
+        assertTrue(BatchRunner.complete(outcomes));
+    }
+
+    @Test
+    void testAFailedItemMakesTheBatchIncompleteWithoutStoppingIt() throws Exception {
+        List<BatchGetCacheRequest> requests = List.of(
+                new BatchGetCacheRequest("cache1", "key1"),
+                new BatchGetCacheRequest("cache1", "broken"),
+                new BatchGetCacheRequest("cache1", "key3"));
+
+        List<BatchRunner.Outcome<String>> outcomes = BatchRunner.run(requests, BatchGetCacheRequest::cacheName, BatchGetCacheRequest::key, 4,
+                        request -> {
+                            if (request.key().equals("broken")) {
+                                throw new IllegalStateException("unavailable");
+                            }
+                            return CompletableFuture.completedFuture(request.key());
+                        },
+                        (request, ex) -> "failed " + request.key())
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(Set.of("key1", "failed broken", "key3"), Set.copyOf(BatchRunner.results(outcomes)));
+        assertEquals(Set.of("failed broken"), outcomes.stream().filter(BatchRunner.Outcome::failed).map(BatchRunner.Outcome::result).collect(Collectors.toSet()));
+        assertFalse(BatchRunner.complete(outcomes));
+    }
+}
@@ -0,0 +1,107 @@
+package io.akka.cache.streams;
+
+import akka.actor.ActorSystem;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import io.akka.cache.domain.PayloadChunk;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkerTest {
+    private static final int PAYLOAD_SIZE = 8 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 450000;
+
+    private static ActorSystem system;
+    private static Materializer materializer;
+
+    @BeforeAll
+    static void setup() {
+        system = ActorSystem.create("ChunkerTest");
+        materializer = Materializer.matFromSystem(system);
+    }
+
+    @AfterAll
+    static void teardown() {
+        system.terminate();
+    }
+
+    @Test
+    void testOnlyFullChunksUntilUpstreamCompletes() throws Exception {
+        // a streamed upload shows up in small frames, the chunks still need to be full sized
+        List<ByteString> frames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            frames.add(ByteString.fromArray(new byte[7]));
+        }
+        List<ByteString> chunks = Source.from(frames)
+                .via(new Chunker(20))
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(3, TimeUnit.SECONDS);
+
+        assertEquals(List.of(20, 20, 20, 10), chunks.stream().map(ByteString::size).toList());
+    }
+
+    @Test
+    void testSingleBufferIsSplitInOrder() throws Exception {
+        byte[] payload = new byte[1000];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+        List<ByteString> chunks = Source.single(ByteString.fromArrayUnsafe(payload))
+                .via(new Chunker(300))
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(3, TimeUnit.SECONDS);
+
+        assertEquals(4, chunks.size());
+        ByteString joined = chunks.stream().reduce(ByteString.emptyByteString(), ByteString::concat);
+        assertArrayEquals(payload, joined.toArray());
+    }
+
+    /*
+     The large payload path as it runs in production: the wrapped request array through the Chunker, each chunk
+     turned into a PayloadChunk. The Chunker only slices, so each chunk's bytes are copied once (they're slices of
+     the request array, the first one too) and no more. A single chunk value owning its array isn't copied at all.
+     */
+    @Test
+    void testEachPayloadByteIsCopiedAtMostOnce() throws Exception {
+        byte[] payload = new byte[PAYLOAD_SIZE];
+
+        List<PayloadChunk> chunks = chunked(payload);
+        long copied = chunks.stream()
+                .filter(chunk -> chunk.payload() != payload)
+                .mapToLong(chunk -> chunk.payload().length)
+                .sum();
+
+        assertEquals((PAYLOAD_SIZE + CHUNK_SIZE - 1) / CHUNK_SIZE, chunks.size());
+        assertEquals(PAYLOAD_SIZE, chunks.stream().mapToInt(chunk -> chunk.payload().length).sum());
+        assertTrue(copied <= PAYLOAD_SIZE, "copied " + copied + " bytes of " + PAYLOAD_SIZE);
+
+        byte[] small = new byte[CHUNK_SIZE];
+        List<PayloadChunk> single = chunked(small);
+        assertEquals(1, single.size());
+        assertSame(small, single.get(0).payload());
+    }
+
+    private static List<PayloadChunk> chunked(byte[] value) throws Exception {
+        List<ByteString> chunks = Source.single(ByteString.fromArrayUnsafe(value))
+                .via(new Chunker(CHUNK_SIZE))
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(10, TimeUnit.SECONDS);
+        List<PayloadChunk> payloadChunks = new ArrayList<>();
+        for (int sequence = 0; sequence < chunks.size(); sequence++) {
+            payloadChunks.add(PayloadChunk.of(sequence, chunks.get(sequence)));
+        }
+        return payloadChunks;
+    }
+}
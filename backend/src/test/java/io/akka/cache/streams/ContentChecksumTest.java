@@ -0,0 +1,122 @@
+package io.akka.cache.streams;
+
+import akka.actor.ActorSystem;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentChecksumTest {
+
+    private static ActorSystem system;
+    private static Materializer materializer;
+
+    @BeforeAll
+    static void setup() {
+        system = ActorSystem.create("ContentChecksumTest");
+        materializer = Materializer.matFromSystem(system);
+    }
+
+    @AfterAll
+    static void teardown() {
+        system.terminate();
+    }
+
+    @Test
+    void testChunkedChecksumMatchesWholeValue() {
+        byte[] value = "the quick brown fox jumps over the lazy dog".getBytes();
+        ContentChecksum chunked = new ContentChecksum()
+                .update(ByteString.fromArray(value, 0, 10))
+                .update(ByteString.fromArray(value, 10, value.length - 10));
+        assertEquals(ContentChecksum.of(value), chunked.value());
+    }
+
+    @Test
+    void testPatchedChecksumWithoutRereadingTheValue() {
+        byte[] value = new byte[200_000];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) (i * 31);
+        }
+        long checksum = ContentChecksum.of(value);
+
+        int first = 123_456;
+        byte[] patch = "patched region".getBytes();
+        byte[] before = Arrays.copyOfRange(value, first, first + patch.length);
+        System.arraycopy(patch, 0, value, first, patch.length);
+
+        long patched = ContentChecksum.patched(checksum, before, patch, value.length - first - patch.length);
+        assertEquals(ContentChecksum.of(value), patched);
+    }
+
+    @Test
+    void testExtendedChecksumOfAnAppend() {
+        byte[] value = "an append only log".getBytes();
+        byte[] appended = " grows at the end".getBytes();
+        byte[] whole = Arrays.copyOf(value, value.length + appended.length);
+        System.arraycopy(appended, 0, whole, value.length, appended.length);
+
+        assertEquals(ContentChecksum.of(whole), ContentChecksum.extended(ContentChecksum.of(value), appended));
+        assertEquals(ContentChecksum.of(value), ContentChecksum.extended(ContentChecksum.of(new byte[0]), value));
+    }
+
+    @Test
+    void testIfNoneMatch() {
+        long checksum = ContentChecksum.of(new byte[]{1, 2, 3});
+        String etag = ContentChecksum.etag(checksum);
+
+        assertTrue(ContentChecksum.matches(Optional.of(etag), checksum));
+        // strong form of the same tag, and one of several
+        assertTrue(ContentChecksum.matches(Optional.of("\"abc\", " + etag.substring(2)), checksum));
+        assertTrue(ContentChecksum.matches(Optional.of("*"), checksum));
+        assertFalse(ContentChecksum.matches(Optional.of("W/\"abc\""), checksum));
+        assertFalse(ContentChecksum.matches(Optional.empty(), checksum));
+    }
+
+    @Test
+    void testTheGzippedBytesHaveTheirOwnETag() {
+        long checksum = ContentChecksum.of(new byte[]{1, 2, 3});
+        String gzip = ContentChecksum.etag(checksum, true);
+
+        assertNotEquals(ContentChecksum.etag(checksum), gzip);
+        assertTrue(gzip.startsWith("W/"));
+        // both are the same value, either one revalidates it
+        assertTrue(ContentChecksum.matches(Optional.of(gzip), checksum));
+        assertTrue(ContentChecksum.matches(Optional.of(ContentChecksum.etag(checksum)), checksum));
+    }
+
+    @Test
+    void testVerifierPassesIntactValue() throws Exception {
+        List<ByteString> chunks = List.of(ByteString.fromString("abc"), ByteString.fromString("def"));
+        long checksum = ContentChecksum.of("abcdef".getBytes());
+
+        List<ByteString> out = Source.from(chunks)
+                .via(new ChecksumVerifier(checksum))
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(3, TimeUnit.SECONDS);
+        assertEquals(chunks, out);
+    }
+
+    @Test
+    void testVerifierFailsOnCorruptChunk() {
+        long checksum = ContentChecksum.of("abcdef".getBytes());
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> Source.from(List.of(ByteString.fromString("abc"), ByteString.fromString("dEf")))
+                .via(new ChecksumVerifier(checksum))
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(3, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+}
@@ -0,0 +1,52 @@
+package io.akka.cache.streams;
+
+import akka.util.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DictionaryCompressionTest {
+
+    // the kind of small JSON value the dictionaries are for: same fields, different values
+    private static byte[] sampleValue(Random random) {
+        String json = "{\"customerId\":\"" + random.nextInt(1_000_000) + "\",\"status\":\"ACTIVE\",\"preferences\":{\"language\":\"en-US\","
+                + "\"currency\":\"USD\",\"notifications\":{\"email\":true,\"sms\":false}},\"lastLogin\":\"2024-0" + (1 + random.nextInt(9))
+                + "-1" + random.nextInt(10) + "T10:15:30Z\",\"loyaltyPoints\":" + random.nextInt(10_000) + ",\"segment\":\"retail-standard\"}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testDictionaryBeatsPlainCompressionOnSmallValues() {
+        Random random = new Random(7);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            samples.add(sampleValue(random));
+        }
+        byte[] dictionary = DictionaryCompression.train(samples, 32 * 1024);
+        assertTrue(dictionary.length > 0);
+        assertTrue(dictionary.length <= 32 * 1024);
+
+        byte[] value = sampleValue(random);
+        byte[] compressed = DictionaryCompression.compress(value, dictionary).orElseThrow();
+        int gzipped = PayloadCompression.gzip(ByteString.fromArray(value)).map(ByteString::size).orElse(value.length);
+        assertTrue(compressed.length < gzipped / 2, "dictionary " + compressed.length + " bytes, gzip " + gzipped + " bytes");
+
+        assertArrayEquals(value, DictionaryCompression.decompress(compressed, dictionary));
+    }
+
+    @Test
+    void testValuesNeedTheDictionaryTheyWereWrittenWith() {
+        Random random = new Random(7);
+        List<byte[]> samples = List.of(sampleValue(random), sampleValue(random), sampleValue(random));
+        byte[] dictionary = DictionaryCompression.train(samples, 32 * 1024);
+        byte[] compressed = DictionaryCompression.compress(sampleValue(random), dictionary).orElseThrow();
+
+        byte[] otherDictionary = "something else entirely, nothing like the samples".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalStateException.class, () -> DictionaryCompression.decompress(compressed, otherDictionary));
+    }
+}
@@ -0,0 +1,103 @@
+package io.akka.cache.streams;
+
+import akka.actor.ActorSystem;
+import akka.stream.Materializer;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadCompressionTest {
+
+    private static ActorSystem system;
+    private static Materializer materializer;
+
+    @BeforeAll
+    static void setup() {
+        system = ActorSystem.create("PayloadCompressionTest");
+        materializer = Materializer.matFromSystem(system);
+    }
+
+    @AfterAll
+    static void teardown() {
+        system.terminate();
+    }
+
+    private static ByteString compressible(int size) {
+        byte[] value = new byte[size];
+        for (int i = 0; i < size; i++) {
+            value[i] = (byte) ('a' + (i % 7));
+        }
+        return ByteString.fromArrayUnsafe(value);
+    }
+
+    @Test
+    void testEnabledPerCacheNameAboveMinBytes() {
+        Config config = ConfigFactory.parseMap(Map.of(
+                "app.compression.cache-names", List.of("cache1"),
+                "app.compression.min-bytes", "1KiB"
+        ));
+        PayloadCompression compression = new PayloadCompression(config);
+        assertTrue(compression.worthCompressing("cache1", 2048));
+        assertFalse(compression.worthCompressing("cache1", 100));
+        assertFalse(compression.worthCompressing("cache2", 2048));
+    }
+
+    @Test
+    void testRoundTripAndIncompressibleValues() {
+        ByteString value = compressible(100_000);
+        ByteString compressed = PayloadCompression.gzip(value).orElseThrow();
+        assertTrue(compressed.size() < value.size() / 10);
+        assertEquals(value, PayloadCompression.gunzip(compressed));
+
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+        assertEquals(Optional.empty(), PayloadCompression.gzip(ByteString.fromArrayUnsafe(random)));
+    }
+
+    @Test
+    void testStoredChunksStreamBackThroughGunzip() throws Exception {
+        ByteString value = compressible(1_000_000);
+        // chunked the way a large value is stored, then decompressed on the way out
+        List<ByteString> storedChunks = Source.single(value)
+                .via(PayloadCompression.gzipFlow())
+                .via(new Chunker(1000))
+                .runWith(Sink.seq(), materializer)
+                .toCompletableFuture()
+                .get(3, TimeUnit.SECONDS);
+        assertTrue(storedChunks.size() > 1);
+
+        ByteString decoded = Source.from(storedChunks)
+                .via(PayloadCompression.gunzipFlow())
+                .runFold(ByteString.emptyByteString(), ByteString::concat, materializer)
+                .toCompletableFuture()
+                .get(3, TimeUnit.SECONDS);
+        assertEquals(value, decoded);
+    }
+
+    @Test
+    void testAcceptEncoding() {
+        assertTrue(PayloadCompression.acceptsGzip(Optional.of("gzip")));
+        assertTrue(PayloadCompression.acceptsGzip(Optional.of("deflate, gzip;q=0.8, br")));
+        assertTrue(PayloadCompression.acceptsGzip(Optional.of("*")));
+        assertFalse(PayloadCompression.acceptsGzip(Optional.of("gzip;q=0")));
+        // the explicit refusal wins over the wildcard, whichever comes first
+        assertFalse(PayloadCompression.acceptsGzip(Optional.of("*, gzip;q=0")));
+        assertFalse(PayloadCompression.acceptsGzip(Optional.of("gzip;q=0, *")));
+        assertTrue(PayloadCompression.acceptsGzip(Optional.of("*;q=0, gzip")));
+        assertFalse(PayloadCompression.acceptsGzip(Optional.of("br, identity")));
+        assertFalse(PayloadCompression.acceptsGzip(Optional.empty()));
+    }
+}
@@ -0,0 +1,146 @@
+package io.akka.gatling;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+/*
+ The same batches sent as base64 JSON and as application/octet-stream frames, side by side.
+ Compare "batch-json-set" with "batch-binary-set" and "batch-json-get" with "batch-binary-get";
+ with the same injection profile the binary ones should show the lower latency, and the
+ service the lower CPU per batch.
+ */
+public class CacheBatchBinaryScenario extends Simulation {
+    private static final String CACHE_NAME = "batchBinary";
+
+    private Config config = ConfigFactory.load();
+
+    private String baseUrl = config.getString("loadtest.baseUrl");
+    private String bearerToken = config.getString("loadtest.bearerToken");
+    private int batchSize = config.getInt("loadtest.batch.batchSize");
+    private int valueSize = config.getInt("loadtest.batch.valueSize");
+    private int users = config.getInt("loadtest.batch.users");
+    private Duration rampDuration = config.getDuration("loadtest.batch.rampDuration");
+
+    private Random random = new Random();
+    private AtomicInteger batchIndex = new AtomicInteger();
+
+    HttpProtocolBuilder httpProtocol = http.baseUrl(baseUrl)
+            .authorizationHeader("Bearer " + bearerToken);
+
+    private String key(int batch, int i) {
+        return "batch-" + batch + "-" + i;
+    }
+
+    private byte[] newValue() {
+        byte[] value = new byte[valueSize];
+        random.nextBytes(value);
+        return value;
+    }
+
+    private String jsonSets(int batch) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        StringBuilder body = new StringBuilder("{\"cacheRequests\":[");
+        for (int i = 0; i < batchSize; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"cacheName\":\"").append(CACHE_NAME)
+                    .append("\",\"key\":\"").append(key(batch, i))
+                    .append("\",\"value\":\"").append(encoder.encodeToString(newValue())).append("\"}");
+        }
+        return body.append("]}").toString();
+    }
+
+    private String jsonGets(int batch) {
+        StringBuilder body = new StringBuilder("{\"getCachedBatch\":[");
+        for (int i = 0; i < batchSize; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"cacheName\":\"").append(CACHE_NAME)
+                    .append("\",\"key\":\"").append(key(batch, i)).append("\"}");
+        }
+        return body.append("]}").toString();
+    }
+
+    // the BatchCodec framing, see the backend README
+    private byte[] frame(String key, byte[] value) {
+        byte[] cacheNameBytes = CACHE_NAME.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int frameLength = 1 + 2 + cacheNameBytes.length + 2 + keyBytes.length + 4 + value.length;
+        return ByteBuffer.allocate(4 + frameLength)
+                .putInt(frameLength)
+                .put((byte) 0)
+                .putShort((short) cacheNameBytes.length)
+                .put(cacheNameBytes)
+                .putShort((short) keyBytes.length)
+                .put(keyBytes)
+                .putInt(0)
+                .put(value)
+                .array();
+    }
+
+    private byte[] binarySets(int batch) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < batchSize; i++) {
+            body.writeBytes(frame(key(batch, i), newValue()));
+        }
+        return body.toByteArray();
+    }
+
+    private byte[] binaryGets(int batch) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < batchSize; i++) {
+            body.writeBytes(frame(key(batch, i), new byte[0]));
+        }
+        return body.toByteArray();
+    }
+
+    ScenarioBuilder json = scenario("CacheBatchJSONScenario")
+            .exec(session -> session.set("batch", batchIndex.getAndIncrement()))
+            .exec(
+                    http("batch-json-set")
+                            .post("/cache/batch")
+                            .header("content-type", "application/json")
+                            .body(StringBody(session -> jsonSets(session.getInt("batch"))))
+                            .check(status().is(200)),
+                    http("batch-json-get")
+                            .post("/cache/batch/get")
+                            .header("content-type", "application/json")
+                            .body(StringBody(session -> jsonGets(session.getInt("batch"))))
+                            .check(status().is(200))
+            );
+
+    ScenarioBuilder binary = scenario("CacheBatchBinaryScenario")
+            .exec(session -> session.set("batch", batchIndex.getAndIncrement()))
+            .exec(
+                    http("batch-binary-set")
+                            .post("/cache/batch/binary")
+                            .header("content-type", "application/octet-stream")
+                            .body(ByteArrayBody(session -> binarySets(session.getInt("batch"))))
+                            .check(status().is(200)),
+                    http("batch-binary-get")
+                            .post("/cache/batch/get/binary")
+                            .header("content-type", "application/octet-stream")
+                            .body(ByteArrayBody(session -> binaryGets(session.getInt("batch"))))
+                            .check(status().is(200))
+            );
+
+    {
+        setUp(
+                json.injectOpen(rampUsers(users).during(rampDuration)),
+                binary.injectOpen(rampUsers(users).during(rampDuration))
+        ).protocols(httpProtocol);
+    }
+}
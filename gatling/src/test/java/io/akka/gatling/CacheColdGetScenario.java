@@ -0,0 +1,84 @@
+package io.akka.gatling;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import io.gatling.javaapi.core.PopulationBuilder;
+import io.gatling.javaapi.core.ScenarioBuilder;
+import io.gatling.javaapi.core.Simulation;
+import io.gatling.javaapi.http.HttpProtocolBuilder;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+import static io.gatling.javaapi.http.HttpDsl.http;
+import static io.gatling.javaapi.http.HttpDsl.status;
+
+/*
+ Cold read latency against write history. Every key is overwritten historyDepth times, left alone long
+ enough to be passivated, then read once. Each depth reports its own "cold-get-<depth>" request, with
+ snapshots on those should stay flat as the depth grows (without them they grow with the history).
+ */
+public class CacheColdGetScenario extends Simulation {
+    private Config config = ConfigFactory.load();
+
+    private String baseUrl = config.getString("loadtest.baseUrl");
+    private String bearerToken = config.getString("loadtest.bearerToken");
+    private List<Integer> historyDepths = config.getIntList("loadtest.coldGet.historyDepths");
+    private int keysPerDepth = config.getInt("loadtest.coldGet.keysPerDepth");
+    private int valueSize = config.getInt("loadtest.coldGet.valueSize");
+    private Duration pauseBeforeRead = config.getDuration("loadtest.coldGet.pauseBeforeRead");
+
+    private Random random = new Random();
+
+    HttpProtocolBuilder httpProtocol =
+            http.baseUrl(baseUrl)
+                    .authorizationHeader("Bearer " + bearerToken)
+                    .acceptHeader("application/octet-stream");
+
+    // every user gets its own key, so each key's history is exactly the depth
+    private Iterator<Map<String, Object>> keyFeeder(int historyDepth) {
+        AtomicInteger keyIndex = new AtomicInteger();
+        return Stream.generate(() -> Map.<String, Object>of("key", "cold-" + historyDepth + "-" + keyIndex.getAndIncrement()))
+                .iterator();
+    }
+
+    private byte[] newValue() {
+        byte[] value = new byte[valueSize];
+        random.nextBytes(value);
+        return value;
+    }
+
+    private ScenarioBuilder coldGet(int historyDepth) {
+        return scenario("CacheColdGetScenario-" + historyDepth)
+                .feed(keyFeeder(historyDepth))
+                .repeat(historyDepth).on(
+                        exec(
+                                http("overwrite-" + historyDepth)
+                                        .post("/cache/coldGet/#{key}")
+                                        .header("content-type", "application/octet-stream")
+                                        .body(ByteArrayBody(session -> newValue()))
+                                        .check(status().is(201))
+                        )
+                )
+                .pause(pauseBeforeRead)
+                .exec(
+                        http("cold-get-" + historyDepth)
+                                .get("/cache/coldGet/#{key}")
+                                .check(status().is(200))
+                );
+    }
+
+    {
+        PopulationBuilder[] populations = historyDepths.stream()
+                .map(historyDepth -> coldGet(historyDepth).injectOpen(rampUsers(keysPerDepth).during(Duration.ofSeconds(10))))
+                .toArray(PopulationBuilder[]::new);
+        setUp(populations)
+                .protocols(httpProtocol);
+    }
+}
@@ -22,6 +22,7 @@ public class CacheLowLevelMultiKRatioReadWrites extends Simulation {
     private Config config = ConfigFactory.load();
 
     private String baseUrl = config.getString("loadtest.baseUrl");
+    private String bearerToken = config.getString("loadtest.bearerToken");
     private long targetObjectSize = config.getLong("loadtest.targetObjectSize");
 
     private Base64.Encoder encoder = Base64.getEncoder();
@@ -46,6 +47,7 @@ public class CacheLowLevelMultiKRatioReadWrites extends Simulation {
 
     HttpProtocolBuilder httpProtocol =
             http.baseUrl(baseUrl)
+                    .authorizationHeader("Bearer " + bearerToken)
                     .acceptHeader("application/json")
                     .contentTypeHeader("application/json");
 
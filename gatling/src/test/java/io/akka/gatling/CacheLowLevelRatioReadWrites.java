@@ -23,6 +23,7 @@ public class CacheLowLevelRatioReadWrites  extends Simulation {
     private Config config = ConfigFactory.load();
 
     private String baseUrl = config.getString("loadtest.baseUrl");
+    private String bearerToken = config.getString("loadtest.bearerToken");
     private long targetObjectSize = config.getLong("loadtest.targetObjectSize");
 
     private Base64.Encoder encoder = Base64.getEncoder();
@@ -41,6 +42,7 @@ public class CacheLowLevelRatioReadWrites  extends Simulation {
 
     HttpProtocolBuilder httpProtocol =
             http.baseUrl(baseUrl)
+                    .authorizationHeader("Bearer " + bearerToken)
                     .acceptHeader("application/octet-stream")
                     .contentTypeHeader("application/octet-stream");
 
@@ -22,6 +22,7 @@ public class CacheLowLevelSetScenario extends Simulation {
     private Config config = ConfigFactory.load();
 
     private String baseUrl = config.getString("loadtest.baseUrl");
+    private String bearerToken = config.getString("loadtest.bearerToken");
 
     private Base64.Encoder encoder = Base64.getEncoder();
 
@@ -37,6 +38,7 @@ public class CacheLowLevelSetScenario extends Simulation {
 
     HttpProtocolBuilder httpProtocol =
             http.baseUrl(baseUrl)
+                    .authorizationHeader("Bearer " + bearerToken)
                     .acceptHeader("application/json")
                     .contentTypeHeader("application/json");
 